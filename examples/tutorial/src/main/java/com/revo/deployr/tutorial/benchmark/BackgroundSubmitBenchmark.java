@@ -0,0 +1,127 @@
+/*
+ * BackgroundSubmitBenchmark.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.tutorial.benchmark;
+
+import static com.revo.deployr.tutorial.util.Constants.*;
+import com.revo.deployr.client.auth.RAuthentication;
+import com.revo.deployr.client.auth.basic.RBasicAuthentication;
+import com.revo.deployr.client.broker.*;
+import com.revo.deployr.client.broker.config.*;
+import com.revo.deployr.client.factory.RBrokerFactory;
+import com.revo.deployr.client.factory.RTaskFactory;
+
+import java.util.*;
+import org.apache.log4j.Logger;
+
+/*
+ * BackgroundSubmitBenchmark
+ *
+ * Measures background job submission throughput on a
+ * BackgroundTaskBroker across a range of submission
+ * concurrency limits, followed by a round using the
+ * adaptive submission limit.
+ *
+ * Each round submits a batch of BackgroundTask and waits
+ * until every job has been accepted into the server-managed
+ * queue. Job execution on the server is not awaited.
+ */
+public class BackgroundSubmitBenchmark {
+
+    private static Logger log =
+        Logger.getLogger(BackgroundSubmitBenchmark.class);
+
+    private static final int BENCHMARK_JOB_COUNT = 500;
+    private static final int[] BENCHMARK_LIMITS = { 10, 25, 50, 100 };
+
+    /*
+     * Main method launches benchmark, BackgroundSubmitBenchmark.
+     */
+    public static void main(String[] args) {
+
+        log.info("DeployR Endpoint @ " +
+            System.getProperty("connection.protocol") +
+                System.getProperty("connection.endpoint"));
+        new BackgroundSubmitBenchmark();
+    }
+
+    public BackgroundSubmitBenchmark() {
+
+        for(int limit : BENCHMARK_LIMITS) {
+            runRound(limit, false);
+        }
+        runRound(BENCHMARK_LIMITS[BENCHMARK_LIMITS.length - 1], true);
+    }
+
+    private void runRound(int limit, boolean adaptive) {
+
+        RBroker rBroker = null;
+
+        try {
+
+            RAuthentication rAuth =
+                    new RBasicAuthentication(System.getProperty("username"),
+                            System.getProperty("password"));
+            String endpoint = System.getProperty("connection.protocol") +
+                    System.getProperty("connection.endpoint");
+            boolean allowSelfSigned =
+                Boolean.valueOf(System.getProperty("allow.SelfSignedSSLCert"));
+            BackgroundBrokerConfig brokerConfig =
+                    new BackgroundBrokerConfig(endpoint, rAuth, limit);
+            brokerConfig.allowSelfSignedSSLCert = allowSelfSigned;
+            brokerConfig.adaptiveConcurrency = adaptive;
+            rBroker = RBrokerFactory.backgroundTaskBroker(brokerConfig);
+
+            List<RTask> rTasks = new ArrayList<RTask>(BENCHMARK_JOB_COUNT);
+            for(int i = 0; i < BENCHMARK_JOB_COUNT; i++) {
+                rTasks.add(RTaskFactory.backgroundTask(
+                                "BackgroundSubmitBenchmark " + i,
+                                "Background submit benchmark job.",
+                                TUTORIAL_NOOP_SCRIPT,
+                                TUTORIAL_REPO_DIRECTORY,
+                                TUTORIAL_REPO_OWNER,
+                                null, null));
+            }
+
+            long startTime = System.nanoTime();
+            List<RTaskToken> rTaskTokens =
+                    new ArrayList<RTaskToken>(BENCHMARK_JOB_COUNT);
+            for(RTask task : rTasks) {
+                rTaskTokens.add(rBroker.submit(task));
+            }
+            int failed = 0;
+            for(RTaskToken rTaskToken : rTaskTokens) {
+                if(!rTaskToken.getResult().isSuccess()) {
+                    failed++;
+                }
+            }
+            long submitTime = System.nanoTime() - startTime;
+
+            log.info((adaptive ? "Adaptive limit [ <= " : "Limit [ ") +
+                    limit + " ]: " + jobsPerSecond(submitTime) +
+                    " jobs/s, failed [ " + failed + " ], final limit [ " +
+                    rBroker.maxConcurrency() + " ]");
+
+        } catch(Exception ex) {
+            log.warn("Runtime exception=" + ex);
+        } finally {
+            if(rBroker != null) {
+                rBroker.shutdown();
+            }
+        }
+    }
+
+    private static long jobsPerSecond(long nanos) {
+        return (BENCHMARK_JOB_COUNT * 1000000000L) / Math.max(1L, nanos);
+    }
+
+}
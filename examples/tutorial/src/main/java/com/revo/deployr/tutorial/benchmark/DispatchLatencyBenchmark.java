@@ -0,0 +1,177 @@
+/*
+ * DispatchLatencyBenchmark.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.tutorial.benchmark;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.broker.*;
+import com.revo.deployr.client.broker.config.*;
+import com.revo.deployr.client.broker.engine.*;
+import com.revo.deployr.client.broker.task.*;
+import com.revo.deployr.client.broker.worker.RBrokerWorker;
+import com.revo.deployr.client.auth.*;
+import com.revo.deployr.client.auth.basic.*;
+import com.revo.deployr.client.factory.RTaskFactory;
+
+import java.util.*;
+import org.apache.log4j.Logger;
+
+/*
+ * DispatchLatencyBenchmark
+ *
+ * Measures RBroker submit-to-start latency, the time between
+ * RBroker.submit() returning and the RBrokerWorker for the
+ * task beginning execution on the taskWorkerExecutor.
+ *
+ * Tasks arrive one at a time at an otherwise idle broker,
+ * the interactive scoring pattern, so the measurement isolates
+ * broker dispatch overhead from DeployR server time.
+ *
+ * Run against successive builds of the RBroker framework to
+ * compare p50/p99 dispatch latency before and after a change.
+ */
+public class DispatchLatencyBenchmark {
+
+    private static Logger log =
+        Logger.getLogger(DispatchLatencyBenchmark.class);
+
+    private static final int BENCHMARK_TASK_COUNT = 500;
+    private static final long MAX_ARRIVAL_GAP = 100L;
+
+    /*
+     * Main method launches benchmark, DispatchLatencyBenchmark.
+     */
+    public static void main(String[] args) {
+
+        log.info("DeployR Endpoint @ " +
+            System.getProperty("connection.protocol") +
+                System.getProperty("connection.endpoint"));
+        new DispatchLatencyBenchmark();
+    }
+
+    public DispatchLatencyBenchmark() {
+
+        RBroker rBroker = null;
+
+        try {
+
+            RAuthentication rAuth =
+                new RBasicAuthentication(System.getProperty("username"),
+                                         System.getProperty("password"));
+            String endpoint = System.getProperty("connection.protocol") +
+                    System.getProperty("connection.endpoint");
+            boolean allowSelfSigned =
+                Boolean.valueOf(System.getProperty("allow.SelfSignedSSLCert"));
+
+            PooledBrokerConfig brokerConfig =
+                new PooledBrokerConfig(endpoint, rAuth, 1);
+            brokerConfig.allowSelfSignedSSLCert = allowSelfSigned;
+
+            long[] submitTimes = new long[BENCHMARK_TASK_COUNT];
+            long[] startTimes = new long[BENCHMARK_TASK_COUNT];
+
+            rBroker = new InstrumentedBroker(brokerConfig, startTimes);
+
+            Random arrivals = new Random();
+
+            for(int i = 0; i < BENCHMARK_TASK_COUNT; i++) {
+
+                RTask rTask = RTaskFactory.pooledTask("x <- 1", null);
+                rTask.setToken(new Integer(i));
+
+                submitTimes[i] = System.nanoTime();
+                RTaskToken rTaskToken = rBroker.submit(rTask);
+                rTaskToken.getResult();
+
+                /*
+                 * Leave broker idle for a random interval ahead
+                 * of the next arrival.
+                 */
+                Thread.sleep((long) (arrivals.nextDouble() * MAX_ARRIVAL_GAP));
+            }
+
+            long[] latencies = new long[BENCHMARK_TASK_COUNT];
+            for(int i = 0; i < BENCHMARK_TASK_COUNT; i++) {
+                latencies[i] = startTimes[i] - submitTimes[i];
+            }
+            Arrays.sort(latencies);
+
+            log.info("Submit-to-start latency over " +
+                        BENCHMARK_TASK_COUNT + " tasks:");
+            log.info("p50 [ " + micros(percentile(latencies, 50)) + " us ]");
+            log.info("p99 [ " + micros(percentile(latencies, 99)) + " us ]");
+            log.info("max [ " +
+                    micros(latencies[latencies.length - 1]) + " us ]");
+
+        } catch(Exception ex) {
+            log.warn("Runtime exception=" + ex);
+        } finally {
+            if(rBroker != null) {
+                rBroker.shutdown();
+                log.info("rBroker has been shutdown.");
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil((percentile / 100.0) * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000L;
+    }
+
+    /*
+     * PooledTaskBroker that records the time each
+     * RBrokerWorker begins executing its task.
+     */
+    private static class InstrumentedBroker extends PooledTaskBroker {
+
+        private final long[] startTimes;
+
+        public InstrumentedBroker(PooledBrokerConfig brokerConfig,
+                                  long[] startTimes)
+                throws RClientException,
+                RSecurityException,
+                RDataException,
+                RGridException,
+                RBrokerException {
+
+            super(brokerConfig);
+            this.startTimes = startTimes;
+        }
+
+        protected RBrokerWorker createBrokerWorker(final RTask task,
+                                                   long taskIndex,
+                                                   boolean isPriorityTask,
+                                                   Object resourceToken,
+                                                   RBrokerEngine brokerEngine) {
+
+            final RBrokerWorker worker =
+                super.createBrokerWorker(task, taskIndex, isPriorityTask,
+                                         resourceToken, brokerEngine);
+
+            return new RBrokerWorker() {
+                public RTaskResult call() throws Exception {
+                    startTimes[(Integer) task.getToken()] = System.nanoTime();
+                    return worker.call();
+                }
+
+                public void interrupt() {
+                    worker.interrupt();
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * SubmitThroughputBenchmark.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.tutorial.benchmark;
+
+import static com.revo.deployr.tutorial.util.Constants.*;
+import com.revo.deployr.client.broker.*;
+import com.revo.deployr.client.broker.config.*;
+import com.revo.deployr.client.factory.RBrokerFactory;
+import com.revo.deployr.client.factory.RTaskFactory;
+
+import java.util.*;
+import org.apache.log4j.Logger;
+
+/*
+ * SubmitThroughputBenchmark
+ *
+ * Compares RBroker enqueue throughput when a large batch of
+ * RTask is pushed using repeated calls on RBroker.submit()
+ * against a single call on RBroker.submitAll().
+ *
+ * The broker runs with a concurrency of one so almost every
+ * task remains queued, the pending queue is flushed between
+ * rounds and no task results are awaited.
+ */
+public class SubmitThroughputBenchmark {
+
+    private static Logger log =
+        Logger.getLogger(SubmitThroughputBenchmark.class);
+
+    private static final int BENCHMARK_TASK_COUNT = 50000;
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    /*
+     * Main method launches benchmark, SubmitThroughputBenchmark.
+     */
+    public static void main(String[] args) {
+
+        log.info("DeployR Endpoint @ " +
+            System.getProperty("connection.protocol") +
+                System.getProperty("connection.endpoint"));
+        new SubmitThroughputBenchmark();
+    }
+
+    public SubmitThroughputBenchmark() {
+
+        RBroker rBroker = null;
+
+        try {
+
+            String endpoint = System.getProperty("connection.protocol") +
+                    System.getProperty("connection.endpoint");
+            boolean allowSelfSigned =
+                Boolean.valueOf(System.getProperty("allow.SelfSignedSSLCert"));
+            DiscreteBrokerConfig brokerConfig =
+                    new DiscreteBrokerConfig(endpoint);
+            brokerConfig.allowSelfSignedSSLCert = allowSelfSigned;
+            rBroker = RBrokerFactory.discreteTaskBroker(brokerConfig);
+
+            RTask rTask =
+                RTaskFactory.discreteTask(TUTORIAL_NOOP_SCRIPT,
+                                          TUTORIAL_REPO_DIRECTORY,
+                                          TUTORIAL_REPO_OWNER,
+                                          null, null);
+
+            List<RTask> rTasks = new ArrayList<RTask>(BENCHMARK_TASK_COUNT);
+            for(int i = 0; i < BENCHMARK_TASK_COUNT; i++) {
+                rTasks.add(rTask);
+            }
+
+            for(int round = 1; round <= BENCHMARK_ROUNDS; round++) {
+
+                long startTime = System.nanoTime();
+                for(RTask task : rTasks) {
+                    rBroker.submit(task);
+                }
+                long submitTime = System.nanoTime() - startTime;
+                rBroker.flush();
+
+                startTime = System.nanoTime();
+                rBroker.submitAll(rTasks);
+                long submitAllTime = System.nanoTime() - startTime;
+                rBroker.flush();
+
+                log.info("Round " + round + ": submit [ " +
+                        tasksPerSecond(submitTime) + " tasks/s ] " +
+                        "submitAll [ " +
+                        tasksPerSecond(submitAllTime) + " tasks/s ]");
+            }
+
+        } catch(Exception ex) {
+            log.warn("Runtime exception=" + ex);
+        } finally {
+            if(rBroker != null) {
+                rBroker.shutdown();
+                log.info("rBroker has been shutdown.");
+            }
+        }
+    }
+
+    private static long tasksPerSecond(long nanos) {
+        return (BENCHMARK_TASK_COUNT * 1000000000L) / Math.max(1L, nanos);
+    }
+
+}
@@ -15,6 +15,10 @@ package com.revo.deployr.client.broker;
 import com.revo.deployr.client.RUser;
 import com.revo.deployr.client.broker.app.RTaskAppSimulator;
 import com.revo.deployr.client.broker.config.RBrokerConfig;
+import com.revo.deployr.client.broker.metrics.RBrokerMetrics;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * <p>
@@ -88,13 +92,23 @@ public interface RBroker {
      * cleared before new workspace objects and/or directory
      * files are loaded per the new config options.
      * </p>
-     * Only an idle {@link com.revo.deployr.client.broker.RBroker}
-     * instance can be refreshed. An
-     * {@link com.revo.deployr.client.broker.RBrokerException}
-     * will be raised if this method is called when the instance
-     * of {@link com.revo.deployr.client.broker.RBroker}
-     * is currently busy with queued or executing
-     * {@link com.revo.deployr.client.broker.RTask}.
+     * <p>
+     * R sessions are refreshed a few at a time, idle R sessions
+     * immediately and busy R sessions as their current
+     * {@link com.revo.deployr.client.broker.RTask} completes, so
+     * the {@link com.revo.deployr.client.broker.RBroker} continues
+     * to accept and execute tasks throughout. The fraction of the
+     * pool refreshed at any one time is bounded by
+     * PooledBrokerConfig.refreshMaxFraction. Progress is reported on
+     * {@link com.revo.deployr.client.broker.RBrokerPoolListener}.
+     * R sessions pinned to an affinity key are unpinned once due
+     * for refresh, the next task on the key pinning a new R session.
+     * </p>
+     * This call blocks until every R session has been refreshed.
+     * An {@link com.revo.deployr.client.broker.RBrokerException}
+     * is raised if a refresh is already in progress or if any
+     * R session fails to refresh. An R session that fails to
+     * refresh is closed and replaced, never returned to service.
      */
     public void refresh(RBrokerConfig config)
             throws RBrokerException;
@@ -113,13 +127,107 @@ public interface RBroker {
      * for execution under the control of
      * {@link com.revo.deployr.client.broker.RBroker}.
      * </p>
-     * Priority tasks are automatically moved to the front of the
-     * queue, ahead of all standard tasks that are already pending
-     * execution by the broker.
+     * Priority tasks are submitted at the highest priority level
+     * configured on the broker, ahead of all standard tasks that are
+     * already pending execution by the broker.
      */
     public RTaskToken submit(RTask task, boolean priority)
             throws RBrokerException;
 
+    /**
+     * <p>
+     * Submit an {@link com.revo.deployr.client.broker.RTask}
+     * at a given priority level for execution under the control of
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     * </p>
+     * <p>
+     * Priority levels range from 0, the lowest, to
+     * RBrokerConfig.priorityLevels - 1, the highest. Pending tasks
+     * are dispatched in priority order, FIFO within a level.
+     * </p>
+     * Unless RBrokerConfig.priorityAgingInterval is disabled, pending
+     * tasks are aged one level for each interval spent waiting, so
+     * lower priority tasks continue to make progress under sustained
+     * higher priority load.
+     */
+    public RTaskToken submit(RTask task, int priority)
+            throws RBrokerException;
+
+    /**
+     * <p>
+     * Submit a batch of {@link com.revo.deployr.client.broker.RTask}
+     * for execution under the control of
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     * </p>
+     * <p>
+     * The batch is enqueued in a single operation, amortizing the
+     * per-task submission overhead. Broker capacity is checked for
+     * the batch as a whole, either every task in the batch is
+     * accepted or an
+     * {@link com.revo.deployr.client.broker.RBrokerException}
+     * is raised and none are.
+     * </p>
+     * The returned {@link com.revo.deployr.client.broker.RTaskBatch}
+     * reports aggregate progress on the batch and provides access
+     * to the {@link com.revo.deployr.client.broker.RTaskToken} for
+     * each task.
+     */
+    public RTaskBatch submitAll(Collection<? extends RTask> tasks)
+            throws RBrokerException;
+
+    /**
+     * Submit a batch of priority
+     * {@link com.revo.deployr.client.broker.RTask}
+     * for execution under the control of
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public RTaskBatch submitAll(Collection<? extends RTask> tasks,
+                                boolean priority)
+            throws RBrokerException;
+
+    /**
+     * Submit a batch of {@link com.revo.deployr.client.broker.RTask}
+     * at a given priority level for execution under the control of
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public RTaskBatch submitAll(Collection<? extends RTask> tasks,
+                                int priority)
+            throws RBrokerException;
+
+    /**
+     * <p>
+     * Submit an {@link com.revo.deployr.client.broker.RTask}
+     * for execution under the control of
+     * {@link com.revo.deployr.client.broker.RBroker}, returning
+     * an {@link com.revo.deployr.client.broker.RTaskFuture}.
+     * </p>
+     * The {@link com.revo.deployr.client.broker.RTaskFuture} completes
+     * directly on the worker thread that executed the task and can
+     * be composed with further processing, allowing many
+     * {@link com.revo.deployr.client.broker.RTask} to be fanned out
+     * and joined without blocking a thread per task.
+     */
+    public RTaskFuture<RTaskResult> submitAsync(RTask task)
+            throws RBrokerException;
+
+    /**
+     * Submit a priority {@link com.revo.deployr.client.broker.RTask}
+     * for execution under the control of
+     * {@link com.revo.deployr.client.broker.RBroker}, returning
+     * an {@link com.revo.deployr.client.broker.RTaskFuture}.
+     */
+    public RTaskFuture<RTaskResult> submitAsync(RTask task, boolean priority)
+            throws RBrokerException;
+
+    /**
+     * Submit an {@link com.revo.deployr.client.broker.RTask}
+     * at a given priority level for execution under the control of
+     * {@link com.revo.deployr.client.broker.RBroker}, returning
+     * an {@link com.revo.deployr.client.broker.RTaskFuture}.
+     */
+    public RTaskFuture<RTaskResult> submitAsync(RTask task, int priority)
+            throws RBrokerException;
+
     /**
      * Register an asynchronous listener to receive callbacks
      * on {@link com.revo.deployr.client.broker.RTask} completion
@@ -187,6 +295,36 @@ public interface RBroker {
      */
     public RBrokerStatus status();
 
+    /**
+     * <p>
+     * Returns {@link com.revo.deployr.client.broker.RTask} latency
+     * percentiles for each
+     * {@link com.revo.deployr.client.broker.RTaskType} and priority
+     * level, covering only those tasks completed since the previous
+     * call on this method.
+     * </p>
+     * Latency percentiles since startup, or the last
+     * {@link com.revo.deployr.client.broker.RBroker#resetLatencyStats},
+     * are reported on
+     * {@link com.revo.deployr.client.broker.RBrokerRuntimeStats#latencyStats}.
+     */
+    public List<RBrokerLatencyStats> intervalLatencyStats();
+
+    /**
+     * Discards all {@link com.revo.deployr.client.broker.RTask}
+     * latencies recorded by
+     * {@link com.revo.deployr.client.broker.RBroker} so far.
+     */
+    public void resetLatencyStats();
+
+    /**
+     * Returns live counters and gauges for
+     * {@link com.revo.deployr.client.broker.RBroker}, read
+     * on demand without coupling to
+     * {@link com.revo.deployr.client.broker.RBrokerListener}.
+     */
+    public RBrokerMetrics metrics();
+
     /**
      * Flushes all pending
      * {@link com.revo.deployr.client.broker.RTask}
@@ -194,10 +332,78 @@ public interface RBroker {
      * {@link com.revo.deployr.client.broker.RBroker}.
      * Flushing {@link com.revo.deployr.client.broker.RTask}
      * queues ensures that queued tasks will not be executed by
-     * {@link com.revo.deployr.client.broker.RBroker}.
+     * {@link com.revo.deployr.client.broker.RBroker}. Each flushed
+     * task completes in failure with an
+     * {@link com.revo.deployr.client.broker.RBrokerException}, reported
+     * on its {@link com.revo.deployr.client.broker.RTaskToken} and to
+     * {@link com.revo.deployr.client.broker.RTaskListener#onTaskError}.
      */
     public RBrokerStatus flush();
 
+    /**
+     * Flushes all pending
+     * {@link com.revo.deployr.client.broker.RTask}
+     * from the priority level queue maintained by
+     * {@link com.revo.deployr.client.broker.RBroker},
+     * leaving other priority levels untouched.
+     */
+    public RBrokerStatus flush(int priority) throws RBrokerException;
+
+    /**
+     * Pauses dispatch of pending
+     * {@link com.revo.deployr.client.broker.RTask} on
+     * {@link com.revo.deployr.client.broker.RBroker}. Submissions
+     * continue to be queued and executing tasks run to completion.
+     */
+    public void pause();
+
+    /**
+     * Resumes dispatch of pending
+     * {@link com.revo.deployr.client.broker.RTask} and accepts
+     * submissions again following a call on
+     * {@link com.revo.deployr.client.broker.RBroker#pause} or
+     * {@link com.revo.deployr.client.broker.RBroker#drain}.
+     */
+    public void resume();
+
+    /**
+     * Indicates if dispatch of pending
+     * {@link com.revo.deployr.client.broker.RTask} is paused.
+     */
+    public boolean isPaused();
+
+    /**
+     * <p>
+     * Refuses further {@link com.revo.deployr.client.broker.RTask}
+     * submissions then waits up to timeout milliseconds for all
+     * pending and executing tasks to complete. Returns true if
+     * {@link com.revo.deployr.client.broker.RBroker} is idle.
+     * </p>
+     * Once drained, submissions remain refused until
+     * {@link com.revo.deployr.client.broker.RBroker#resume}. On
+     * timeout submissions are accepted again.
+     */
+    public boolean drain(long timeout) throws InterruptedException;
+
+    /**
+     * Drains {@link com.revo.deployr.client.broker.RBroker} as
+     * {@link com.revo.deployr.client.broker.RBroker#drain(long)},
+     * where stayClosed is enabled submissions remain refused on
+     * timeout until
+     * {@link com.revo.deployr.client.broker.RBroker#resume}.
+     */
+    public boolean drain(long timeout, boolean stayClosed)
+            throws InterruptedException;
+
+    /**
+     * Caps task execution concurrency on
+     * {@link com.revo.deployr.client.broker.RBroker} at limit,
+     * within the resource tokens held by the broker. A limit of 0
+     * removes the cap. Returns the concurrency now enforced, see
+     * {@link com.revo.deployr.client.broker.RBroker#maxConcurrency}.
+     */
+    public int resizeConcurrency(int limit);
+
     /**
      * Indicates if current {@link com.revo.deployr.client.broker.RBroker}
      * instance is still connected to the DeployR server. A connection may
@@ -0,0 +1,69 @@
+/*
+ * RBrokerLatencyStats.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+/**
+ * Latency statistics for {@link com.revo.deployr.client.broker.RTask}
+ * of a single {@link com.revo.deployr.client.broker.RTaskType}
+ * and priority level on a live
+ * {@link com.revo.deployr.client.broker.RBroker},
+ * made available on
+ * {@link com.revo.deployr.client.broker.RBrokerRuntimeStats}.
+ */
+public class RBrokerLatencyStats {
+
+    /*
+     * Type of {@link com.revo.deployr.client.broker.RTask}.
+     */
+    public RTaskType taskType;
+
+    /*
+     * Priority level {@link com.revo.deployr.client.broker.RTask}
+     * were submitted at.
+     */
+    public int priority;
+
+    /*
+     * Time {@link com.revo.deployr.client.broker.RTask} spent
+     * pending execution on
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public RLatencyStats timeOnPending = new RLatencyStats();
+
+    /*
+     * Time taken on call to DeployR to process
+     * {@link com.revo.deployr.client.broker.RTask}.
+     */
+    public RLatencyStats timeOnCall = new RLatencyStats();
+
+    /*
+     * Time taken on DeployR to process
+     * {@link com.revo.deployr.client.broker.RTask}.
+     */
+    public RLatencyStats timeOnServer = new RLatencyStats();
+
+    /*
+     * Time taken on DeployR to execute the R code on
+     * {@link com.revo.deployr.client.broker.RTask}.
+     */
+    public RLatencyStats timeOnCode = new RLatencyStats();
+
+    public String toString() {
+        return "RBrokerLatencyStats: [ " + taskType + " , " + priority +
+                " ]\ntimeOnPending: " + timeOnPending +
+                "\ntimeOnCall: " + timeOnCall +
+                "\ntimeOnServer: " + timeOnServer +
+                "\ntimeOnCode: " + timeOnCode;
+    }
+
+}
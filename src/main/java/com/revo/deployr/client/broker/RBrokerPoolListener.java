@@ -0,0 +1,42 @@
+/*
+ * RBrokerPoolListener.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+/**
+ * Asynchronous callback interface for
+ * {@link com.revo.deployr.client.broker.RBroker}
+ * runtime statistics, error and R session pool event listeners.
+ * <p>
+ * Pool events are raised only by the PooledTaskBroker runtime.
+ * Register an RBrokerPoolListener in place of an
+ * {@link com.revo.deployr.client.broker.RBrokerListener}
+ * to receive them.
+ */
+public interface RBrokerPoolListener extends RBrokerListener {
+
+    /**
+     * Asynchronous callback notification as each R session
+     * in the pool completes a
+     * {@link com.revo.deployr.client.broker.RBroker#refresh}.
+     */
+    public void onPoolRefreshProgress(int refreshedProjects,
+                                      int totalProjects);
+
+    /**
+     * Asynchronous callback notification as each batch of R sessions
+     * joins the pool on a batched startup, see
+     * PooledBrokerConfig.poolCreationBatchSize.
+     */
+    public void onPoolStartupProgress(int createdProjects,
+                                      int totalProjects);
+}
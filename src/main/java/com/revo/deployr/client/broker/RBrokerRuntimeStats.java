@@ -12,6 +12,11 @@
  */
 package com.revo.deployr.client.broker;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Summary {@link com.revo.deployr.client.broker.RTask}
  * statistics for live
@@ -82,6 +87,67 @@ public class RBrokerRuntimeStats {
      */
     public long totalTimeTasksOnCall = 0L;
 
+    /*
+     * Total time, in nanoseconds, {@link totalTasksRun}
+     * {@link com.revo.deployr.client.broker.RTask} spent on
+     * pending queues, from submission to dequeue.
+     */
+    public long totalTimeTasksQueuedNanos = 0L;
+
+    /*
+     * Total time, in nanoseconds, {@link totalTasksRun}
+     * {@link com.revo.deployr.client.broker.RTask} spent awaiting
+     * a resource token once dequeued.
+     */
+    public long totalTimeTasksAwaitingTokenNanos = 0L;
+
+    /*
+     * Total time, in nanoseconds, {@link totalTasksRun}
+     * {@link com.revo.deployr.client.broker.RTask} spent awaiting
+     * a worker thread once holding a resource token.
+     */
+    public long totalTimeTasksAwaitingWorkerNanos = 0L;
+
+    /*
+     * Total time, in nanoseconds, {@link totalTasksRun}
+     * {@link com.revo.deployr.client.broker.RTask} spent executing
+     * on worker threads, including {@link totalTimeTasksOnCall}.
+     */
+    public long totalTimeTasksExecutingNanos = 0L;
+
+    /*
+     * Total time, in nanoseconds, {@link totalTasksRun}
+     * {@link com.revo.deployr.client.broker.RTask} spent awaiting
+     * delivery to {@link com.revo.deployr.client.broker.RTaskListener}
+     * once executed.
+     * <p>
+     * Together with {@link totalTimeTasksQueuedNanos},
+     * {@link totalTimeTasksAwaitingTokenNanos} and
+     * {@link totalTimeTasksAwaitingWorkerNanos} gives the time
+     * spent within {@link com.revo.deployr.client.broker.RBroker}
+     * rather than on call to DeployR.
+     */
+    public long totalTimeTasksAwaitingDeliveryNanos = 0L;
+
+    /*
+     * Per-tenant {@link com.revo.deployr.client.broker.RTask}
+     * statistics, keyed on tenant key. Covers tenants with tasks
+     * pending or executing, or run since the tenant was last idle.
+     */
+    public Map<String, RBrokerTenantStats> tenantStats =
+            new HashMap<String, RBrokerTenantStats>();
+
+    /*
+     * {@link com.revo.deployr.client.broker.RTask} latency
+     * percentiles for each {@link com.revo.deployr.client.broker.RTaskType}
+     * and priority level seen on
+     * {@link com.revo.deployr.client.broker.RBroker}, since startup
+     * or the last
+     * {@link com.revo.deployr.client.broker.RBroker#resetLatencyStats}.
+     */
+    public List<RBrokerLatencyStats> latencyStats =
+            new ArrayList<RBrokerLatencyStats>();
+
     public String toString() {
         return "\nRBrokerRuntimeStats:\n" +
                 "totalTasksRun: " + totalTasksRun +
@@ -90,6 +156,17 @@ public class RBrokerRuntimeStats {
                 "\ntotalTimeTasksOnCode: " + totalTimeTasksOnCode +
                 "\ntotalTimeTasksOnServer: " + totalTimeTasksOnServer +
                 "\ntotalTimeTasksOnCall: " + totalTimeTasksOnCall +
+                "\ntotalTimeTasksQueuedNanos: " + totalTimeTasksQueuedNanos +
+                "\ntotalTimeTasksAwaitingTokenNanos: " +
+                totalTimeTasksAwaitingTokenNanos +
+                "\ntotalTimeTasksAwaitingWorkerNanos: " +
+                totalTimeTasksAwaitingWorkerNanos +
+                "\ntotalTimeTasksExecutingNanos: " +
+                totalTimeTasksExecutingNanos +
+                "\ntotalTimeTasksAwaitingDeliveryNanos: " +
+                totalTimeTasksAwaitingDeliveryNanos +
+                "\ntenantStats: " + tenantStats.values() +
+                "\nlatencyStats: " + latencyStats +
                 "\n";
     }
 
@@ -12,6 +12,10 @@
  */
 package com.revo.deployr.client.broker;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * {@link com.revo.deployr.client.broker.RBroker}
  * status indicating number of currently queued and executing
@@ -22,8 +26,19 @@ public class RBrokerStatus {
     public RBrokerStatus(int pendingTasks,
                          int executingTasks) {
 
+        this(pendingTasks, executingTasks, new int[0],
+                Collections.<String, Integer>emptyMap());
+    }
+
+    public RBrokerStatus(int pendingTasks,
+                         int executingTasks,
+                         int[] pendingTasksByPriority,
+                         Map<String, Integer> pendingTasksByTenant) {
+
         this.pendingTasks = pendingTasks;
         this.executingTasks = executingTasks;
+        this.pendingTasksByPriority = pendingTasksByPriority;
+        this.pendingTasksByTenant = pendingTasksByTenant;
         this.isIdle = (pendingTasks + executingTasks) == 0;
     }
 
@@ -42,6 +57,20 @@ public class RBrokerStatus {
      */
     public final int executingTasks;
 
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * currently pending execution at each priority level, indexed
+     * by priority level. Level 0 is the lowest priority.
+     */
+    public final int[] pendingTasksByPriority;
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * currently pending execution for each tenant, keyed on
+     * tenant key.
+     */
+    public final Map<String, Integer> pendingTasksByTenant;
+
     /**
      * Flag indicating if
      * {@link com.revo.deployr.client.broker.RBroker} is idle.
@@ -54,7 +83,9 @@ public class RBrokerStatus {
 
     public String toString() {
         return "RBrokerStatus: [ " + pendingTasks +
-                " ] [ " + executingTasks +
+                " ] " + Arrays.toString(pendingTasksByPriority) +
+                " " + pendingTasksByTenant +
+                " [ " + executingTasks +
                 " ] [ " + isIdle + " ]\n";
     }
 
@@ -0,0 +1,77 @@
+/*
+ * RBrokerTenantStats.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+/**
+ * Summary {@link com.revo.deployr.client.broker.RTask}
+ * statistics for a single tenant on a live
+ * {@link com.revo.deployr.client.broker.RBroker}.
+ * made available on
+ * {@link com.revo.deployr.client.broker.RBrokerRuntimeStats}.
+ */
+public class RBrokerTenantStats {
+
+    /*
+     * Tenant key.
+     */
+    public String tenant;
+
+    /*
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * for tenant currently executing on
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public int executingTasks = 0;
+
+    /*
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * for tenant run by
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public long totalTasksRun = 0L;
+
+    /*
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * for tenant run successfully by
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public long totalTasksRunToSuccess = 0L;
+
+    /*
+     * Total time {@link totalTasksRun}
+     * {@link com.revo.deployr.client.broker.RTask} for tenant
+     * spent pending execution on
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     * <p>
+     * Divided by {@link totalTasksRun} gives the average
+     * queueing latency seen by the tenant.
+     */
+    public long totalTimeTasksPending = 0L;
+
+    /*
+     * Total time taken on call to DeployR to process
+     * {@link totalTasksRunToSuccess} successful
+     * {@link com.revo.deployr.client.broker.RTask} for tenant.
+     */
+    public long totalTimeTasksOnCall = 0L;
+
+    public String toString() {
+        return "RBrokerTenantStats: [ " + tenant +
+                " ] executingTasks: " + executingTasks +
+                " totalTasksRun: " + totalTasksRun +
+                " totalTasksRunToSuccess: " + totalTasksRunToSuccess +
+                " totalTimeTasksPending: " + totalTimeTasksPending +
+                " totalTimeTasksOnCall: " + totalTimeTasksOnCall;
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * RJobListener.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+import com.revo.deployr.client.RJob;
+
+/**
+ * Asynchronous callback interface for
+ * {@link com.revo.deployr.client.broker.RTask}
+ * completion, error and background job completion event listeners.
+ * <p>
+ * On a BackgroundTaskBroker
+ * {@link com.revo.deployr.client.broker.RTaskListener#onTaskCompleted}
+ * signals the job was submitted to the DeployR server. Register an
+ * RJobListener in place of an
+ * {@link com.revo.deployr.client.broker.RTaskListener}, with
+ * BackgroundBrokerConfig.trackJobCompletion enabled, to also be
+ * notified when each job reaches a terminal state on the server.
+ */
+public interface RJobListener extends RTaskListener {
+
+    /**
+     * Asynchronous callback notification when a background job
+     * completes, fails or is cancelled on the DeployR server.
+     * The {@link com.revo.deployr.client.broker.RTaskResult}
+     * carries the job timeOnCode and timeOnServer. Job results
+     * are held on the project identified by the RJob details.
+     * The RJob is null where the job is reported failed having
+     * been deleted from the server, or not reaching a terminal
+     * state within BackgroundBrokerConfig.jobTrackingTimeout.
+     */
+    public void onJobCompleted(RTask rTask,
+                               RTaskResult rTaskResult,
+                               RJob rJob);
+}
@@ -0,0 +1,69 @@
+/*
+ * RLatencyStats.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+/**
+ * Latency distribution summary, in milliseconds, for
+ * {@link com.revo.deployr.client.broker.RTask} on a live
+ * {@link com.revo.deployr.client.broker.RBroker},
+ * made available on
+ * {@link com.revo.deployr.client.broker.RBrokerLatencyStats}.
+ * <p>
+ * Percentiles are drawn from a histogram with buckets of
+ * under 2% relative width, each percentile reports the highest
+ * value in the bucket holding that percentile.
+ */
+public class RLatencyStats {
+
+    /*
+     * Number of latencies recorded.
+     */
+    public long count = 0L;
+
+    /*
+     * Smallest latency recorded.
+     */
+    public long min = 0L;
+
+    /*
+     * Largest latency recorded.
+     */
+    public long max = 0L;
+
+    /*
+     * Mean latency recorded.
+     */
+    public double mean = 0.0;
+
+    /*
+     * Latency percentiles.
+     */
+    public long p50 = 0L;
+    public long p90 = 0L;
+    public long p95 = 0L;
+    public long p99 = 0L;
+    public long p999 = 0L;
+
+    public String toString() {
+        return "RLatencyStats: count: " + count +
+                " min: " + min +
+                " mean: " + mean +
+                " p50: " + p50 +
+                " p90: " + p90 +
+                " p95: " + p95 +
+                " p99: " + p99 +
+                " p999: " + p999 +
+                " max: " + max;
+    }
+
+}
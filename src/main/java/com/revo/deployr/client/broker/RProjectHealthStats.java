@@ -0,0 +1,81 @@
+/*
+ * RProjectHealthStats.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+/**
+ * Rolling health statistics for a single R session in the pool
+ * of a PooledTaskBroker
+ * {@link com.revo.deployr.client.broker.RBroker}.
+ */
+public class RProjectHealthStats {
+
+    /*
+     * DeployR project identifier for the R session.
+     */
+    public String project;
+
+    /*
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * run on the R session.
+     */
+    public long totalTasksRun = 0L;
+
+    /*
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * run on the R session that resulted in failure.
+     */
+    public long totalTasksRunToFailure = 0L;
+
+    /*
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * failures on the R session since the last success.
+     */
+    public int consecutiveFailures = 0;
+
+    /*
+     * Exponentially weighted moving average of time taken on call
+     * to DeployR for {@link com.revo.deployr.client.broker.RTask}
+     * on the R session, in milliseconds.
+     */
+    public double latencyEWMA = 0.0;
+
+    /*
+     * Exponentially weighted moving average of the
+     * {@link com.revo.deployr.client.broker.RTask}
+     * failure rate on the R session, between 0 and 1.
+     */
+    public double errorRateEWMA = 0.0;
+
+    /*
+     * True while the R session is quarantined,
+     * out of service pending a health check.
+     */
+    public boolean quarantined = false;
+
+    /*
+     * Number of times the R session has been quarantined.
+     */
+    public int totalQuarantines = 0;
+
+    public String toString() {
+        return "RProjectHealthStats: [ " + project +
+                " ] totalTasksRun: " + totalTasksRun +
+                " totalTasksRunToFailure: " + totalTasksRunToFailure +
+                " consecutiveFailures: " + consecutiveFailures +
+                " latencyEWMA: " + latencyEWMA +
+                " errorRateEWMA: " + errorRateEWMA +
+                " quarantined: " + quarantined +
+                " totalQuarantines: " + totalQuarantines;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * RTaskBatch.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a handle to a batch of
+ * {@link com.revo.deployr.client.broker.RTask} submitted
+ * together on
+ * {@link com.revo.deployr.client.broker.RBroker#submitAll}.
+ */
+public interface RTaskBatch {
+
+    /**
+     * Returns the {@link com.revo.deployr.client.broker.RTaskToken}
+     * for each {@link com.revo.deployr.client.broker.RTask} in the
+     * batch, in submission order.
+     */
+    public List<RTaskToken> getTokens();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * in the batch.
+     */
+    public int size();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * in the batch that have completed, successfully or otherwise.
+     */
+    public int completedTasks();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * in the batch that have completed in failure.
+     */
+    public int failedTasks();
+
+    /**
+     * Indicates if every {@link com.revo.deployr.client.broker.RTask}
+     * in the batch has completed.
+     */
+    public boolean isDone();
+
+    /**
+     * Blocks until every {@link com.revo.deployr.client.broker.RTask}
+     * in the batch has completed.
+     */
+    public void await() throws InterruptedException;
+
+    /**
+     * Blocks until every {@link com.revo.deployr.client.broker.RTask}
+     * in the batch has completed or the timeout elapses. Returns
+     * false if the timeout elapsed first.
+     */
+    public boolean await(long timeout, TimeUnit unit)
+            throws InterruptedException;
+
+}
@@ -0,0 +1,26 @@
+/*
+ * RTaskCallback.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+/**
+ * Callback interface for
+ * {@link com.revo.deployr.client.broker.RTaskFuture}
+ * completion and failure events.
+ */
+public interface RTaskCallback<V> {
+
+    public void onSuccess(V value);
+
+    public void onFailure(Throwable throwable);
+
+}
@@ -0,0 +1,62 @@
+/*
+ * RTaskFuture.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Represents the pending result of an
+ * {@link com.revo.deployr.client.broker.RTask} submitted using
+ * {@link com.revo.deployr.client.broker.RBroker#submitAsync}.
+ * </p>
+ * <p>
+ * Unlike a plain java.util.concurrent.Future, an RTaskFuture can be
+ * composed with further processing that runs as soon as the
+ * {@link com.revo.deployr.client.broker.RTask} completes, without
+ * blocking a thread while waiting on the result.
+ * </p>
+ * Functions and callbacks registered on an RTaskFuture run on the
+ * thread that completes the future, typically the
+ * {@link com.revo.deployr.client.broker.RBroker} worker thread that
+ * executed the task, so they should be kept short and non-blocking.
+ * If the future has already completed they run immediately on the
+ * calling thread.
+ */
+public interface RTaskFuture<V> extends Future<V> {
+
+    /**
+     * Returns a new RTaskFuture that completes with the value
+     * returned by function when applied to the result of this
+     * RTaskFuture. If this RTaskFuture or the function fails, the
+     * new RTaskFuture fails with the same cause.
+     */
+    public <U> RTaskFuture<U> thenApply(
+            RTaskFunction<? super V, ? extends U> function);
+
+    /**
+     * Returns a new RTaskFuture that completes when the RTaskFuture
+     * returned by function, when applied to the result of this
+     * RTaskFuture, completes. Use to chain dependent
+     * {@link com.revo.deployr.client.broker.RTask} submissions.
+     */
+    public <U> RTaskFuture<U> thenCompose(
+            RTaskFunction<? super V, RTaskFuture<U>> function);
+
+    /**
+     * Register a callback to be notified when this
+     * RTaskFuture completes or fails.
+     */
+    public RTaskFuture<V> addCallback(RTaskCallback<? super V> callback);
+
+}
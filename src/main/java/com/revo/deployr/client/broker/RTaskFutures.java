@@ -0,0 +1,82 @@
+/*
+ * RTaskFutures.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+import com.revo.deployr.client.broker.impl.RTaskFutureImpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility methods for combining
+ * {@link com.revo.deployr.client.broker.RTaskFuture}.
+ */
+public final class RTaskFutures {
+
+    private RTaskFutures() {
+    }
+
+    /**
+     * Returns a new {@link com.revo.deployr.client.broker.RTaskFuture}
+     * that completes when all of the given futures complete. The
+     * combined future holds the result of each future, in the
+     * iteration order of futures. If any future fails, the combined
+     * future fails with the same cause.
+     */
+    public static <V> RTaskFuture<List<V>> allOf(
+            Collection<? extends RTaskFuture<? extends V>> futures) {
+
+        final RTaskFutureImpl<List<V>> combined =
+                new RTaskFutureImpl<List<V>>();
+        final int size = futures.size();
+
+        if (size == 0) {
+            combined.complete(new ArrayList<V>());
+            return combined;
+        }
+
+        final List<V> results = new ArrayList<V>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(null);
+        }
+        final AtomicInteger remaining = new AtomicInteger(size);
+
+        int index = 0;
+        for (RTaskFuture<? extends V> future : futures) {
+
+            final int position = index++;
+            future.addCallback(new RTaskCallback<V>() {
+
+                public void onSuccess(V value) {
+                    synchronized (results) {
+                        results.set(position, value);
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        synchronized (results) {
+                            combined.complete(results);
+                        }
+                    }
+                }
+
+                public void onFailure(Throwable throwable) {
+                    combined.fail(throwable);
+                }
+            });
+        }
+
+        return combined;
+    }
+
+}
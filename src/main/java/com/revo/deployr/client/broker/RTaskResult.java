@@ -91,4 +91,44 @@ public interface RTaskResult {
      */
     public long getTimeOnCall();
 
+    /**
+     * <p>
+     * Task System.nanoTime() on submission to
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     * </p>
+     * Task timestamps are only meaningful relative to one another,
+     * a timestamp is zero when the task did not reach that stage.
+     */
+    public long getSubmitTime();
+
+    /**
+     * Task System.nanoTime() on removal from the
+     * {@link com.revo.deployr.client.broker.RBroker} pending queue.
+     */
+    public long getDequeueTime();
+
+    /**
+     * Task System.nanoTime() on acquiring a resource token,
+     * a slot or R session, for execution.
+     */
+    public long getTokenAcquiredTime();
+
+    /**
+     * Task System.nanoTime() on start of execution
+     * on a worker thread.
+     */
+    public long getExecutionStartTime();
+
+    /**
+     * Task System.nanoTime() on end of execution
+     * on a worker thread.
+     */
+    public long getExecutionEndTime();
+
+    /**
+     * Task System.nanoTime() on delivery to the
+     * {@link com.revo.deployr.client.broker.RTaskListener}.
+     */
+    public long getListenerDeliveredTime();
+
 }
@@ -0,0 +1,81 @@
+/*
+ * RTaskSweep.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a handle to a parameter sweep, a single
+ * {@link com.revo.deployr.client.broker.RTask} template submitted
+ * once for each set of rinputs drawn from a stream, on
+ * {@link com.revo.deployr.client.broker.engine.BackgroundTaskBroker#submitSweep}.
+ * <p>
+ * The {@link com.revo.deployr.client.broker.RTaskResult} for each
+ * sweep {@link com.revo.deployr.client.broker.RTask} is reported on
+ * the {@link com.revo.deployr.client.broker.RTaskListener}
+ * registered on the broker.
+ */
+public interface RTaskSweep {
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * submitted by the sweep so far, excluding retries.
+     */
+    public long submittedTasks();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * in the sweep that have completed, successfully or otherwise.
+     */
+    public long completedTasks();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * in the sweep that have completed in failure.
+     */
+    public long failedTasks();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * in the sweep retried after being throttled by the
+     * DeployR server.
+     */
+    public long retriedTasks();
+
+    /**
+     * Indicates if the rinputs stream is exhausted, or the sweep
+     * cancelled, and every submitted
+     * {@link com.revo.deployr.client.broker.RTask} has completed.
+     */
+    public boolean isDone();
+
+    /**
+     * Stops the sweep drawing further rinputs from the stream and
+     * cancels any sweep {@link com.revo.deployr.client.broker.RTask}
+     * yet to complete.
+     */
+    public void cancel();
+
+    /**
+     * Blocks until the sweep is done.
+     */
+    public void await() throws InterruptedException;
+
+    /**
+     * Blocks until the sweep is done or the timeout elapses.
+     * Returns false if the timeout elapsed first.
+     */
+    public boolean await(long timeout, TimeUnit unit)
+            throws InterruptedException;
+
+}
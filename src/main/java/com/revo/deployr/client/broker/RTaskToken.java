@@ -17,6 +17,8 @@ import com.revo.deployr.client.broker.impl.RTaskTokenListener;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Represents a handle to an {@link com.revo.deployr.client.broker.RTask}
@@ -31,6 +33,19 @@ public interface RTaskToken extends RTaskTokenListener {
             CancellationException,
             ExecutionException;
 
+    /**
+     * Waits if necessary for at most the given time for the
+     * {@link com.revo.deployr.client.broker.RTask} to complete,
+     * and then retrieves its
+     * {@link com.revo.deployr.client.broker.RTaskResult}.
+     * A TimeoutException is raised if the wait timed out.
+     */
+    public RTaskResult getResult(long timeout, TimeUnit unit)
+            throws InterruptedException,
+            CancellationException,
+            ExecutionException,
+            TimeoutException;
+
     public Future getFuture();
 
     public boolean isDone();
@@ -20,10 +20,141 @@ import com.revo.deployr.client.auth.RAuthentication;
  */
 public class BackgroundBrokerConfig extends RBrokerConfig {
 
+    /**
+     * Default maximum number of concurrent background job
+     * submissions to the DeployR server.
+     */
+    public static final int DEFAULT_SUBMISSION_LIMIT = 10;
+
+    /**
+     * <p>
+     * Enable this property to adapt the number of concurrent
+     * background job submissions to the observed DeployR server
+     * response, within the bounds of minConcurrentTaskLimit and
+     * maxConcurrentTaskLimit.
+     * </p>
+     * The adaptive limit starts at minConcurrentTaskLimit and grows
+     * while submission time on call stays within
+     * adaptiveLatencyTolerance of the best time on call recently
+     * observed. The limit is cut by adaptiveBackoffRatio when time
+     * on call rises beyond that tolerance, or when submissions fail
+     * on the server.
+     */
+    public boolean adaptiveConcurrency = false;
+
+    /**
+     * Specifies the lower bound on the adaptive concurrency limit.
+     */
+    public int minConcurrentTaskLimit = 1;
+
+    /**
+     * Specifies the ratio of observed to best recent time on call
+     * beyond which the adaptive concurrency limit is cut.
+     */
+    public double adaptiveLatencyTolerance = 2.0;
+
+    /**
+     * Specifies the ratio applied to the adaptive concurrency limit
+     * when it is cut.
+     */
+    public double adaptiveBackoffRatio = 0.9;
+
+    /**
+     * <p>
+     * Enable this property to track each background job submitted
+     * by the broker through to a terminal state on the DeployR
+     * server, reported on
+     * {@link com.revo.deployr.client.broker.RJobListener}. Jobs are
+     * tracked only while an RJobListener is registered.
+     * </p>
+     * Job status is polled in batches, a single job list call
+     * covering every tracked job, at an interval that backs off
+     * from jobPollInterval to maxJobPollInterval while no tracked
+     * job completes.
+     */
+    public boolean trackJobCompletion = false;
+
+    /**
+     * Specifies the minimum interval in milliseconds
+     * between job status polls.
+     */
+    public long jobPollInterval = 1000L;
+
+    /**
+     * Specifies the maximum interval in milliseconds
+     * between job status polls.
+     */
+    public long maxJobPollInterval = 30000L;
+
+    /**
+     * Specifies the time in milliseconds a submitted job is tracked
+     * before it is reported failed on
+     * {@link com.revo.deployr.client.broker.RJobListener} and no
+     * longer polled, bounding the jobs tracked where the DeployR
+     * server never reports a terminal state. 0 or less tracks
+     * jobs indefinitely.
+     */
+    public long jobTrackingTimeout = 24L * 60L * 60L * 1000L;
+
+    /**
+     * Specifies the rate, in jobs per second, at which a parameter
+     * sweep submits background jobs. Submissions are paced by a
+     * token bucket holding up to sweepBurstSize jobs. A rate of
+     * zero leaves sweep submissions unthrottled.
+     */
+    public double sweepSubmitRate = 0.0;
+
+    /**
+     * Specifies the number of jobs a parameter sweep may submit
+     * back-to-back before sweepSubmitRate pacing applies.
+     */
+    public int sweepBurstSize = 10;
+
+    /**
+     * Specifies the maximum number of jobs of a parameter sweep
+     * submitted on the broker and yet to complete. Bounds the
+     * memory used by a sweep, whatever its size. Defaults to twice
+     * maxConcurrentTaskLimit when zero.
+     */
+    public int sweepWindowSize = 0;
+
+    /**
+     * Specifies the initial delay in milliseconds before a sweep
+     * job throttled by the DeployR server is retried. The delay
+     * doubles on each consecutive throttled job, up to
+     * maxSweepRetryDelay.
+     */
+    public long sweepRetryDelay = 1000L;
+
+    /**
+     * Specifies the maximum delay in milliseconds before a sweep
+     * job throttled by the DeployR server is retried.
+     */
+    public long maxSweepRetryDelay = 30000L;
+
+    /**
+     * Specifies the maximum number of times a sweep job throttled
+     * by the DeployR server is retried before it is reported failed.
+     */
+    public int sweepMaxRetries = 5;
+
     public BackgroundBrokerConfig(String deployrEndpoint,
                                   RAuthentication userCredentials) {
 
-        super(deployrEndpoint, userCredentials, MAX_CONCURRENCY);
+        super(deployrEndpoint, userCredentials, DEFAULT_SUBMISSION_LIMIT);
+    }
+
+    /**
+     * maxConcurrentTaskLimit specifies the maximum number of
+     * concurrent background job submissions to the DeployR server.
+     * Background jobs are queued and executed by the server, this
+     * limit does not bound server-side job concurrency.
+     */
+    public BackgroundBrokerConfig(String deployrEndpoint,
+                                  RAuthentication userCredentials,
+                                  int maxConcurrentTaskLimit) {
+
+        super(deployrEndpoint, userCredentials, maxConcurrentTaskLimit);
     }
 
 }
@@ -20,6 +20,42 @@ import com.revo.deployr.client.auth.RAuthentication;
  */
 public class DiscreteBrokerConfig extends RBrokerConfig {
 
+    /**
+     * <p>
+     * Enable this property to adapt the number of concurrent
+     * {@link com.revo.deployr.client.broker.RTask} executions to the
+     * observed DeployR server response, within the bounds of
+     * minConcurrentTaskLimit and maxConcurrentTaskLimit.
+     * </p>
+     * <p>
+     * The adaptive limit starts at minConcurrentTaskLimit and grows
+     * while time on call stays within adaptiveLatencyTolerance of
+     * the best time on call recently observed. The limit is cut by
+     * adaptiveBackoffRatio when time on call rises beyond that
+     * tolerance, or when executions fail on the server.
+     * </p>
+     * The current limit is reported on
+     * {@link com.revo.deployr.client.broker.RBroker#maxConcurrency}.
+     */
+    public boolean adaptiveConcurrency = false;
+
+    /**
+     * Specifies the lower bound on the adaptive concurrency limit.
+     */
+    public int minConcurrentTaskLimit = 1;
+
+    /**
+     * Specifies the ratio of observed to best recent time on call
+     * beyond which the adaptive concurrency limit is cut.
+     */
+    public double adaptiveLatencyTolerance = 2.0;
+
+    /**
+     * Specifies the ratio applied to the adaptive concurrency limit
+     * when it is cut.
+     */
+    public double adaptiveBackoffRatio = 0.9;
+
     public DiscreteBrokerConfig(String deployrEndpoint) {
 
         super(deployrEndpoint, null);
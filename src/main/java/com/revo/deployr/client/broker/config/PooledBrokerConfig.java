@@ -15,6 +15,9 @@ package com.revo.deployr.client.broker.config;
 import com.revo.deployr.client.auth.RAuthentication;
 import com.revo.deployr.client.broker.options.PoolCreationOptions;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration options for a Pooled Task
  * {@link com.revo.deployr.client.broker.RBroker}.
@@ -44,6 +47,192 @@ public class PooledBrokerConfig extends RBrokerConfig {
      */
     public final PoolCreationOptions poolCreationOptions;
 
+    /**
+     * <p>
+     * Specifies the maximum number of pooled R Sessions that can
+     * be in use concurrently by each tenant, keyed on tenant key.
+     * </p>
+     * Quotas prevent a single tenant from holding every R Session
+     * in the pool. Tenants without a quota are limited only by the
+     * size of the pool.
+     */
+    public Map<String, Integer> tenantTokenQuotas =
+            new HashMap<String, Integer>();
+
+    /**
+     * <p>
+     * Enable this property if R Sessions lost to a slot or node
+     * failure on the DeployR grid should be replaced automatically.
+     * </p>
+     * When disabled, or when a replacement can not be created, each
+     * lost R Session permanently reduces the size of the pool.
+     */
+    public boolean replaceLostProjects = true;
+
+    /**
+     * <p>
+     * Specifies the number of standby R Sessions held in reserve
+     * alongside the pool. Standby R Sessions are created at startup
+     * using the same poolCreationOptions as the pool.
+     * </p>
+     * When an R Session in the pool is lost to a slot or node failure
+     * on the DeployR grid, a standby R Session is swapped into the
+     * pool immediately and a replacement standby is created in the
+     * background. A value of 0, the default, disables the standby
+     * pool.
+     */
+    public int standbyPoolSize = 0;
+
+    /**
+     * Specifies the minimum pool size maintained by the pool
+     * autoscaler. Values less than 1 are treated as 1.
+     */
+    public int minPoolSize = 1;
+
+    /**
+     * <p>
+     * Specifies the maximum pool size the pool autoscaler can
+     * grow to. A value of 0, the default, disables the autoscaler.
+     * </p>
+     * When enabled the pool starts at maxConcurrentTaskLimit and is
+     * then grown while tasks are queueing, and shrunk while R Sessions
+     * sit idle, within the bounds of minPoolSize and maxPoolSize.
+     */
+    public int maxPoolSize = 0;
+
+    /**
+     * Specifies the interval in milliseconds between pool
+     * autoscaler evaluations.
+     */
+    public long autoscaleInterval = 10000L;
+
+    /**
+     * Specifies the average time in milliseconds tasks can spend
+     * pending execution before the pool autoscaler grows the pool.
+     */
+    public long autoscaleTargetPendingTime = 1000L;
+
+    /**
+     * <p>
+     * Specifies the maximum fraction of the pool that can be taken
+     * out of service at any one time while the pool is refreshed
+     * on {@link com.revo.deployr.client.broker.RBroker#refresh}.
+     * </p>
+     * At least one R Session is always refreshed at a time.
+     */
+    public double refreshMaxFraction = 0.25;
+
+    /**
+     * <p>
+     * Specifies the number of R Sessions created per call to the
+     * DeployR server at startup. A value of 0, the default, creates
+     * the whole pool in a single call and blocks startup until every
+     * R Session is ready.
+     * </p>
+     * When enabled, batches are created in parallel and startup
+     * completes once minStartupPoolSize R Sessions are ready. The
+     * remaining R Sessions join the live pool as each batch
+     * completes, reported on
+     * {@link com.revo.deployr.client.broker.RBrokerPoolListener}.
+     * Progress so far, and any batch failures, are reported as soon
+     * as the listener is registered. Failed batches are retried in
+     * the background.
+     */
+    public int poolCreationBatchSize = 0;
+
+    /**
+     * Specifies the number of batches created concurrently
+     * at startup when poolCreationBatchSize is enabled.
+     */
+    public int poolCreationParallelism = 4;
+
+    /**
+     * Specifies the number of R Sessions that must be ready before
+     * startup completes when poolCreationBatchSize is enabled. A
+     * value of 0, the default, waits on the whole pool.
+     */
+    public int minStartupPoolSize = 0;
+
+    /**
+     * <p>
+     * Enable this property to route each
+     * {@link com.revo.deployr.client.broker.RTask} to an idle R
+     * Session that already holds the workspace and directory
+     * preloads requested on its PooledTaskOptions, where one is
+     * available.
+     * </p>
+     * Tasks sharing large preloads then tend to run on the same
+     * R Sessions, see skipRedundantPreloads.
+     */
+    public boolean preloadAffinity = false;
+
+    /**
+     * <p>
+     * Enable this property to skip the workspace and directory
+     * preloads requested on PooledTaskOptions when the R Session
+     * executing the {@link com.revo.deployr.client.broker.RTask}
+     * has already loaded them on an earlier successful task.
+     * </p>
+     * Only enable when tasks do not modify or remove preloaded
+     * workspace objects or files, as the preload is not repeated.
+     */
+    public boolean skipRedundantPreloads = false;
+
+    /**
+     * <p>
+     * Specifies the time in milliseconds an R Session stays pinned
+     * to a PooledTask affinity key after the last task for that key
+     * completes.
+     * </p>
+     * <p>
+     * While pinned, the R Session executes only tasks carrying the
+     * affinity key and is held out of general dispatch. Once the
+     * affinity key has been idle for affinityTTL the R Session is
+     * returned to the pool.
+     * </p>
+     * Tasks sharing an affinity key execute one after another. A
+     * task for a key whose pinned R Session is busy is held back,
+     * in submission order, until the R Session is free, while
+     * tasks for other keys continue to dispatch.
+     */
+    public long affinityTTL = 60000L;
+
+    /**
+     * <p>
+     * Specifies the number of consecutive
+     * {@link com.revo.deployr.client.broker.RTask} failures after
+     * which an R Session is quarantined. A value of 0, the default,
+     * disables this check.
+     * </p>
+     * A quarantined R Session is taken out of service, recycled and
+     * returned to the pool only once a health check succeeds. An R
+     * Session that fails its health check is replaced. At most half
+     * of the pool is quarantined at any one time.
+     */
+    public int quarantineFailureThreshold = 0;
+
+    /**
+     * Specifies the moving average
+     * {@link com.revo.deployr.client.broker.RTask} error rate,
+     * between 0 and 1, at which an R Session is quarantined.
+     * A value of 0, the default, disables this check.
+     */
+    public double quarantineErrorRate = 0.0;
+
+    /**
+     * Specifies the multiple of the pool-wide moving average
+     * {@link com.revo.deployr.client.broker.RTask} latency at which
+     * a slow R Session is quarantined. A value of 0, the default,
+     * disables this check.
+     */
+    public double quarantineLatencyFactor = 0.0;
+
+    /**
+     * Specifies the delay in milliseconds between an R Session
+     * being quarantined and its health check.
+     */
+    public long quarantineRecoveryDelay = 30000L;
+
     public PooledBrokerConfig(String deployrEndpoint,
                               RAuthentication userCredentials) {
 
@@ -13,6 +13,11 @@
 package com.revo.deployr.client.broker.config;
 
 import com.revo.deployr.client.auth.RAuthentication;
+import com.revo.deployr.client.broker.metrics.RBrokerMetricsExporter;
+import com.revo.deployr.client.broker.trace.RTaskTracer;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Base class for all {@link com.revo.deployr.client.broker.RBroker}
@@ -28,6 +33,35 @@ public abstract class RBrokerConfig {
      */
     public static final int MAX_CONCURRENCY = 999;
 
+    /**
+     * Constant value, defines the default maximum number of
+     * {@link com.revo.deployr.client.broker.RTask} that can be
+     * pending execution on a single instance of an
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public static final int DEFAULT_PENDING_TASK_LIMIT = 99999;
+
+    /**
+     * Constant value, defines the default number of
+     * {@link com.revo.deployr.client.broker.RTask} priority levels
+     * supported by an {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public static final int DEFAULT_PRIORITY_LEVELS = 2;
+
+    /**
+     * Constant value, defines the default interval in milliseconds
+     * after which a pending {@link com.revo.deployr.client.broker.RTask}
+     * is aged by one priority level.
+     */
+    public static final long DEFAULT_PRIORITY_AGING_INTERVAL = 30000L;
+
+    /**
+     * Constant value, defines the tenant key used to schedule
+     * {@link com.revo.deployr.client.broker.RTask} submitted
+     * without a tenant key.
+     */
+    public static final String DEFAULT_TENANT = "default";
+
     /**
      * <p>    
      * Specifies the HTTP URL endpoint for a DeployR Server instance.
@@ -100,6 +134,127 @@ public abstract class RBrokerConfig {
      */
     public boolean allowSelfSignedSSLCert = false;
 
+    /**
+     * <p>
+     * Specifies the maximum number of
+     * {@link com.revo.deployr.client.broker.RTask} that can be
+     * pending execution on an instance of an
+     * {@link com.revo.deployr.client.broker.RBroker}, across
+     * all priorities.
+     * </p>
+     * Specifying a value of 0 or less removes the limit. Once the
+     * limit is reached further submissions are handled according
+     * to the overflowPolicy.
+     */
+    public int maxPendingTaskLimit = DEFAULT_PENDING_TASK_LIMIT;
+
+    /**
+     * Specifies the queue implementation used to hold
+     * {@link com.revo.deployr.client.broker.RTask} pending
+     * execution. Default is {@link TaskQueueType#LINKED}.
+     */
+    public TaskQueueType pendingTaskQueueType = TaskQueueType.LINKED;
+
+    /**
+     * Specifies how submissions are handled once
+     * maxPendingTaskLimit {@link com.revo.deployr.client.broker.RTask}
+     * are pending execution. Default is
+     * {@link TaskOverflowPolicy#REJECT}.
+     */
+    public TaskOverflowPolicy overflowPolicy = TaskOverflowPolicy.REJECT;
+
+    /**
+     * Specifies the maximum time in milliseconds a submitting
+     * thread is blocked under {@link TaskOverflowPolicy#BLOCK}.
+     * Specifying a value of 0 or less, the default, blocks until
+     * space becomes available.
+     */
+    public long overflowTimeout = 0L;
+
+    /**
+     * <p>
+     * Specifies the number of priority levels available on
+     * submissions to an
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     * Priority 0 is the lowest level, priorityLevels - 1 the highest.
+     * </p>
+     * A boolean priority submission maps to the highest level, a
+     * standard submission maps to level 0.
+     */
+    public int priorityLevels = DEFAULT_PRIORITY_LEVELS;
+
+    /**
+     * <p>
+     * Specifies the interval in milliseconds after which a pending
+     * {@link com.revo.deployr.client.broker.RTask} is treated as
+     * one priority level higher than it was submitted at.
+     * </p>
+     * Aging ensures lower priority tasks continue to make progress
+     * under a steady stream of higher priority tasks. Defaults to
+     * 30 seconds. Specifying a value of 0 or less disables aging,
+     * resulting in strict priority ordering.
+     */
+    public long priorityAgingInterval = DEFAULT_PRIORITY_AGING_INTERVAL;
+
+    /**
+     * <p>
+     * Specifies scheduling weights for tenants sharing an instance
+     * of an {@link com.revo.deployr.client.broker.RBroker}, keyed
+     * on tenant key.
+     * </p>
+     * Within each priority level, pending tasks are dispatched
+     * across tenants in weighted round-robin order, a tenant with
+     * weight N receiving up to N consecutive dispatches per turn. Tenants
+     * without a weight have a weight of 1.
+     */
+    public Map<String, Integer> tenantWeights =
+            new HashMap<String, Integer>();
+
+    /**
+     * Specifies a name identifying the
+     * {@link com.revo.deployr.client.broker.RBroker} on metrics
+     * exporters. Defaults to rbroker-N when not specified.
+     */
+    public String brokerName = null;
+
+    /**
+     * <p>
+     * Specifies an optional exporter for
+     * {@link com.revo.deployr.client.broker.metrics.RBrokerMetrics}.
+     * </p>
+     * The broker registers its metrics with the exporter on startup
+     * and unregisters them on shutdown, see
+     * {@link com.revo.deployr.client.broker.metrics.JmxMetricsExporter}
+     * and
+     * {@link com.revo.deployr.client.broker.metrics.PrometheusMetricsExporter}.
+     */
+    public RBrokerMetricsExporter metricsExporter = null;
+
+    /**
+     * <p>
+     * When enabled the broker registers an
+     * {@link com.revo.deployr.client.broker.metrics.RBrokerManagementMXBean}
+     * on the platform MBeanServer on startup, unregistering
+     * it on shutdown. Disabled by default.
+     * </p>
+     * The bean exposes pause, drain, flush and resize operations to
+     * any client with JMX access, so enable only where JMX access is
+     * secured. Where another bean is already registered under the
+     * brokerName a numeric suffix is appended, e.g. name-2.
+     */
+    public boolean jmxManagement = false;
+
+    /**
+     * <p>
+     * Specifies an optional tracing interceptor, see
+     * {@link com.revo.deployr.client.broker.trace.RTaskTracer}.
+     * </p>
+     * When enabled each {@link com.revo.deployr.client.broker.RTask}
+     * is traced from submission through to listener delivery. When
+     * null, the default, no tracing work is performed.
+     */
+    public RTaskTracer taskTracer = null;
+
     public RBrokerConfig(String deployrEndpoint) {
         this(deployrEndpoint, null, 1);
     }
@@ -0,0 +1,43 @@
+/*
+ * TaskOverflowPolicy.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.config;
+
+/**
+ * Defines how an {@link com.revo.deployr.client.broker.RBroker}
+ * handles a submitted {@link com.revo.deployr.client.broker.RTask}
+ * when {@link RBrokerConfig#maxPendingTaskLimit} tasks are
+ * already pending execution.
+ */
+public enum TaskOverflowPolicy {
+    /**
+     * Reject the task, raising an
+     * {@link com.revo.deployr.client.broker.RBrokerException}.
+     */
+    REJECT,
+    /**
+     * Block the submitting thread until space becomes available.
+     * When {@link RBrokerConfig#overflowTimeout} is set, block for
+     * at most that many milliseconds, then reject the task.
+     */
+    BLOCK,
+    /**
+     * Execute the task on the submitting thread, once a
+     * resource becomes available on the broker. The
+     * {@link com.revo.deployr.client.broker.RTaskToken} returned
+     * on submit is complete when the submit call returns.
+     * Batches submitted on
+     * {@link com.revo.deployr.client.broker.RBroker#submitAll}
+     * are rejected.
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,39 @@
+/*
+ * TaskQueueType.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.config;
+
+/**
+ * Defines the queue implementations available to hold
+ * {@link com.revo.deployr.client.broker.RTask} pending
+ * execution on an {@link com.revo.deployr.client.broker.RBroker}.
+ */
+public enum TaskQueueType {
+    /**
+     * Bounded queue, requires a bounded
+     * {@link RBrokerConfig#maxPendingTaskLimit}. The limit is
+     * enforced once across all priority levels and tenants, with
+     * storage growing and shrinking with the number of pending tasks.
+     */
+    BOUNDED_ARRAY,
+    /**
+     * Linked queue. Storage grows and shrinks with the
+     * number of pending tasks.
+     */
+    LINKED,
+    /**
+     * Lock-free linked queue. Storage grows and shrinks with
+     * the number of pending tasks, suited to many concurrent
+     * submitting threads.
+     */
+    CONCURRENT
+}
@@ -15,29 +15,70 @@ package com.revo.deployr.client.broker.engine;
 import com.revo.deployr.client.RClientException;
 import com.revo.deployr.client.RDataException;
 import com.revo.deployr.client.RGridException;
+import com.revo.deployr.client.RJob;
+import com.revo.deployr.client.RJobDetails;
 import com.revo.deployr.client.RSecurityException;
 import com.revo.deployr.client.broker.*;
 import com.revo.deployr.client.broker.config.BackgroundBrokerConfig;
 import com.revo.deployr.client.broker.config.RBrokerConfig;
+import com.revo.deployr.client.broker.impl.RTaskResultImpl;
 import com.revo.deployr.client.broker.task.BackgroundTask;
 import com.revo.deployr.client.broker.worker.BackgroundTaskWorker;
 import com.revo.deployr.client.broker.worker.RBrokerWorker;
+import com.revo.deployr.client.data.RData;
 import com.revo.deployr.client.factory.RClientFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /*
  * BackgroundTaskBroker
  */
 public class BackgroundTaskBroker extends RBrokerEngine {
 
     /*
-     * This limit is set simply to ensure the BackgroundTaskBroker
-     * does not swamp the server which too many concurrent HTTP 
-     * requests when submitting RTask.
+     * maxConcurrentTaskLimit on BackgroundBrokerConfig bounds
+     * concurrent HTTP requests when submitting RTask so the
+     * BackgroundTaskBroker does not swamp the server.
      *
      * The real queueing of RTask is handled by the server, this
      * broker simply pushed the RTask into the server-managed queue.
+     *
+     * concurrencyLimiter adapts the number of concurrent submissions
+     * when adaptiveConcurrency is enabled, null otherwise.
+     */
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    /*
+     * trackedJobs holds RJob submitted by the broker, keyed on job
+     * id, yet to reach a terminal state on the DeployR server.
+     * Polled by the JobTracker on jobTrackingExecutor.
+     */
+    private final ConcurrentHashMap<String, TrackedJob> trackedJobs =
+            new ConcurrentHashMap<String, TrackedJob>();
+    private final ScheduledExecutorService jobTrackingExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+
+    /*
+     * activeSweeps holds each TaskSweep yet to complete, each
+     * driven on its own sweepExecutor thread.
      */
-    private static final int PARALLEL_TASK_LIMIT = 10;
+    private final Set<TaskSweep> activeSweeps =
+            Collections.newSetFromMap(
+                    new ConcurrentHashMap<TaskSweep, Boolean>());
+    private final ExecutorService sweepExecutor =
+            Executors.newCachedThreadPool();
 
     public BackgroundTaskBroker(BackgroundBrokerConfig brokerConfig)
             throws RClientException,
@@ -60,17 +101,59 @@ public class BackgroundTaskBroker extends RBrokerEngine {
          * Prep the base RBrokerEngine.
          */
 
-        initEngine(PARALLEL_TASK_LIMIT);
+        int maxLimit = Math.max(1, Math.min(brokerConfig.maxConcurrentTaskLimit,
+                RBrokerConfig.MAX_CONCURRENCY));
+        int initialLimit = maxLimit;
+
+        if (brokerConfig.adaptiveConcurrency) {
+            initialLimit = Math.max(1,
+                    Math.min(brokerConfig.minConcurrentTaskLimit, maxLimit));
+            this.concurrencyLimiter =
+                    new ConcurrencyLimiter(this, initialLimit, maxLimit,
+                            brokerConfig.adaptiveLatencyTolerance,
+                            brokerConfig.adaptiveBackoffRatio);
+        } else {
+            this.concurrencyLimiter = null;
+        }
+
+        initEngine(initialLimit);
 
         /*
          * Initialize the resourceTokenPool with Integer
-         * based resourceTokens.
+         * based resourceTokens, tokens beyond the initial
+         * adaptive limit are parked on the limiter.
          */
-        for (int i = 0; i < PARALLEL_TASK_LIMIT; i++) {
-            resourceTokenPool.add(new Integer(i));
+        for (int i = 0; i < maxLimit; i++) {
+            if (i < initialLimit) {
+                resourceTokenPool.add(new Integer(i));
+            } else {
+                concurrencyLimiter.park(new Integer(i));
+            }
+        }
+
+        if (brokerConfig.trackJobCompletion) {
+            try {
+                jobTrackingExecutor.schedule(new JobTracker(),
+                        brokerConfig.jobPollInterval, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rex) {
+                shutdown();
+                throw new RBrokerException("Broker failed " +
+                        "to start job tracker, cause: " + rex);
+            }
         }
     }
 
+    public void shutdown() {
+
+        for (TaskSweep sweep : activeSweeps) {
+            sweep.cancel();
+        }
+        sweepExecutor.shutdownNow();
+        jobTrackingExecutor.shutdownNow();
+        trackedJobs.clear();
+        super.shutdown();
+    }
+
     public void refresh(RBrokerConfig config) throws RBrokerException {
         throw new RBrokerException("BackgroundTaskBroker configuration " +
                 " refresh not supported.");
@@ -83,7 +166,7 @@ public class BackgroundTaskBroker extends RBrokerEngine {
         return submit(task, false);
     }
 
-    public final RTaskToken submit(RTask task, boolean priority)
+    public final RTaskToken submit(RTask task, int priority)
             throws RBrokerException,
             IllegalStateException,
             UnsupportedOperationException {
@@ -91,11 +174,77 @@ public class BackgroundTaskBroker extends RBrokerEngine {
         return super.submit(task, priority);
     }
 
+    /**
+     * Submits a parameter sweep, template submitted once for each
+     * set of rinputs drawn from the rinputs stream. Each set of
+     * rinputs takes precedence over any rinputs on the template
+     * {@link com.revo.deployr.client.broker.options.BackgroundTaskOptions}.
+     * <p>
+     * rinputs are drawn from the stream on a dedicated thread only
+     * as sweep tasks complete, so the stream may be arbitrarily
+     * large, or computed on demand. Submission is paced and bounded
+     * by the sweep properties on
+     * {@link com.revo.deployr.client.broker.config.BackgroundBrokerConfig}.
+     */
+    public RTaskSweep submitSweep(RTask template,
+                                  Iterator<List<RData>> rinputs)
+            throws RBrokerException {
+        return submitSweep(template, rinputs, 0);
+    }
+
+    /**
+     * Submits a parameter sweep, each sweep task submitted at
+     * the given priority.
+     */
+    public RTaskSweep submitSweep(RTask template,
+                                  Iterator<List<RData>> rinputs,
+                                  int priority)
+            throws RBrokerException {
+
+        validatePriority(priority);
+
+        if (!taskBrokerIsActive.get()) {
+            throw new RBrokerException("RBroker: " +
+                    "submitSweep failed, broker shutdown.");
+        }
+
+        TaskSweep sweep = new TaskSweep(this,
+                (BackgroundTask) template, rinputs, priority);
+        activeSweeps.add(sweep);
+
+        try {
+            sweepExecutor.execute(sweep);
+        } catch (RejectedExecutionException rex) {
+            activeSweeps.remove(sweep);
+            throw new RBrokerException("RBroker: " +
+                    "submitSweep failed, cause: " + rex);
+        }
+
+        return sweep;
+    }
+
+    /*
+     * Called by TaskSweep once done.
+     */
+    void endSweep(TaskSweep sweep) {
+        activeSweeps.remove(sweep);
+    }
+
     public void callback(RTask task, RTaskResult result) {
 
         Integer resourceToken = (Integer) taskResourceTokenMap.remove(task);
 
-        if (resourceToken != null) {
+        if (result.isSuccess() &&
+                ((BackgroundBrokerConfig) brokerConfig).trackJobCompletion &&
+                taskListener instanceof RJobListener) {
+            trackedJobs.put(result.getID(), new TrackedJob(task));
+        }
+
+        if (resourceToken != null && concurrencyLimiter != null) {
+
+            concurrencyLimiter.release(resourceToken, result);
+
+        } else if (resourceToken != null) {
             boolean added = resourceTokenPool.add(resourceToken);
 
             if (!added) {
@@ -148,9 +297,252 @@ public class BackgroundTaskBroker extends RBrokerEngine {
         if (source.external != null) {
             clone.external = source.external;
         }
+        clone.rinputs = source.rinputs;
         clone.setToken(source.getToken());
+        clone.setDeadline(source.getDeadline());
+        clone.setTenant(source.getTenant());
 
         return clone;
     }
 
+    /*
+     * TrackedJob, an RTask submitted as an RJob
+     * and the time of submission.
+     */
+    private static final class TrackedJob {
+
+        private final RTask task;
+        private final long submitTime = System.currentTimeMillis();
+
+        private TrackedJob(RTask task) {
+            this.task = task;
+        }
+    }
+
+    /*
+     * JobTracker polls tracked RJob status, reporting each RJob on
+     * reaching a terminal state. While few RJob are tracked each is
+     * queried individually, otherwise a single job list call covers
+     * every tracked RJob. The job list call returns every RJob owned
+     * by the user, so where the last list call returned many more
+     * RJob than are tracked individual queries are used instead.
+     * The poll interval doubles while no tracked RJob completes, up
+     * to maxJobPollInterval.
+     *
+     * A tracked RJob missing from the job list is queried directly.
+     * A tracked RJob no longer known on the DeployR server, or still
+     * tracked beyond jobTrackingTimeout, is reported failed and
+     * dropped so it can neither stall polling nor be held forever.
+     */
+    private class JobTracker implements Runnable {
+
+        private long pollInterval =
+                ((BackgroundBrokerConfig) brokerConfig).jobPollInterval;
+        private int lastListedJobs;
+
+        public void run() {
+
+            BackgroundBrokerConfig config =
+                    (BackgroundBrokerConfig) brokerConfig;
+            int completed = 0;
+
+            try {
+
+                if (!trackedJobs.isEmpty()) {
+
+                    List<RJob> jobs = new ArrayList<RJob>();
+                    int tracked = trackedJobs.size();
+                    if (tracked <= JOB_QUERY_THRESHOLD ||
+                            lastListedJobs > tracked * JOB_LIST_RATIO) {
+                        lastListedJobs = 0;
+                        for (String jobId : trackedJobs.keySet()) {
+                            completed += queryJob(jobId, jobs);
+                        }
+                    } else {
+                        /*
+                         * Snapshot tracked ids ahead of the list call,
+                         * any not listed are queried directly, for
+                         * example deleted on the server.
+                         */
+                        Set<String> unlisted =
+                                new HashSet<String>(trackedJobs.keySet());
+                        List<RJob> listed = rUser.listJobs();
+                        lastListedJobs = listed.size();
+                        for (RJob rJob : listed) {
+                            if (rJob != null &&
+                                    unlisted.remove(rJob.about().id)) {
+                                jobs.add(rJob);
+                            }
+                        }
+                        for (String jobId : unlisted) {
+                            if (trackedJobs.containsKey(jobId)) {
+                                completed += queryJob(jobId, jobs);
+                            }
+                        }
+                    }
+
+                    for (RJob rJob : jobs) {
+                        if (rJob != null && reportIfTerminal(rJob)) {
+                            completed++;
+                        }
+                    }
+                }
+
+            } catch (Exception ex) {
+                System.out.println("BackgroundTaskBroker: " +
+                        "JobTracker ex=" + ex);
+            }
+
+            completed += expireTrackedJobs(config.jobTrackingTimeout);
+
+            pollInterval = (completed > 0 || trackedJobs.isEmpty()) ?
+                    config.jobPollInterval :
+                    Math.min(pollInterval * 2, config.maxJobPollInterval);
+
+            if (taskBrokerIsActive.get()) {
+                try {
+                    jobTrackingExecutor.schedule(this,
+                            pollInterval, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException rex) {
+                }
+            }
+        }
+
+        /*
+         * Query tracked RJob, adding it to jobs. Returns 1 if the
+         * RJob is no longer known on the server and was reported
+         * failed, otherwise 0.
+         */
+        private int queryJob(String jobId, List<RJob> jobs) {
+
+            try {
+                jobs.add(rUser.queryJob(jobId));
+            } catch (Exception qex) {
+                if (isUnknownJob(qex) &&
+                        reportFailed(jobId, "no longer " +
+                                "known on server, " +
+                                qex.getMessage())) {
+                    return 1;
+                }
+                System.out.println("BackgroundTaskBroker: " +
+                        "JobTracker job " + jobId + " ex=" + qex);
+            }
+            return 0;
+        }
+
+        private boolean reportIfTerminal(RJob rJob) {
+
+            RJobDetails details = rJob.about();
+            String status = details.status;
+
+            if (RJob.SCHEDULED.equals(status) ||
+                    RJob.QUEUED.equals(status) ||
+                    RJob.RUNNING.equals(status) ||
+                    RJob.CANCELLING.equals(status)) {
+                return false;
+            }
+
+            TrackedJob trackedJob = trackedJobs.remove(details.id);
+            if (trackedJob == null) {
+                /*
+                 * RJob not submitted by this broker.
+                 */
+                return false;
+            }
+
+            boolean success = RJob.COMPLETED.equals(status);
+            Exception failure = success ? null :
+                    new RBrokerException("Background job " +
+                            details.id + " " + status + ", " +
+                            details.statusMsg);
+
+            report(trackedJob, new RTaskResultImpl(details.id,
+                    RTaskType.BACKGROUND,
+                    success,
+                    details.timeCode,
+                    details.timeTotal,
+                    System.currentTimeMillis() - trackedJob.submitTime,
+                    failure), rJob);
+            return true;
+        }
+
+        /*
+         * Drop and report failed every RJob tracked beyond
+         * jobTrackingTimeout, returning the number dropped.
+         */
+        private int expireTrackedJobs(long jobTrackingTimeout) {
+
+            if (jobTrackingTimeout <= 0) {
+                return 0;
+            }
+
+            int expired = 0;
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, TrackedJob> entry :
+                    trackedJobs.entrySet()) {
+                if (now - entry.getValue().submitTime > jobTrackingTimeout &&
+                        reportFailed(entry.getKey(), "not terminal " +
+                                "within jobTrackingTimeout")) {
+                    expired++;
+                }
+            }
+            return expired;
+        }
+
+        /*
+         * Drop RJob from tracking, reporting it failed for reason.
+         * Returns false if the RJob was no longer tracked.
+         */
+        private boolean reportFailed(String jobId, String reason) {
+
+            TrackedJob trackedJob = trackedJobs.remove(jobId);
+            if (trackedJob == null) {
+                return false;
+            }
+
+            report(trackedJob, new RTaskResultImpl(jobId,
+                    RTaskType.BACKGROUND,
+                    false,
+                    0L,
+                    0L,
+                    System.currentTimeMillis() - trackedJob.submitTime,
+                    new RBrokerException("Background job " +
+                            jobId + " " + reason)), null);
+            return true;
+        }
+
+        private void report(TrackedJob trackedJob,
+                            RTaskResult result,
+                            RJob rJob) {
+
+            RTaskListener listener = taskListener;
+            if (listener instanceof RJobListener) {
+                try {
+                    ((RJobListener) listener).onJobCompleted(
+                            trackedJob.task, result, rJob);
+                } catch (Exception lex) {
+                    System.out.println("BackgroundTaskBroker: " +
+                            "JobTracker listener ex=" + lex);
+                }
+            }
+        }
+
+        /*
+         * Query failures indicating the RJob does not exist
+         * on the DeployR server, for example deleted.
+         */
+        private boolean isUnknownJob(Exception failure) {
+
+            if (failure instanceof RDataException) {
+                return true;
+            } else if (failure instanceof RClientException) {
+                return ((RClientException) failure).errorCode == 404;
+            }
+            return false;
+        }
+
+        private static final int JOB_QUERY_THRESHOLD = 4;
+        private static final int JOB_LIST_RATIO = 8;
+    }
+
 }
@@ -0,0 +1,162 @@
+/*
+ * ConcurrencyLimiter.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.engine;
+
+import com.revo.deployr.client.RDataException;
+import com.revo.deployr.client.RSecurityException;
+import com.revo.deployr.client.broker.RTaskResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ConcurrencyLimiter, an AIMD limiter driven by time on call.
+ *
+ * Grows the limit by one per success during slow start, then by
+ * one per limit successes, while time on call stays within
+ * latencyTolerance of the best time on call seen over the last
+ * BASELINE_WINDOW executions. Cuts the limit by backoffRatio, at
+ * most once per limit executions, on higher time on call or on
+ * server failure.
+ *
+ * The limit is applied to the RBrokerEngine by parking resource
+ * tokens returned on callback() and unparking them as the limit
+ * grows, so RBroker.maxConcurrency() reports the current limit.
+ */
+class ConcurrencyLimiter {
+
+    private final RBrokerEngine brokerEngine;
+    private final List<Object> parkedTokens = new ArrayList<Object>();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+
+    private int limit;
+    private boolean slowStart = true;
+    private double growth = 0.0;
+    private int sinceBackoff = 0;
+    private long baselineLatency = Long.MAX_VALUE;
+    private long windowLatency = Long.MAX_VALUE;
+    private int windowSamples = 0;
+
+    ConcurrencyLimiter(RBrokerEngine brokerEngine,
+                       int minLimit,
+                       int maxLimit,
+                       double latencyTolerance,
+                       double backoffRatio) {
+
+        this.brokerEngine = brokerEngine;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = minLimit;
+    }
+
+    /*
+     * Park resource token beyond the initial limit at startup.
+     */
+    synchronized void park(Object resourceToken) {
+        parkedTokens.add(resourceToken);
+    }
+
+    /*
+     * Release resource token on callback(), adjusting the limit
+     * for the RTaskResult then parking or unparking tokens to match.
+     */
+    synchronized void release(Object resourceToken, RTaskResult result) {
+
+        adjust(result);
+
+        if (brokerEngine.parallelTaskLimit.get() > limit) {
+            /*
+             * Over the limit, park token.
+             */
+            parkedTokens.add(resourceToken);
+            brokerEngine.retireResourceToken();
+            return;
+        }
+
+        brokerEngine.resourceTokenPool.add(resourceToken);
+
+        int unpark = Math.min(limit - brokerEngine.parallelTaskLimit.get(),
+                parkedTokens.size());
+        if (unpark > 0) {
+            List<Object> unparked =
+                    new ArrayList<Object>(parkedTokens.subList(0, unpark));
+            parkedTokens.subList(0, unpark).clear();
+            brokerEngine.addResourceTokens(unparked);
+        }
+    }
+
+    private void adjust(RTaskResult result) {
+
+        sinceBackoff++;
+
+        boolean congested;
+
+        if (result.isSuccess()) {
+
+            long latency = result.getTimeOnCall();
+
+            /*
+             * Track best recent time on call, refreshing the
+             * baseline each window so it can follow the server.
+             */
+            baselineLatency = Math.min(baselineLatency, latency);
+            windowLatency = Math.min(windowLatency, latency);
+            if (++windowSamples >= BASELINE_WINDOW) {
+                baselineLatency = windowLatency;
+                windowLatency = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+
+            congested = latency >
+                    Math.max(1L, baselineLatency) * latencyTolerance;
+
+        } else if (isServerFailure(result.getFailure())) {
+            congested = true;
+        } else {
+            return;
+        }
+
+        if (congested) {
+            if (sinceBackoff >= limit) {
+                limit = Math.max(minLimit, (int) (limit * backoffRatio));
+                slowStart = false;
+                growth = 0.0;
+                sinceBackoff = 0;
+            }
+        } else if (slowStart) {
+            limit = Math.min(maxLimit, limit + 1);
+        } else {
+            growth += 1.0 / limit;
+            if (growth >= 1.0) {
+                growth = 0.0;
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    /*
+     * Failures caused by the server, rather than
+     * by the task inputs or credentials.
+     */
+    private boolean isServerFailure(Throwable failure) {
+        return !(failure instanceof RDataException) &&
+                !(failure instanceof RSecurityException);
+    }
+
+    private static final int BASELINE_WINDOW = 500;
+}
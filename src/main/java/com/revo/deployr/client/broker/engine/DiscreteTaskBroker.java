@@ -25,6 +25,7 @@ import com.revo.deployr.client.broker.worker.RBrokerWorker;
 import com.revo.deployr.client.factory.RClientFactory;
 
 import java.net.URL;
+import java.util.Collection;
 
 /*
  * DiscreteTaskBroker
@@ -33,6 +34,12 @@ import java.net.URL;
  */
 public class DiscreteTaskBroker extends RBrokerEngine {
 
+    /*
+     * concurrencyLimiter adapts the number of resource tokens in
+     * circulation when adaptiveConcurrency is enabled, null otherwise.
+     */
+    private final ConcurrencyLimiter concurrencyLimiter;
+
     public DiscreteTaskBroker(DiscreteBrokerConfig brokerConfig)
             throws RClientException,
             RSecurityException,
@@ -57,14 +64,33 @@ public class DiscreteTaskBroker extends RBrokerEngine {
          * Prep the base RBrokerEngine.
          */
 
-        initEngine(brokerConfig.maxConcurrentTaskLimit);
+        int maxLimit = brokerConfig.maxConcurrentTaskLimit;
+        int initialLimit = maxLimit;
+
+        if (brokerConfig.adaptiveConcurrency) {
+            initialLimit = Math.max(1,
+                    Math.min(brokerConfig.minConcurrentTaskLimit, maxLimit));
+            this.concurrencyLimiter =
+                    new ConcurrencyLimiter(this, initialLimit, maxLimit,
+                            brokerConfig.adaptiveLatencyTolerance,
+                            brokerConfig.adaptiveBackoffRatio);
+        } else {
+            this.concurrencyLimiter = null;
+        }
+
+        initEngine(initialLimit);
 
         /*
          * Initialize the resourceTokenPool with Integer
-         * based resourceTokens.
+         * based resourceTokens, tokens beyond the initial
+         * adaptive limit are parked on the limiter.
          */
-        for (int i = 0; i < brokerConfig.maxConcurrentTaskLimit; i++) {
-            resourceTokenPool.add(new Integer(i));
+        for (int i = 0; i < maxLimit; i++) {
+            if (i < initialLimit) {
+                resourceTokenPool.add(new Integer(i));
+            } else {
+                concurrencyLimiter.park(new Integer(i));
+            }
         }
     }
 
@@ -80,7 +106,7 @@ public class DiscreteTaskBroker extends RBrokerEngine {
         return submit(task, false);
     }
 
-    public final RTaskToken submit(RTask task, boolean priority)
+    public final RTaskToken submit(RTask task, int priority)
             throws RBrokerException,
             IllegalStateException,
             UnsupportedOperationException {
@@ -95,11 +121,33 @@ public class DiscreteTaskBroker extends RBrokerEngine {
         return super.submit(task, priority);
     }
 
+    public final RTaskBatch submitAll(Collection<? extends RTask> tasks,
+                                      int priority)
+            throws RBrokerException,
+            UnsupportedOperationException {
+
+        if (rUser == null) {
+            for (RTask task : tasks) {
+                if (((DiscreteTask) task).external != null) {
+                    throw new UnsupportedOperationException("External " +
+                            "script task execution not permitted on " +
+                            "anonymous broker.");
+                }
+            }
+        }
+
+        return super.submitAll(tasks, priority);
+    }
+
     public void callback(RTask task, RTaskResult result) {
 
         Integer resourceToken = (Integer) taskResourceTokenMap.remove(task);
 
-        if (resourceToken != null) {
+        if (resourceToken != null && concurrencyLimiter != null) {
+
+            concurrencyLimiter.release(resourceToken, result);
+
+        } else if (resourceToken != null) {
             boolean added = resourceTokenPool.add(resourceToken);
 
             if (!added) {
@@ -150,6 +198,8 @@ public class DiscreteTaskBroker extends RBrokerEngine {
                     source.options);
         }
         clone.setToken(source.getToken());
+        clone.setDeadline(source.getDeadline());
+        clone.setTenant(source.getTenant());
 
         return clone;
     }
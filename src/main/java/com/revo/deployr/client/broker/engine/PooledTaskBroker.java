@@ -14,12 +14,17 @@ package com.revo.deployr.client.broker.engine;
 
 import com.revo.deployr.client.*;
 import com.revo.deployr.client.broker.RBrokerException;
+import com.revo.deployr.client.broker.RBrokerListener;
+import com.revo.deployr.client.broker.RBrokerPoolListener;
+import com.revo.deployr.client.broker.RBrokerStatus;
+import com.revo.deployr.client.broker.RProjectHealthStats;
 import com.revo.deployr.client.broker.RTask;
 import com.revo.deployr.client.broker.RTaskResult;
 import com.revo.deployr.client.broker.config.PooledBrokerConfig;
 import com.revo.deployr.client.broker.config.RBrokerConfig;
-import com.revo.deployr.client.broker.impl.RTaskResultImpl;
 import com.revo.deployr.client.broker.impl.util.ROptionsTranslator;
+import com.revo.deployr.client.broker.options.PooledTaskOptions;
+import com.revo.deployr.client.broker.options.TaskPreloadOptions;
 import com.revo.deployr.client.broker.task.PooledTask;
 import com.revo.deployr.client.broker.worker.PooledTaskWorker;
 import com.revo.deployr.client.broker.worker.RBrokerWorker;
@@ -27,11 +32,116 @@ import com.revo.deployr.client.factory.RClientFactory;
 import com.revo.deployr.client.params.ProjectCreationOptions;
 import com.revo.deployr.client.params.ProjectExecutionOptions;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PooledTaskBroker extends RBrokerEngine {
 
+    /*
+     * poolMaintenanceExecutor replaces lost RProject and runs the
+     * PoolAutoscaler, keeping DeployR grid calls off the worker
+     * and manager threads.
+     */
+    private final ScheduledExecutorService poolMaintenanceExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+
+    /*
+     * pendingRetirements counts RProject due to be retired from the
+     * pool following a resize(), retired as each RProject is
+     * returned to the pool.
+     */
+    private final AtomicInteger pendingRetirements = new AtomicInteger();
+
+    /*
+     * poolResizeLock serializes resize() and RProject replacement.
+     */
+    private final Object poolResizeLock = new Object();
+
+    /*
+     * standbyProjects holds pre-initialized RProject held in
+     * reserve, swapped into the pool on loss of a pooled RProject.
+     */
+    private final LinkedBlockingQueue<RProject> standbyProjects =
+            new LinkedBlockingQueue<RProject>();
+
+    /*
+     * poolStartupExecutor creates the pool in parallel batches on a
+     * batched startup, null otherwise. startupProjects holds RProject
+     * created ahead of initEngine(), guarded by poolResizeLock.
+     * startupOutstanding counts RProject yet to be created on startup
+     * and replacementOutstanding RProject being created by
+     * ProjectReplacement, read by poolSize() without locking.
+     * startupFailures holds batch failures raised before any
+     * RBrokerListener was registered, see addBrokerListener().
+     */
+    private ExecutorService poolStartupExecutor;
+    private List<RProject> startupProjects;
+    private final AtomicInteger startupOutstanding = new AtomicInteger();
+    private final AtomicInteger replacementOutstanding = new AtomicInteger();
+    private int startupCreated = 0;
+    private int startupTotal = 0;
+    private final List<RBrokerException> startupFailures =
+            new ArrayList<RBrokerException>();
+
+    /*
+     * projectPreloads records the task preloads held by each RProject,
+     * see preloadKeys(). Sets are replaced, never modified, so
+     * dispatch can read them without locking.
+     */
+    private final ConcurrentHashMap<RProject, Set<String>> projectPreloads =
+            new ConcurrentHashMap<RProject, Set<String>>();
+
+    /*
+     * affinitySessions maps PooledTask affinity keys
+     * to the RProject pinned to each key.
+     */
+    private final ConcurrentHashMap<String, AffinitySession> affinitySessions =
+            new ConcurrentHashMap<String, AffinitySession>();
+
+    /*
+     * projectHealth tracks rolling health statistics for each
+     * RProject. quarantinedProjects counts RProject out of
+     * service pending a QuarantineRecovery health check.
+     * poolLatencyEWMA holds the pool-wide latency moving
+     * average as Double bits.
+     */
+    private final ConcurrentHashMap<RProject, ProjectHealth> projectHealth =
+            new ConcurrentHashMap<RProject, ProjectHealth>();
+    private final AtomicInteger quarantinedProjects = new AtomicInteger();
+    private final AtomicLong poolLatencyEWMA = new AtomicLong();
+
+    /*
+     * pooledProjects holds every RProject in the pool, whether idle,
+     * busy, pinned or quarantined, from the time it joins the pool
+     * until it is lost or retired. Excludes standby RProject.
+     */
+    private final Set<RProject> pooledProjects =
+            Collections.newSetFromMap(
+                    new ConcurrentHashMap<RProject, Boolean>());
+
+    /*
+     * poolRefresh tracks the rolling refresh in progress, if any.
+     */
+    private volatile PoolRefresh poolRefresh;
+
+    private volatile ProjectCreationOptions projectCreationOptions;
+    private volatile ProjectExecutionOptions projectExecutionOptions;
+
     public PooledTaskBroker(PooledBrokerConfig brokerConfig)
             throws RClientException,
             RSecurityException,
@@ -58,24 +168,37 @@ public class PooledTaskBroker extends RBrokerEngine {
             this.rUser.releaseProjects();
         }
 
-        ProjectCreationOptions options =
+        this.projectCreationOptions =
                 ROptionsTranslator.translate(brokerConfig.poolCreationOptions);
+        this.projectExecutionOptions =
+                ROptionsTranslator.migrate(brokerConfig.poolCreationOptions);
 
-        List<RProject> deployrProjectPool =
-                rUser.createProjectPool(brokerConfig.maxConcurrentTaskLimit,
-                        options);
+        int poolSize = brokerConfig.maxConcurrentTaskLimit;
+        int batchSize = brokerConfig.poolCreationBatchSize;
 
-        /*
-         * Prep the base RBrokerEngine.
-         */
+        if (batchSize <= 0 || batchSize >= poolSize) {
 
-        initEngine(deployrProjectPool.size());
+            List<RProject> deployrProjectPool =
+                    rUser.createProjectPool(poolSize,
+                            projectCreationOptions);
 
-        /*
-         * Initialize the resourceTokenPool with RProject.
-         */
-        for (RProject rProject : deployrProjectPool) {
-            resourceTokenPool.add(rProject);
+            /*
+             * Prep the base RBrokerEngine.
+             */
+
+            initEngine(deployrProjectPool.size());
+
+            /*
+             * Initialize the resourceTokenPool with RProject.
+             */
+            pooledProjects.addAll(deployrProjectPool);
+            for (RProject rProject : deployrProjectPool) {
+                resourceTokenPool.add(rProject);
+            }
+
+        } else {
+
+            startPoolInBatches(brokerConfig);
         }
 
         try {
@@ -86,14 +209,217 @@ public class PooledTaskBroker extends RBrokerEngine {
                     "to start HTTP keep-alive manager, cause: " + rex);
         }
 
+        if (brokerConfig.standbyPoolSize > 0 && poolStartupExecutor != null) {
+            /*
+             * Batched startup, build standby pool in the background.
+             */
+            poolMaintenanceExecutor.execute(new StandbyReplenishment());
+        } else if (brokerConfig.standbyPoolSize > 0) {
+            /*
+             * Standby creation failures are not fatal, the standby
+             * pool is rebuilt in the background.
+             */
+            try {
+                standbyProjects.addAll(rUser.createProjectPool(
+                        brokerConfig.standbyPoolSize, projectCreationOptions));
+            } catch (Exception ex) {
+                System.out.println("PooledTaskBroker: " +
+                        "standby pool creation ex=" + ex);
+                poolMaintenanceExecutor.execute(new StandbyReplenishment());
+            }
+        }
+
+        long affinityExpiryInterval =
+                Math.max(MIN_AFFINITY_EXPIRY_INTERVAL, brokerConfig.affinityTTL / 2);
+        poolMaintenanceExecutor.scheduleWithFixedDelay(
+                new AffinitySessionExpiry(),
+                affinityExpiryInterval,
+                affinityExpiryInterval,
+                TimeUnit.MILLISECONDS);
+
+        if (brokerConfig.maxPoolSize > 0) {
+            poolMaintenanceExecutor.scheduleWithFixedDelay(
+                    new PoolAutoscaler(),
+                    brokerConfig.autoscaleInterval,
+                    brokerConfig.autoscaleInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+
     }
 
-    public void refresh(RBrokerConfig config) throws RBrokerException {
+    /**
+     * <p>
+     * Resize the pool of R sessions on a live PooledTaskBroker.
+     * </p>
+     * <p>
+     * Growing the pool creates new R sessions on the DeployR server
+     * using the broker PoolCreationOptions. Shrinking the pool
+     * retires idle R sessions immediately, and busy R sessions as
+     * their current task completes.
+     * </p>
+     * Returns the pool size following the resize.
+     */
+    public int resize(int poolSize) throws RBrokerException {
+
+        if (poolSize < 1 || poolSize > RBrokerConfig.MAX_CONCURRENCY) {
+            throw new RBrokerException("PooledTaskBroker: pool size " +
+                    poolSize + " outside permitted range [ 1, " +
+                    RBrokerConfig.MAX_CONCURRENCY + " ].");
+        }
+
+        synchronized (poolResizeLock) {
+
+            int currentPoolSize = poolSize();
 
-        if (!status().isIdle) {
-            throw new RBrokerException("RBroker is not idle, " +
-                    "refresh not permitted.");
+            if (poolSize > currentPoolSize) {
+
+                /*
+                 * Cancel outstanding retirements ahead
+                 * of creating new RProject.
+                 */
+                int growth = poolSize - currentPoolSize;
+                while (growth > 0 && claimRetirement()) {
+                    growth--;
+                }
+
+                /*
+                 * Draw on standby RProject ahead
+                 * of creating new RProject.
+                 */
+                List<RProject> standby = new ArrayList<RProject>();
+                standbyProjects.drainTo(standby, growth);
+                if (!standby.isEmpty()) {
+                    addResourceTokens(standby);
+                    growth -= standby.size();
+                    replenishStandby();
+                }
+
+                if (growth > 0) {
+                    try {
+                        addResourceTokens(rUser.createProjectPool(growth,
+                                projectCreationOptions));
+                    } catch (Exception ex) {
+                        throw new RBrokerException("PooledTaskBroker: " +
+                                "pool resize failed, cause: " +
+                                ex.getMessage(), ex);
+                    }
+                }
+
+            } else if (poolSize < currentPoolSize) {
+
+                pendingRetirements.addAndGet(currentPoolSize - poolSize);
+
+                /*
+                 * Retire idle RProject now, remaining retirements
+                 * take place on callback().
+                 */
+                Object resourceToken;
+                while (pendingRetirements.get() > 0 &&
+                        (resourceToken = resourceTokenPool.poll()) != null) {
+                    if (claimRetirement()) {
+                        retireProject((RProject) resourceToken);
+                    } else {
+                        resourceTokenPool.add(resourceToken);
+                    }
+                }
+            }
+
+            return poolSize();
+        }
+    }
+
+    /*
+     * The constructor returns before a batched startup completes,
+     * ahead of any RBrokerListener being registered. Replay startup
+     * progress and any batch failures raised so far.
+     */
+    public void addBrokerListener(RBrokerListener brokerListener)
+            throws RBrokerException {
+
+        List<RBrokerException> failures;
+        int createdProjects;
+
+        synchronized (poolResizeLock) {
+            super.addBrokerListener(brokerListener);
+            failures = new ArrayList<RBrokerException>(startupFailures);
+            startupFailures.clear();
+            createdProjects = startupCreated;
+        }
+
+        if (brokerListener == null) {
+            return;
+        }
+        for (RBrokerException failure : failures) {
+            brokerListener.onRuntimeError(failure);
         }
+        if (poolStartupExecutor != null &&
+                brokerListener instanceof RBrokerPoolListener) {
+            ((RBrokerPoolListener) brokerListener)
+                    .onPoolStartupProgress(createdProjects, startupTotal);
+        }
+    }
+
+    /**
+     * Returns rolling health statistics for each R session in the
+     * pool, including R sessions currently quarantined.
+     */
+    public List<RProjectHealthStats> projectHealth() {
+
+        List<RProjectHealthStats> stats = new ArrayList<RProjectHealthStats>();
+        for (ProjectHealth health : projectHealth.values()) {
+            stats.add(health.stats());
+        }
+        return stats;
+    }
+
+    public void shutdown() {
+
+        poolMaintenanceExecutor.shutdownNow();
+        if (poolStartupExecutor != null) {
+            poolStartupExecutor.shutdownNow();
+        }
+        PoolRefresh refresh = poolRefresh;
+        if (refresh != null) {
+            refresh.refreshExecutor.shutdownNow();
+        }
+
+        /*
+         * Return idle pinned RProject to the pool
+         * so they are released on shutdown.
+         */
+        for (AffinitySession session : affinitySessions.values()) {
+            if (session.expire(Long.MAX_VALUE) && resourceTokenPool != null) {
+                resourceTokenPool.add(session.rProject);
+            }
+        }
+        affinitySessions.clear();
+
+        RProject standby;
+        while ((standby = standbyProjects.poll()) != null) {
+            try {
+                standby.close();
+            } catch (Exception cex) {
+            }
+        }
+
+        /*
+         * RProject held out of the resourceTokenPool, busy, pinned,
+         * quarantined or refreshing, are not released by
+         * RBrokerEngine.shutdown(), close them here.
+         */
+        for (RProject rProject : pooledProjects) {
+            if (resourceTokenPool == null ||
+                    !resourceTokenPool.contains(rProject)) {
+                try {
+                    rProject.close();
+                } catch (Exception cex) {
+                }
+            }
+        }
+        super.shutdown();
+    }
+
+    public void refresh(RBrokerConfig config) throws RBrokerException {
 
         if (!(config instanceof PooledBrokerConfig)) {
             throw new RBrokerException("PooledTaskBroker refresh " +
@@ -103,39 +429,56 @@ public class PooledTaskBroker extends RBrokerEngine {
         PooledBrokerConfig pooledConfig =
                 (PooledBrokerConfig) config;
 
-        try {
+        PoolRefresh refresh;
+
+        synchronized (poolResizeLock) {
+
+            if (poolRefresh != null) {
+                throw new RBrokerException("PooledTaskBroker refresh " +
+                        "already in progress.");
+            }
+
             /*
-             * Temporarily disable RBroker to permit
-             * configuration refresh.
+             * RProject created from here on, on resize() or
+             * replacement, start out on the refreshed options.
              */
-            refreshingConfig.set(true);
-
-            ProjectExecutionOptions options =
+            projectCreationOptions =
+                    ROptionsTranslator.translate(pooledConfig.poolCreationOptions);
+            projectExecutionOptions =
                     ROptionsTranslator.migrate(pooledConfig.poolCreationOptions);
 
-            for (Object resourceToken : resourceTokenPool) {
-                RProject rProject = (RProject) resourceToken;
-                /*
-                 * Recycle project to remove all existing
-                 * workspace objects and directory files.
-                 */
-                rProject.recycle();
-                /*
-                 * Execute code to cause workspace and directory
-                 * preloads and adoptions to take place.
-                 */
-                rProject.executeCode("# Refresh project on PooledTaskBroker.", options);
-            }
+            /*
+             * Snapshot every RProject in the pool, wherever it is
+             * held. RProject joining the pool from here on are
+             * created on the refreshed options.
+             */
+            Set<RProject> projects = new HashSet<RProject>(pooledProjects);
+
+            /*
+             * Standby RProject must match pooled RProject
+             * when swapped into the pool.
+             */
+            List<RProject> standby = new ArrayList<RProject>();
+            standbyProjects.drainTo(standby);
+
+            int maxRefreshing = Math.max(1,
+                    (int) (projects.size() * pooledConfig.refreshMaxFraction));
+
+            refresh = new PoolRefresh(projects, standby,
+                    projectExecutionOptions, maxRefreshing);
+            poolRefresh = refresh;
 
-        } catch (Exception rex) {
-            throw new RBrokerException("RBroker refresh failed " +
-                    " with unexpected error=${rex}");
-        } finally {
             /*
-             * Re-enabled RBroker following
-             * configuration refresh.
+             * Drop RProject lost or retired between the
+             * snapshot and the refresh being published.
              */
-            refreshingConfig.set(false);
+            refresh.retain(pooledProjects);
+        }
+
+        try {
+            refresh.await();
+        } finally {
+            poolRefresh = null;
         }
     }
 
@@ -185,25 +528,55 @@ public class PooledTaskBroker extends RBrokerEngine {
                  * This prevents a client application from seeing 
                  * (or having to handle) temporary slot or grid related
                  * failures on RTasks.
-                 */
-                RTaskResultImpl resultImpl = (RTaskResultImpl) result;
-                resultImpl.repeatTask = true;
-
-                /*
+                 *
                  * Now re-submit for execution using the priority
-                 * queue to expedite processing.
+                 * queue to expedite processing, see repeatTask().
                  */
 
                 try {
-                    submit(task, true);
+                    repeatTask(task, result);
                 } catch (Exception tex) {
                     System.out.println("PooledTaskBroker: " +
                             "callback, task re-submission ex=" + tex);
                 }
             }
 
-            int resizedPoolSize = parallelTaskLimit.decrementAndGet();
-            if (brokerListener != null) {
+            if (rProject != null) {
+                pooledProjects.remove(rProject);
+            }
+            PoolRefresh refresh = poolRefresh;
+            if (refresh != null && rProject != null) {
+                refresh.discard(rProject);
+            }
+            if (rProject != null) {
+                projectPreloads.remove(rProject);
+                projectHealth.remove(rProject);
+                endSession((PooledTask) task, rProject);
+            }
+
+            int resizedPoolSize = retireResourceToken();
+
+            RProject standby = null;
+
+            if (claimRetirement()) {
+                /*
+                 * Lost RProject satisfies an outstanding
+                 * retirement, no replacement required.
+                 */
+            } else if ((standby = standbyProjects.poll()) != null) {
+                /*
+                 * Swap standby RProject into the pool, restoring
+                 * full concurrency, and rebuild standby.
+                 */
+                addResourceTokens(Collections.singletonList(standby));
+                replenishStandby();
+            } else if (((PooledBrokerConfig) brokerConfig).replaceLostProjects &&
+                    taskBrokerIsActive.get()) {
+                try {
+                    poolMaintenanceExecutor.execute(new ProjectReplacement());
+                } catch (RejectedExecutionException rex) {
+                }
+            } else if (brokerListener != null) {
                 RBrokerException rbex;
                 if (resizedPoolSize == 0) {
                     rbex = new RBrokerException("DeployR grid " +
@@ -226,6 +599,41 @@ public class PooledTaskBroker extends RBrokerEngine {
              */
 
             if (rProject != null) {
+                recordPreloads(rProject, (PooledTask) task, result);
+                recordHealth(rProject, result);
+            }
+
+            if (rProject != null && claimRetirement()) {
+
+                endSession((PooledTask) task, rProject);
+                retireProject(rProject);
+
+            } else if (rProject != null &&
+                    releaseSession((PooledTask) task, rProject)) {
+
+                /*
+                 * RProject pinned to task affinity key,
+                 * held out of the pool until the
+                 * AffinitySession expires.
+                 */
+
+            } else if (rProject != null && divertToRefresh(rProject)) {
+
+                /*
+                 * RProject taken out of service by the
+                 * PoolRefresh in progress, returned to the
+                 * pool once refreshed.
+                 */
+
+            } else if (rProject != null && quarantine(rProject)) {
+
+                /*
+                 * RProject taken out of service as unhealthy,
+                 * returned to the pool by QuarantineRecovery
+                 * once a health check succeeds.
+                 */
+
+            } else if (rProject != null) {
                 boolean added = resourceTokenPool.add(rProject);
 
                 if (!added) {
@@ -249,79 +657,1327 @@ public class PooledTaskBroker extends RBrokerEngine {
                                                Object resourceToken,
                                                RBrokerEngine brokerEngine) {
 
+        boolean preloaded =
+                ((PooledBrokerConfig) brokerConfig).skipRedundantPreloads &&
+                        holdsPreloads(resourceToken, (PooledTask) task);
+
         return new PooledTaskWorker((PooledTask) task,
                 taskIndex,
                 isPriorityTask,
                 (RProject) resourceToken,
-                brokerEngine);
+                brokerEngine,
+                preloaded);
     }
 
-    protected RTask cloneTask(RTask genesis) {
-
-        PooledTask source = (PooledTask) genesis;
-        PooledTask clone = null;
-        if (source.code != null) {
-            clone = new PooledTask(source.code,
-                    source.options);
-        } else {
-            clone = new PooledTask(source.filename,
-                    source.directory,
-                    source.author,
-                    source.version,
-                    source.options);
-        }
+    /*
+     * Prefer an idle RProject already holding the preloads
+     * requested on the task when preloadAffinity is enabled.
+     */
+    protected Object takeResourceToken(RTask task)
+            throws InterruptedException {
 
-        if (source.external != null) {
-            clone.external = source.external;
+        String affinityKey = ((PooledTask) task).getAffinityKey();
+        if (affinityKey != null) {
+            return takeSessionProject(task, affinityKey);
         }
-        clone.setToken(source.getToken());
-
-        return clone;
+        return takePooledProject(task);
     }
 
     /*
-     * HTTPKeepAliveManager
-     *
-     * Prevents authenticated HTTP session from timing out
-     * due to inactivity to ensure pool of RProject remain
-     * live and available to PooledTaskBroker.
+     * Take the RProject pinned to the affinity key, pinning the
+     * next available RProject when no session is live. Returns
+     * null, parking the task on the session, while the pinned
+     * RProject is busy.
      */
-    private class HTTPKeepAliveManager implements Runnable {
+    private Object takeSessionProject(RTask task, String affinityKey)
+            throws InterruptedException {
 
-        private final RUser rUser;
+        while (true) {
 
-        public HTTPKeepAliveManager(RUser rUser) {
-            this.rUser = rUser;
+            AffinitySession session = affinitySessions.get(affinityKey);
+
+            if (session != null) {
+                int acquired = session.acquire(task);
+                if (acquired == SESSION_ACQUIRED) {
+                    return session.rProject;
+                } else if (acquired == SESSION_PARKED) {
+                    return null;
+                }
+                /*
+                 * Session expired or project lost,
+                 * pin a new RProject.
+                 */
+                affinitySessions.remove(affinityKey, session);
+                continue;
+            }
+
+            RProject rProject = (RProject) takePooledProject(task);
+            session = new AffinitySession(rProject);
+            if (affinitySessions.putIfAbsent(affinityKey, session) == null) {
+                return rProject;
+            }
+            resourceTokenPool.add(rProject);
         }
+    }
 
-        public void run() {
+    private Object takePooledProject(RTask task)
+            throws InterruptedException {
 
-            try {
+        if (((PooledBrokerConfig) brokerConfig).preloadAffinity &&
+                hasPreloads((PooledTask) task)) {
+            for (Object resourceToken : resourceTokenPool) {
+                if (holdsPreloads(resourceToken, (PooledTask) task) &&
+                        resourceTokenPool.remove(resourceToken)) {
+                    return resourceToken;
+                }
+            }
+        }
+        return super.takeResourceToken(task);
+    }
 
-                while (taskBrokerIsActive.get()) {
+    private static boolean hasPreloads(PooledTask task) {
 
-                    try {
+        PooledTaskOptions options = task.options;
+        return options != null &&
+                (options.preloadWorkspace != null ||
+                        options.preloadDirectory != null ||
+                        options.preloadByDirectory != null);
+    }
 
-                        if (rUser != null) {
+    private boolean holdsPreloads(Object resourceToken, PooledTask task) {
 
-                            /*
-                             * No-Op Ping Authenticated HTTP Session.
-                             *
-                             * Note, this can throw an exception if
-                             * the client has lost it's to server-side
-                             * HTTP session on which rUser was auth'd.
-                             */
-                            rUser.autosaveProjects(false);
+        if (!hasPreloads(task)) {
+            return false;
+        }
+        Set<String> held = projectPreloads.get(resourceToken);
+        return held != null && held.containsAll(preloadKeys(task));
+    }
 
-                        }
+    /*
+     * Record the preloads now held by RProject following a task.
+     * A failed task leaves the RProject workspace in an unknown
+     * state so its record is cleared.
+     */
+    private void recordPreloads(RProject rProject,
+                                PooledTask task,
+                                RTaskResult result) {
 
-                    } catch (Exception ex) {
-                        System.out.println("PooledTaskBroker: " +
-                                "HTTPKeepAliveManager ex=" + ex);
-                    }
+        PooledBrokerConfig config = (PooledBrokerConfig) brokerConfig;
+        if (!config.preloadAffinity && !config.skipRedundantPreloads) {
+            return;
+        }
 
-                    try {
-                        Thread.currentThread().sleep(PING_INTERVAL);
+        if (!result.isSuccess()) {
+            projectPreloads.remove(rProject);
+        } else if (hasPreloads(task)) {
+            Set<String> preloads = preloadKeys(task);
+            Set<String> held = projectPreloads.get(rProject);
+            if (held == null || !held.containsAll(preloads)) {
+                Set<String> updated = new HashSet<String>(preloads);
+                if (held != null) {
+                    updated.addAll(held);
+                }
+                projectPreloads.put(rProject, updated);
+            }
+        }
+    }
+
+    /*
+     * Keys identifying the workspace and directory
+     * preloads requested on the task.
+     */
+    private static Set<String> preloadKeys(PooledTask task) {
+
+        Set<String> keys = new HashSet<String>();
+        PooledTaskOptions options = task.options;
+        if (options.preloadWorkspace != null) {
+            keys.add("workspace:" + preloadKey(options.preloadWorkspace));
+        }
+        if (options.preloadDirectory != null) {
+            keys.add("directory:" + preloadKey(options.preloadDirectory));
+        }
+        if (options.preloadByDirectory != null) {
+            keys.add("bydirectory:" + options.preloadByDirectory);
+        }
+        return keys;
+    }
+
+    private static String preloadKey(TaskPreloadOptions preload) {
+        return preload.filename + "|" + preload.directory + "|" +
+                preload.author + "|" + preload.version;
+    }
+
+    /*
+     * Create the pool in parallel batches of poolCreationBatchSize,
+     * returning once minStartupPoolSize RProject are ready. The
+     * remaining RProject join the live pool as each batch completes.
+     */
+    private void startPoolInBatches(PooledBrokerConfig brokerConfig)
+            throws RBrokerException {
+
+        int poolSize = brokerConfig.maxConcurrentTaskLimit;
+        int batchSize = brokerConfig.poolCreationBatchSize;
+        int minStartupPoolSize = brokerConfig.minStartupPoolSize;
+        if (minStartupPoolSize <= 0 || minStartupPoolSize > poolSize) {
+            minStartupPoolSize = poolSize;
+        }
+
+        startupProjects = new ArrayList<RProject>();
+        poolStartupExecutor = Executors.newFixedThreadPool(
+                Math.max(1, brokerConfig.poolCreationParallelism));
+
+        synchronized (poolResizeLock) {
+
+            startupOutstanding.set(poolSize);
+            startupTotal = poolSize;
+
+            for (int created = 0; created < poolSize; created += batchSize) {
+                poolStartupExecutor.execute(new PoolStartupBatch(
+                        Math.min(batchSize, poolSize - created), poolSize));
+            }
+            poolStartupExecutor.shutdown();
+
+            try {
+                while (startupProjects.size() < minStartupPoolSize &&
+                        startupOutstanding.get() > 0) {
+                    poolResizeLock.wait();
+                }
+            } catch (InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                for (RProject rProject : startupProjects) {
+                    try {
+                        rProject.close();
+                    } catch (Exception cex) {
+                    }
+                }
+                shutdown();
+                throw new RBrokerException("Broker failed " +
+                        "to initialize, pool startup interrupted.", iex);
+            }
+
+            if (startupProjects.isEmpty()) {
+                shutdown();
+                throw new RBrokerException("Broker failed " +
+                        "to initialize, pool creation failed.");
+            }
+
+            /*
+             * Prep the base RBrokerEngine.
+             */
+
+            initEngine(startupProjects.size());
+
+            /*
+             * Initialize the resourceTokenPool with RProject.
+             */
+            pooledProjects.addAll(startupProjects);
+            resourceTokenPool.addAll(startupProjects);
+            startupProjects = null;
+        }
+    }
+
+    /*
+     * Current pool size, including RProject yet to be created
+     * on a batched startup or replacement, excluding RProject
+     * pending retirement. Lock free, as reached from callback()
+     * while resize() may hold poolResizeLock across server calls.
+     */
+    private int poolSize() {
+        return parallelTaskLimit.get() + startupOutstanding.get() +
+                replacementOutstanding.get() - pendingRetirements.get();
+    }
+
+    /*
+     * Claim one outstanding retirement, returns false
+     * when no retirement is outstanding.
+     */
+    private boolean claimRetirement() {
+
+        while (true) {
+            int retirements = pendingRetirements.get();
+            if (retirements <= 0)
+                return false;
+            if (pendingRetirements.compareAndSet(retirements, retirements - 1))
+                return true;
+        }
+    }
+
+    private void replenishStandby() {
+
+        if (taskBrokerIsActive.get()) {
+            try {
+                poolMaintenanceExecutor.execute(new StandbyReplenishment());
+            } catch (RejectedExecutionException rex) {
+            }
+        }
+    }
+
+    /*
+     * Hand RProject returned on callback() to the PoolRefresh in
+     * progress, returns false when no refresh is in progress, the
+     * RProject is already refreshed or the refresh limit is reached.
+     */
+    private boolean divertToRefresh(RProject rProject) {
+
+        PoolRefresh refresh = poolRefresh;
+        return refresh != null && refresh.claim(rProject);
+    }
+
+    /*
+     * Release RProject back to the AffinitySession for the task
+     * affinity key, returns false when RProject is not pinned.
+     * A session pinned to an RProject awaiting the PoolRefresh in
+     * progress is ended so the RProject can be refreshed.
+     */
+    private boolean releaseSession(PooledTask task, RProject rProject) {
+
+        AffinitySession session = (task.getAffinityKey() != null) ?
+                affinitySessions.get(task.getAffinityKey()) : null;
+        if (session != null && session.rProject == rProject) {
+            PoolRefresh refresh = poolRefresh;
+            if (refresh != null && refresh.isPending(rProject)) {
+                endSession(task, rProject);
+                return false;
+            }
+            RTask parkedTask = session.release();
+            if (parkedTask != null) {
+                /*
+                 * Hand RProject straight to the next
+                 * task parked on the session.
+                 */
+                resumeTask(parkedTask, rProject);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * RProject resumed to, or taken for, a task never dispatched
+     * is released to the task AffinitySession where pinned,
+     * otherwise back into service.
+     */
+    protected void releaseResourceToken(RTask task, Object resourceToken) {
+
+        RProject rProject = (RProject) resourceToken;
+        if (!releaseSession((PooledTask) task, rProject)) {
+            releaseProject(rProject);
+        }
+    }
+
+    /*
+     * Addition to the pool, by resize(), replacement or standby,
+     * is recorded on pooledProjects.
+     */
+    protected void addResourceTokens(Collection<?> resourceTokens) {
+
+        for (Object resourceToken : resourceTokens) {
+            pooledProjects.add((RProject) resourceToken);
+        }
+        super.addResourceTokens(resourceTokens);
+    }
+
+    /*
+     * End the AffinitySession for the task affinity key
+     * when RProject is lost or retired from the pool.
+     */
+    private void endSession(PooledTask task, RProject rProject) {
+
+        AffinitySession session = (task.getAffinityKey() != null) ?
+                affinitySessions.get(task.getAffinityKey()) : null;
+        if (session != null && session.rProject == rProject) {
+            affinitySessions.remove(task.getAffinityKey(), session);
+            /*
+             * Tasks parked on the session pin a new RProject.
+             */
+            for (RTask parkedTask : session.close()) {
+                resumeTask(parkedTask, null);
+            }
+        }
+    }
+
+    /*
+     * Return RProject held out of the pool back into service,
+     * satisfying an outstanding retirement or refresh first.
+     */
+    private void releaseProject(RProject rProject) {
+
+        if (claimRetirement()) {
+            retireProject(rProject);
+        } else if (!divertToRefresh(rProject)) {
+            resourceTokenPool.add(rProject);
+        }
+    }
+
+    private void recordHealth(RProject rProject, RTaskResult result) {
+
+        ProjectHealth health = projectHealth.get(rProject);
+        if (health == null) {
+            ProjectHealth created = new ProjectHealth(rProject.about().id);
+            health = projectHealth.putIfAbsent(rProject, created);
+            if (health == null) {
+                health = created;
+            }
+        }
+        health.record(result);
+
+        if (result.isSuccess()) {
+            while (true) {
+                long bits = poolLatencyEWMA.get();
+                double latency = Double.longBitsToDouble(bits);
+                double updated = (latency == 0.0) ?
+                        result.getTimeOnCall() :
+                        latency + HEALTH_EWMA_WEIGHT *
+                                (result.getTimeOnCall() - latency);
+                if (poolLatencyEWMA.compareAndSet(bits,
+                        Double.doubleToLongBits(updated))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /*
+     * Quarantine RProject when its rolling health statistics cross
+     * a PooledBrokerConfig threshold, returns false when RProject is
+     * healthy or half the pool is already quarantined.
+     */
+    private boolean quarantine(RProject rProject) {
+
+        PooledBrokerConfig config = (PooledBrokerConfig) brokerConfig;
+        ProjectHealth health = projectHealth.get(rProject);
+
+        if (health == null || !health.isUnhealthy(config,
+                Double.longBitsToDouble(poolLatencyEWMA.get()))) {
+            return false;
+        }
+
+        if (quarantinedProjects.incrementAndGet() * 2 > poolSize()) {
+            quarantinedProjects.decrementAndGet();
+            return false;
+        }
+
+        try {
+            health.quarantine();
+            projectPreloads.remove(rProject);
+            poolMaintenanceExecutor.schedule(
+                    new QuarantineRecovery(rProject, health),
+                    config.quarantineRecoveryDelay,
+                    TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException rex) {
+            health.reset();
+            quarantinedProjects.decrementAndGet();
+            return false;
+        }
+    }
+
+    /*
+     * Replace an RProject dropped from the pool as unhealthy, from
+     * standby where available, unless the drop satisfies an
+     * outstanding retirement.
+     */
+    private void replaceProject() {
+
+        RProject standby = null;
+
+        if (claimRetirement()) {
+            /*
+             * Dropped RProject satisfies an outstanding
+             * retirement, no replacement required.
+             */
+        } else if ((standby = standbyProjects.poll()) != null) {
+            addResourceTokens(Collections.singletonList(standby));
+            replenishStandby();
+        } else if (((PooledBrokerConfig) brokerConfig).replaceLostProjects &&
+                taskBrokerIsActive.get()) {
+            try {
+                poolMaintenanceExecutor.execute(new ProjectReplacement());
+            } catch (RejectedExecutionException rex) {
+            }
+        }
+    }
+
+    private void retireProject(RProject rProject) {
+
+        pooledProjects.remove(rProject);
+        PoolRefresh refresh = poolRefresh;
+        if (refresh != null) {
+            refresh.discard(rProject);
+        }
+
+        projectPreloads.remove(rProject);
+        projectHealth.remove(rProject);
+        retireResourceToken();
+        try {
+            rProject.close();
+        } catch (Exception cex) {
+        }
+    }
+
+    protected int tenantTokenQuota(String tenant) {
+
+        Map<String, Integer> tenantTokenQuotas =
+                ((PooledBrokerConfig) brokerConfig).tenantTokenQuotas;
+        Integer quota = (tenantTokenQuotas != null) ?
+                tenantTokenQuotas.get(tenant) : null;
+        return (quota != null) ? quota : 0;
+    }
+
+    protected RTask cloneTask(RTask genesis) {
+
+        PooledTask source = (PooledTask) genesis;
+        PooledTask clone = null;
+        if (source.code != null) {
+            clone = new PooledTask(source.code,
+                    source.options);
+        } else {
+            clone = new PooledTask(source.filename,
+                    source.directory,
+                    source.author,
+                    source.version,
+                    source.options);
+        }
+
+        if (source.external != null) {
+            clone.external = source.external;
+        }
+        clone.setToken(source.getToken());
+        clone.setDeadline(source.getDeadline());
+        clone.setTenant(source.getTenant());
+        clone.setAffinityKey(source.getAffinityKey());
+
+        return clone;
+    }
+
+    /*
+     * PoolStartupBatch creates one batch of RProject on a batched
+     * startup, handing the batch to the constructor ahead of
+     * initEngine() and to the live pool thereafter.
+     */
+    private class PoolStartupBatch implements Runnable {
+
+        private final int batchSize;
+        private final int totalProjects;
+
+        public PoolStartupBatch(int batchSize, int totalProjects) {
+            this.batchSize = batchSize;
+            this.totalProjects = totalProjects;
+        }
+
+        public void run() {
+
+            List<RProject> batch = null;
+
+            try {
+                if (taskBrokerIsActive.get()) {
+                    batch = rUser.createProjectPool(batchSize,
+                            projectCreationOptions);
+                }
+            } catch (Exception ex) {
+                System.out.println("PooledTaskBroker: " +
+                        "PoolStartupBatch ex=" + ex);
+                reportStartupFailure(new RBrokerException(
+                        "PooledTaskBroker pool startup batch failed, " +
+                                "cause: " + ex.getMessage(), ex));
+
+                /*
+                 * Retry the failed batch so the pool still
+                 * grows to maxConcurrentTaskLimit.
+                 */
+                if (taskBrokerIsActive.get()) {
+                    try {
+                        poolMaintenanceExecutor.schedule(
+                                new ProjectReplacement(batchSize, true),
+                                STARTUP_RETRY_INTERVAL,
+                                TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException rex) {
+                    }
+                }
+            }
+
+            int createdProjects;
+
+            synchronized (poolResizeLock) {
+
+                startupOutstanding.addAndGet(-batchSize);
+
+                if (batch != null) {
+
+                    startupCreated += batch.size();
+
+                    if (startupProjects != null &&
+                            taskBrokerIsActive.get()) {
+                        startupProjects.addAll(batch);
+                    } else {
+                        List<RProject> pooled = new ArrayList<RProject>();
+                        for (RProject rProject : batch) {
+                            if (taskBrokerIsActive.get() &&
+                                    !claimRetirement()) {
+                                pooled.add(rProject);
+                            } else {
+                                try {
+                                    rProject.close();
+                                } catch (Exception cex) {
+                                }
+                            }
+                        }
+                        if (!pooled.isEmpty()) {
+                            addResourceTokens(pooled);
+                        }
+                    }
+                }
+
+                createdProjects = startupCreated;
+                poolResizeLock.notifyAll();
+            }
+
+            if (batch != null &&
+                    brokerListener instanceof RBrokerPoolListener) {
+                ((RBrokerPoolListener) brokerListener)
+                        .onPoolStartupProgress(createdProjects, totalProjects);
+            }
+        }
+    }
+
+    /*
+     * Record a batched startup failure for replay on
+     * addBrokerListener() when no listener is yet registered.
+     */
+    private void reportStartupFailure(RBrokerException failure) {
+
+        RBrokerListener listener;
+        synchronized (poolResizeLock) {
+            listener = brokerListener;
+            if (listener == null) {
+                startupFailures.add(failure);
+            }
+        }
+        if (listener != null) {
+            listener.onRuntimeError(failure);
+        }
+    }
+
+    /*
+     * ProjectReplacement creates a new RProject to replace an
+     * RProject lost to a slot or node failure on the DeployR grid,
+     * or replaces the RProject of a failed startup batch, retrying
+     * after STARTUP_RETRY_INTERVAL until created.
+     */
+    private class ProjectReplacement implements Runnable {
+
+        private final int projects;
+        private final boolean startup;
+
+        public ProjectReplacement() {
+            this(1, false);
+        }
+
+        public ProjectReplacement(int projects, boolean startup) {
+            this.projects = projects;
+            this.startup = startup;
+        }
+
+        public void run() {
+
+            /*
+             * Pool shrunk since RProject was lost,
+             * fewer or no replacements required.
+             */
+            int required = projects;
+            while (required > 0 && claimRetirement()) {
+                required--;
+            }
+            if (required == 0 || !taskBrokerIsActive.get()) {
+                return;
+            }
+
+            /*
+             * Create RProject outside poolResizeLock, counted on
+             * poolSize() by replacementOutstanding meanwhile.
+             */
+            replacementOutstanding.addAndGet(required);
+            List<RProject> created = null;
+            Exception failure = null;
+            try {
+                created = rUser.createProjectPool(required,
+                        projectCreationOptions);
+            } catch (Exception ex) {
+                failure = ex;
+            }
+
+            synchronized (poolResizeLock) {
+
+                replacementOutstanding.addAndGet(-required);
+
+                if (created != null && taskBrokerIsActive.get()) {
+                    addResourceTokens(created);
+                } else if (created != null) {
+                    for (RProject rProject : created) {
+                        try {
+                            rProject.close();
+                        } catch (Exception cex) {
+                        }
+                    }
+                } else if (startup) {
+                    reportStartupFailure(new RBrokerException(
+                            "PooledTaskBroker pool startup batch " +
+                                    "retry failed, cause: " +
+                                    failure.getMessage(), failure));
+                    try {
+                        poolMaintenanceExecutor.schedule(
+                                new ProjectReplacement(required, true),
+                                STARTUP_RETRY_INTERVAL,
+                                TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException rex) {
+                    }
+                } else if (brokerListener != null) {
+                    int resizedPoolSize = poolSize();
+                    RBrokerException rbex;
+                    if (resizedPoolSize == 0) {
+                        rbex = new RBrokerException("DeployR grid " +
+                                "failure detected, replacement failed, " +
+                                "pool no longer operational, " +
+                                "advise RBroker shutdown.");
+                    } else {
+                        rbex = new RBrokerException("DeployR grid " +
+                                "failure detected, replacement failed, " +
+                                "pool size auto-adjusted, max " +
+                                " concurrency now " +
+                                resizedPoolSize + ".");
+                    }
+                    brokerListener.onRuntimeError(rbex);
+                }
+            }
+        }
+    }
+
+    /*
+     * StandbyReplenishment rebuilds standbyProjects back to
+     * standbyPoolSize, retrying after STANDBY_RETRY_INTERVAL
+     * on failure.
+     */
+    private class StandbyReplenishment implements Runnable {
+
+        public void run() {
+
+            int deficit = ((PooledBrokerConfig) brokerConfig).standbyPoolSize -
+                    standbyProjects.size();
+
+            if (deficit <= 0 || !taskBrokerIsActive.get()) {
+                return;
+            }
+
+            try {
+                standbyProjects.addAll(rUser.createProjectPool(deficit,
+                        projectCreationOptions));
+            } catch (Exception ex) {
+                System.out.println("PooledTaskBroker: " +
+                        "StandbyReplenishment ex=" + ex);
+                try {
+                    poolMaintenanceExecutor.schedule(this,
+                            STANDBY_RETRY_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException rex) {
+                }
+            }
+        }
+
+        private static final long STANDBY_RETRY_INTERVAL = 30000L;
+    }
+
+    /*
+     * PoolRefresh recycles and re-initializes each RProject in the
+     * pool, taking at most maxRefreshing RProject out of service at
+     * any one time. Idle RProject are swept directly from the
+     * resourceTokenPool, busy RProject are diverted to the
+     * PoolRefresh on callback() as their current task completes.
+     * AffinitySession pinning an RProject awaiting refresh are
+     * ended, so long-lived sessions cannot hold up the refresh.
+     */
+    private class PoolRefresh {
+
+        private final Set<RProject> pendingProjects;
+        private final ProjectExecutionOptions options;
+        private final int maxRefreshing;
+        private final int totalProjects;
+        private final ExecutorService refreshExecutor;
+
+        private int refreshingProjects = 0;
+        private int refreshingStandby = 0;
+        private int refreshedProjects = 0;
+        private int failedProjects = 0;
+
+        public PoolRefresh(Set<RProject> pendingProjects,
+                           List<RProject> standby,
+                           ProjectExecutionOptions options,
+                           int maxRefreshing) {
+
+            this.pendingProjects = pendingProjects;
+            this.options = options;
+            this.maxRefreshing = maxRefreshing;
+            this.totalProjects = pendingProjects.size() + standby.size();
+            this.refreshExecutor = Executors.newFixedThreadPool(maxRefreshing);
+
+            /*
+             * Standby RProject are out of service,
+             * refresh immediately.
+             */
+            for (RProject rProject : standby) {
+                refreshingStandby++;
+                refreshExecutor.execute(new ProjectRefresh(rProject, true));
+            }
+        }
+
+        /*
+         * Claim RProject for refresh, returns false when RProject
+         * already refreshed or the refresh limit is reached.
+         */
+        public synchronized boolean claim(RProject rProject) {
+
+            if (refreshingProjects < maxRefreshing &&
+                    pendingProjects.remove(rProject)) {
+                refreshingProjects++;
+                refreshExecutor.execute(new ProjectRefresh(rProject, false));
+                return true;
+            }
+            return false;
+        }
+
+        /*
+         * Drop RProject lost or retired from the pool ahead of refresh.
+         */
+        public synchronized void discard(RProject rProject) {
+
+            if (pendingProjects.remove(rProject)) {
+                notifyAll();
+            }
+        }
+
+        /*
+         * Drop every RProject no longer held in projects.
+         */
+        public synchronized void retain(Set<RProject> projects) {
+
+            if (pendingProjects.retainAll(projects)) {
+                notifyAll();
+            }
+        }
+
+        public synchronized boolean isPending(RProject rProject) {
+            return pendingProjects.contains(rProject);
+        }
+
+        /*
+         * Sweep idle RProject from the pool until every RProject
+         * has been refreshed.
+         */
+        public void await() throws RBrokerException {
+
+            try {
+
+                synchronized (this) {
+
+                    while (taskBrokerIsActive.get() &&
+                            (!pendingProjects.isEmpty() ||
+                                    refreshingProjects > 0 ||
+                                    refreshingStandby > 0)) {
+
+                        /*
+                         * End idle sessions pinning RProject awaiting
+                         * refresh, busy sessions are ended on callback().
+                         */
+                        for (Map.Entry<String, AffinitySession> entry :
+                                affinitySessions.entrySet()) {
+                            if (refreshingProjects >= maxRefreshing) {
+                                break;
+                            }
+                            AffinitySession session = entry.getValue();
+                            if (pendingProjects.contains(session.rProject) &&
+                                    session.expire(Long.MAX_VALUE)) {
+                                affinitySessions.remove(entry.getKey(),
+                                        session);
+                                releaseProject(session.rProject);
+                            }
+                        }
+
+                        for (Object resourceToken : resourceTokenPool) {
+                            if (refreshingProjects >= maxRefreshing) {
+                                break;
+                            }
+                            RProject rProject = (RProject) resourceToken;
+                            if (pendingProjects.contains(rProject) &&
+                                    resourceTokenPool.remove(rProject) &&
+                                    !claim(rProject)) {
+                                resourceTokenPool.add(rProject);
+                                break;
+                            }
+                        }
+
+                        wait(REFRESH_SWEEP_INTERVAL);
+                    }
+                }
+
+            } catch (InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new RBrokerException("PooledTaskBroker refresh " +
+                        "interrupted.", iex);
+            } finally {
+                refreshExecutor.shutdown();
+            }
+
+            if (failedProjects > 0) {
+                throw new RBrokerException("PooledTaskBroker refresh " +
+                        "failed on " + failedProjects + " of " +
+                        totalProjects + " projects.");
+            }
+        }
+
+        private void completed(RProject rProject,
+                               boolean standby,
+                               boolean failed) {
+
+            /*
+             * Return RProject to service. An RProject that failed
+             * to refresh is left in an unknown state, so is closed
+             * and replaced rather than returned to service.
+             */
+            if (standby && failed) {
+                try {
+                    rProject.close();
+                } catch (Exception cex) {
+                }
+                replenishStandby();
+            } else if (standby) {
+                standbyProjects.add(rProject);
+            } else if (failed) {
+                retireProject(rProject);
+                replaceProject();
+            } else if (claimRetirement()) {
+                retireProject(rProject);
+            } else {
+                resourceTokenPool.add(rProject);
+            }
+
+            int refreshed;
+            synchronized (this) {
+                if (standby) {
+                    refreshingStandby--;
+                } else {
+                    refreshingProjects--;
+                }
+                if (failed) {
+                    failedProjects++;
+                }
+                refreshed = ++refreshedProjects;
+                notifyAll();
+            }
+
+            if (brokerListener instanceof RBrokerPoolListener) {
+                ((RBrokerPoolListener) brokerListener)
+                        .onPoolRefreshProgress(refreshed, totalProjects);
+            }
+        }
+
+        private class ProjectRefresh implements Runnable {
+
+            private final RProject rProject;
+            private final boolean standby;
+
+            public ProjectRefresh(RProject rProject, boolean standby) {
+                this.rProject = rProject;
+                this.standby = standby;
+            }
+
+            public void run() {
+
+                boolean failed = false;
+
+                try {
+                    /*
+                     * Recycle project to remove all existing
+                     * workspace objects and directory files.
+                     */
+                    projectPreloads.remove(rProject);
+                    rProject.recycle();
+                    /*
+                     * Execute code to cause workspace and directory
+                     * preloads and adoptions to take place.
+                     */
+                    rProject.executeCode("# Refresh project on PooledTaskBroker.",
+                            options);
+                } catch (Exception ex) {
+                    failed = true;
+                    if (brokerListener != null) {
+                        brokerListener.onRuntimeError(new RBrokerException(
+                                "PooledTaskBroker refresh failed on project, " +
+                                        "cause: " + ex.getMessage(), ex));
+                    }
+                } finally {
+                    completed(rProject, standby, failed);
+                }
+            }
+        }
+    }
+
+    /*
+     * ProjectHealth tracks rolling health statistics for an RProject.
+     */
+    private static final class ProjectHealth {
+
+        private final String project;
+        private long totalTasksRun = 0L;
+        private long totalTasksRunToFailure = 0L;
+        private int consecutiveFailures = 0;
+        private int samples = 0;
+        private double latencyEWMA = 0.0;
+        private double errorRateEWMA = 0.0;
+        private boolean quarantined = false;
+        private int totalQuarantines = 0;
+
+        private ProjectHealth(String project) {
+            this.project = project;
+        }
+
+        private synchronized void record(RTaskResult result) {
+
+            totalTasksRun++;
+            samples++;
+
+            if (result.isSuccess()) {
+                consecutiveFailures = 0;
+                latencyEWMA = (latencyEWMA == 0.0) ?
+                        result.getTimeOnCall() :
+                        latencyEWMA + HEALTH_EWMA_WEIGHT *
+                                (result.getTimeOnCall() - latencyEWMA);
+                errorRateEWMA -= HEALTH_EWMA_WEIGHT * errorRateEWMA;
+            } else {
+                totalTasksRunToFailure++;
+                consecutiveFailures++;
+                errorRateEWMA += HEALTH_EWMA_WEIGHT * (1.0 - errorRateEWMA);
+            }
+        }
+
+        private synchronized boolean isUnhealthy(PooledBrokerConfig config,
+                                                 double poolLatency) {
+
+            if (config.quarantineFailureThreshold > 0 &&
+                    consecutiveFailures >= config.quarantineFailureThreshold) {
+                return true;
+            }
+            if (samples < HEALTH_MIN_SAMPLES) {
+                return false;
+            }
+            if (config.quarantineErrorRate > 0.0 &&
+                    errorRateEWMA >= config.quarantineErrorRate) {
+                return true;
+            }
+            return config.quarantineLatencyFactor > 0.0 && poolLatency > 0.0 &&
+                    latencyEWMA > config.quarantineLatencyFactor * poolLatency;
+        }
+
+        private synchronized void quarantine() {
+            quarantined = true;
+            totalQuarantines++;
+        }
+
+        /*
+         * Clear rolling statistics following a health check.
+         */
+        private synchronized void reset() {
+            consecutiveFailures = 0;
+            samples = 0;
+            latencyEWMA = 0.0;
+            errorRateEWMA = 0.0;
+            quarantined = false;
+        }
+
+        private synchronized RProjectHealthStats stats() {
+
+            RProjectHealthStats stats = new RProjectHealthStats();
+            stats.project = project;
+            stats.totalTasksRun = totalTasksRun;
+            stats.totalTasksRunToFailure = totalTasksRunToFailure;
+            stats.consecutiveFailures = consecutiveFailures;
+            stats.latencyEWMA = latencyEWMA;
+            stats.errorRateEWMA = errorRateEWMA;
+            stats.quarantined = quarantined;
+            stats.totalQuarantines = totalQuarantines;
+            return stats;
+        }
+    }
+
+    /*
+     * QuarantineRecovery recycles a quarantined RProject and runs a
+     * health check, returning the RProject to service on success and
+     * replacing it on failure.
+     */
+    private class QuarantineRecovery implements Runnable {
+
+        private final RProject rProject;
+        private final ProjectHealth health;
+
+        public QuarantineRecovery(RProject rProject, ProjectHealth health) {
+            this.rProject = rProject;
+            this.health = health;
+        }
+
+        public void run() {
+
+            quarantinedProjects.decrementAndGet();
+
+            try {
+                rProject.recycle();
+                rProject.executeCode("# Health check on PooledTaskBroker.",
+                        projectExecutionOptions);
+                health.reset();
+                releaseProject(rProject);
+                return;
+            } catch (Exception ex) {
+                if (brokerListener != null) {
+                    brokerListener.onRuntimeError(new RBrokerException(
+                            "PooledTaskBroker quarantined project failed " +
+                                    "health check, cause: " +
+                                    ex.getMessage(), ex));
+                }
+            }
+
+            /*
+             * Health check failed, drop RProject from the pool
+             * and replace as for an RProject lost to the grid.
+             * Retiring also discards the RProject from any pool
+             * refresh still waiting on it.
+             */
+            retireProject(rProject);
+            replaceProject();
+        }
+    }
+
+    /*
+     * AffinitySession pins an RProject to a PooledTask affinity key.
+     * The RProject is busy while a task for the key executes, and
+     * idle but held out of the pool between tasks. Tasks for the
+     * key arriving while the RProject is busy are parked on the
+     * session, in order, and handed the RProject on release().
+     */
+    private class AffinitySession {
+
+        private final RProject rProject;
+        private final List<RTask> parkedTasks = new LinkedList<RTask>();
+        private boolean busy = true;
+        private boolean closed = false;
+        private long lastUsed = System.currentTimeMillis();
+
+        public AffinitySession(RProject rProject) {
+            this.rProject = rProject;
+        }
+
+        /*
+         * Acquire idle RProject for task, parking the task while
+         * the RProject is busy. Returns SESSION_ACQUIRED,
+         * SESSION_PARKED or SESSION_CLOSED.
+         */
+        public synchronized int acquire(RTask task) {
+
+            if (closed) {
+                return SESSION_CLOSED;
+            }
+            if (busy) {
+                parkedTasks.add(task);
+                return SESSION_PARKED;
+            }
+            busy = true;
+            return SESSION_ACQUIRED;
+        }
+
+        /*
+         * Release RProject, returning the next parked task, now
+         * holding the RProject, or null once the session is idle.
+         */
+        public synchronized RTask release() {
+
+            lastUsed = System.currentTimeMillis();
+            if (!closed && !parkedTasks.isEmpty()) {
+                return parkedTasks.remove(0);
+            }
+            busy = false;
+            return null;
+        }
+
+        /*
+         * Close session if idle since idleSince, returns true when
+         * closed so the caller can return RProject to the pool.
+         */
+        public synchronized boolean expire(long idleSince) {
+
+            if (!busy && !closed && lastUsed <= idleSince) {
+                closed = true;
+                return true;
+            }
+            return false;
+        }
+
+        /*
+         * Close session, returning the tasks parked on it.
+         */
+        public synchronized List<RTask> close() {
+
+            closed = true;
+            List<RTask> parked = new ArrayList<RTask>(parkedTasks);
+            parkedTasks.clear();
+            return parked;
+        }
+    }
+
+    /*
+     * AffinitySessionExpiry returns RProject pinned to affinity
+     * keys idle for affinityTTL to the pool.
+     */
+    private class AffinitySessionExpiry implements Runnable {
+
+        public void run() {
+
+            long idleSince = System.currentTimeMillis() -
+                    ((PooledBrokerConfig) brokerConfig).affinityTTL;
+
+            for (Map.Entry<String, AffinitySession> entry :
+                    affinitySessions.entrySet()) {
+
+                AffinitySession session = entry.getValue();
+
+                if (session.expire(idleSince)) {
+
+                    affinitySessions.remove(entry.getKey(), session);
+                    releaseProject(session.rProject);
+                }
+            }
+        }
+    }
+
+    /*
+     * PoolAutoscaler grows the pool while tasks are queueing beyond
+     * autoscaleTargetPendingTime or in excess of the pool size, and
+     * shrinks the pool once R sessions have sat idle for
+     * AUTOSCALE_IDLE_INTERVALS consecutive evaluations.
+     */
+    private class PoolAutoscaler implements Runnable {
+
+        private long lastTasksDispatched = 0L;
+        private long lastTimeTasksPending = 0L;
+        private int idleIntervals = 0;
+
+        public void run() {
+
+            try {
+
+                PooledBrokerConfig config = (PooledBrokerConfig) brokerConfig;
+                int minPoolSize = Math.max(1, config.minPoolSize);
+                int maxPoolSize = Math.max(minPoolSize,
+                        Math.min(config.maxPoolSize,
+                                RBrokerConfig.MAX_CONCURRENCY));
+
+                /*
+                 * Average pending time over the last interval.
+                 */
+                long tasksDispatched = totalTasksDispatched.get();
+                long timeTasksPending = totalTimeTasksPending.get();
+                long intervalTasks = tasksDispatched - lastTasksDispatched;
+                long avgPendingTime = (intervalTasks > 0) ?
+                        (timeTasksPending - lastTimeTasksPending) /
+                                intervalTasks : 0L;
+                lastTasksDispatched = tasksDispatched;
+                lastTimeTasksPending = timeTasksPending;
+
+                RBrokerStatus status = status();
+                int poolSize = poolSize();
+                int targetPoolSize = poolSize;
+
+                if (status.pendingTasks > 0 &&
+                        (avgPendingTime > config.autoscaleTargetPendingTime ||
+                                status.pendingTasks >= poolSize)) {
+
+                    /*
+                     * Grow by pending tasks, at most doubling per interval.
+                     */
+                    idleIntervals = 0;
+                    targetPoolSize = poolSize +
+                            Math.max(1, Math.min(status.pendingTasks, poolSize));
+
+                } else if (status.pendingTasks == 0 &&
+                        status.executingTasks < poolSize) {
+
+                    /*
+                     * Shrink by half the idle R sessions.
+                     */
+                    if (++idleIntervals >= AUTOSCALE_IDLE_INTERVALS) {
+                        idleIntervals = 0;
+                        int idleProjects = poolSize - status.executingTasks;
+                        targetPoolSize = poolSize -
+                                Math.max(1, idleProjects / 2);
+                    }
+
+                } else {
+                    idleIntervals = 0;
+                }
+
+                targetPoolSize = Math.max(minPoolSize,
+                        Math.min(maxPoolSize, targetPoolSize));
+
+                if (targetPoolSize != poolSize && taskBrokerIsActive.get()) {
+                    resize(targetPoolSize);
+                }
+
+            } catch (Exception ex) {
+                System.out.println("PooledTaskBroker: " +
+                        "PoolAutoscaler ex=" + ex);
+            }
+        }
+
+        private static final int AUTOSCALE_IDLE_INTERVALS = 3;
+    }
+
+    /*
+     * HTTPKeepAliveManager
+     *
+     * Prevents authenticated HTTP session from timing out
+     * due to inactivity to ensure pool of RProject remain
+     * live and available to PooledTaskBroker.
+     */
+    private class HTTPKeepAliveManager implements Runnable {
+
+        private final RUser rUser;
+
+        public HTTPKeepAliveManager(RUser rUser) {
+            this.rUser = rUser;
+        }
+
+        public void run() {
+
+            try {
+
+                while (taskBrokerIsActive.get()) {
+
+                    try {
+
+                        if (rUser != null) {
+
+                            /*
+                             * No-Op Ping Authenticated HTTP Session.
+                             *
+                             * Note, this can throw an exception if
+                             * the client has lost it's to server-side
+                             * HTTP session on which rUser was auth'd.
+                             */
+                            rUser.autosaveProjects(false);
+
+                        }
+
+                    } catch (Exception ex) {
+                        System.out.println("PooledTaskBroker: " +
+                                "HTTPKeepAliveManager ex=" + ex);
+                    }
+
+                    try {
+                        Thread.currentThread().sleep(PING_INTERVAL);
                     } catch (InterruptedException iex) {
                     }
                 }
@@ -335,4 +1991,13 @@ public class PooledTaskBroker extends RBrokerEngine {
         private static final long PING_INTERVAL = 60000l;
 
     }
+
+    private static final long REFRESH_SWEEP_INTERVAL = 250L;
+    private static final long MIN_AFFINITY_EXPIRY_INTERVAL = 100L;
+    private static final long STARTUP_RETRY_INTERVAL = 30000L;
+    private static final int SESSION_ACQUIRED = 0;
+    private static final int SESSION_PARKED = 1;
+    private static final int SESSION_CLOSED = 2;
+    private static final double HEALTH_EWMA_WEIGHT = 0.2;
+    private static final int HEALTH_MIN_SAMPLES = 10;
 }
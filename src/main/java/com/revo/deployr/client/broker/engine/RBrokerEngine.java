@@ -17,19 +17,43 @@ import com.revo.deployr.client.broker.*;
 import com.revo.deployr.client.broker.app.RTaskAppSimulator;
 import com.revo.deployr.client.broker.config.PooledBrokerConfig;
 import com.revo.deployr.client.broker.config.RBrokerConfig;
+import com.revo.deployr.client.broker.config.TaskOverflowPolicy;
+import com.revo.deployr.client.broker.config.TaskQueueType;
+import com.revo.deployr.client.broker.impl.RTaskBatchImpl;
 import com.revo.deployr.client.broker.impl.RTaskResultImpl;
 import com.revo.deployr.client.broker.impl.RTaskTokenImpl;
 import com.revo.deployr.client.broker.impl.RTaskTokenListener;
+import com.revo.deployr.client.broker.impl.util.LatencyHistogram;
+import com.revo.deployr.client.broker.metrics.JmxMetricsExporter;
+import com.revo.deployr.client.broker.metrics.RBrokerManagementMXBean;
+import com.revo.deployr.client.broker.metrics.RBrokerMetrics;
+import com.revo.deployr.client.broker.task.AbstractTask;
+import com.revo.deployr.client.broker.trace.RTaskStage;
+import com.revo.deployr.client.broker.trace.RTaskTracer;
 import com.revo.deployr.client.broker.worker.RBrokerWorker;
 
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.security.*;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.net.ssl.*;
 
 /*
@@ -47,14 +71,100 @@ public abstract class RBrokerEngine implements RBroker {
     protected final ExecutorService brokerEngineExecutor =
             Executors.newFixedThreadPool(3);
 
-    protected final ArrayBlockingQueue<RTask> pendingLowPriorityQueue =
-            new ArrayBlockingQueue<RTask>(MAX_TASK_QUEUE_SIZE);
+    /*
+     * pendingTaskQueues holds one PendingTaskQueue per priority
+     * level, indexed by level, level 0 being the lowest priority.
+     */
+    private final List<PendingTaskQueue> pendingTaskQueues;
+
+    /*
+     * pendingTaskCapacity holds one permit for each free slot
+     * across the pendingTaskQueues, enforcing
+     * RBrokerConfig.maxPendingTaskLimit independently of the queue
+     * implementation. Null when maxPendingTaskLimit is unbounded.
+     */
+    private final Semaphore pendingTaskCapacity;
+
+    /*
+     * completedTaskTokens receives each RTaskToken the moment its
+     * RTask finishes executing, pushed by RTaskExecution.done() on the
+     * worker thread. The RBrokerListenerManager blocks on this queue
+     * so completion callbacks are delivered without polling.
+     */
+    private final LinkedBlockingQueue<RTaskToken> completedTaskTokens =
+            new LinkedBlockingQueue<RTaskToken>();
+
+    /*
+     * pendingTaskSignal holds one permit for each RTask pushed
+     * onto the pendingTaskQueues. The
+     * RBrokerWorkerManager blocks on this signal so a task is
+     * dispatched the moment it is submitted, without idle polling.
+     */
+    protected final Semaphore pendingTaskSignal = new Semaphore(0);
+
+    /*
+     * schedulerWakeup is released when an RTask is submitted or a
+     * tenant releases a resource token. The RBrokerWorkerManager
+     * blocks on this signal while every pending RTask belongs to a
+     * tenant at its resource token quota.
+     */
+    private final Semaphore schedulerWakeup = new Semaphore(0);
+
+    /*
+     * tenantAccounts tracks executing tasks and runtime
+     * statistics for each tenant, keyed on tenant key.
+     * Evicted with the TenantQueue of the tenant once the
+     * tenant is idle, see evictIdleTenant().
+     */
+    private final ConcurrentHashMap<String, TenantAccount> tenantAccounts =
+            new ConcurrentHashMap<String, TenantAccount>();
+
+    /*
+     * taskLatencies holds latency histograms for RTask, indexed
+     * on RTaskType by priority level, each created on first use.
+     */
+    private final AtomicReferenceArray<TaskLatency> taskLatencies;
 
-    protected final ArrayBlockingQueue<RTask> pendingHighPriorityQueue =
-            new ArrayBlockingQueue<RTask>(MAX_TASK_QUEUE_SIZE);
+    /*
+     * Lock-free counters read by RBrokerMetrics, updated as
+     * tasks are submitted and on completion on worker threads.
+     */
+    private final AtomicLong totalTasksSubmitted = new AtomicLong();
+    private final AtomicLong totalTasksRejected = new AtomicLong();
+    private final AtomicLong totalTasksRetried = new AtomicLong();
+    private final AtomicLong totalGridFailures = new AtomicLong();
+    private final AtomicLong totalTasksCompleted = new AtomicLong();
+    private final AtomicLong totalTasksFailed = new AtomicLong();
+    private final AtomicLongArray totalTasksCompletedByType =
+            new AtomicLongArray(RTaskType.values().length);
+    private final long startTime = System.currentTimeMillis();
+
+    protected final String brokerName;
+    private final RBrokerMetrics brokerMetrics = new EngineMetrics();
+    private static final AtomicInteger brokerSequence = new AtomicInteger();
+
+    /*
+     * Dispatch controls, see pause(), drain() and resizeConcurrency().
+     *
+     * dispatchedTasks counts RTask taken off the pendingTaskQueues
+     * and not yet completed. The RBrokerWorkerManager waits on
+     * dispatchMonitor while dispatch is paused or dispatchedTasks
+     * reaches dispatchLimit.
+     */
+    private final Object dispatchMonitor = new Object();
+    private final AtomicInteger dispatchedTasks = new AtomicInteger();
+    private volatile boolean dispatchPaused = false;
+    private volatile boolean draining = false;
+    private volatile int dispatchLimit = Integer.MAX_VALUE;
+    private ObjectName managementName;
 
-    private ConcurrentLinkedQueue<RTaskToken> liveTaskTokens =
-            new ConcurrentLinkedQueue<RTaskToken>();
+    /*
+     * deadlineExecutor cancels RTask executing beyond their
+     * deadline. The executor thread is only started on the
+     * first RTask submitted with a deadline.
+     */
+    private final ScheduledExecutorService deadlineExecutor =
+            Executors.newSingleThreadScheduledExecutor();
 
     /*
      * Asynchronous RTask and RBroker listeners.
@@ -80,16 +190,46 @@ public abstract class RBrokerEngine implements RBroker {
      */
     protected final AtomicBoolean refreshingConfig = new AtomicBoolean(false);
 
+    /**
+     * @deprecated pending task capacity is configured on
+     * RBrokerConfig.maxPendingTaskLimit, no longer read.
+     */
+    @Deprecated
+    protected static int MAX_TASK_QUEUE_SIZE = 99999;
+
+    /**
+     * @deprecated RBrokerWorkerManager is signalled on submission
+     * rather than polling, no longer read.
+     */
+    @Deprecated
+    public long LIVE_TASK_TOKEN_PEEK_INTERVAL = 25L;
+
     protected RBrokerConfig brokerConfig;
     protected AtomicInteger parallelTaskLimit;
     protected RClient rClient;
     protected RUser rUser;
     protected ExecutorService taskWorkerExecutor;
-    protected static int MAX_TASK_QUEUE_SIZE = 99999;
-    public long LIVE_TASK_TOKEN_PEEK_INTERVAL = 25L;
     protected ConcurrentHashMap<RTask, Object> taskResourceTokenMap;
     protected ConcurrentHashMap<RTask, RTaskTokenListener> taskTokenListenerMap;
 
+    /*
+     * RTaskToken for each executing RTask, keyed on the RTask
+     * passed to the RBrokerWorker, see repeatTask().
+     */
+    private final ConcurrentHashMap<RTask, RTaskToken> executingTaskTokens =
+            new ConcurrentHashMap<RTask, RTaskToken>();
+
+    /*
+     * parkedTasks holds each RTask parked on takeResourceToken() to
+     * await a particular resource token. readyTasks holds parked
+     * RTask handed back on resumeTask(), dispatched by the
+     * RBrokerWorkerManager ahead of the pendingTaskQueues.
+     */
+    private final ConcurrentHashMap<RTask, PendingTask> parkedTasks =
+            new ConcurrentHashMap<RTask, PendingTask>();
+    private final ConcurrentLinkedQueue<ReadyTask> readyTasks =
+            new ConcurrentLinkedQueue<ReadyTask>();
+
     /*
      * For an RTask to execute, it most hold a resourceToken
      * taken from the resourceTokenPool. The size of the
@@ -107,12 +247,51 @@ public abstract class RBrokerEngine implements RBroker {
      * RBrokerEngine signaling that the resourceToken associated
      * with the RTask can be released back into the resourceTokenPool,
      * making the token available for use by another RTask to run.
+     *
+     * Concrete implementations of RBrokerEngine can grow or shrink
+     * the resourceTokenPool while the broker is live, see
+     * addResourceTokens() and retireResourceToken().
+     */
+    protected BlockingQueue<Object> resourceTokenPool;
+
+    /*
+     * Count of RTask dispatched to a resource token and the total
+     * time those tasks spent pending, sampled by implementations
+     * that adapt resourceTokenPool size to observed queueing latency.
      */
-    protected ArrayBlockingQueue<Object> resourceTokenPool;
+    protected final AtomicLong totalTasksDispatched = new AtomicLong();
+    protected final AtomicLong totalTimeTasksPending = new AtomicLong();
 
     public RBrokerEngine(RBrokerConfig brokerConfig) throws RBrokerException {
 
         this.brokerConfig = brokerConfig;
+        this.brokerName = (brokerConfig.brokerName != null) ?
+                brokerConfig.brokerName :
+                "rbroker-" + brokerSequence.incrementAndGet();
+
+        if (brokerConfig.maxPendingTaskLimit > 0) {
+            this.pendingTaskCapacity =
+                    new Semaphore(brokerConfig.maxPendingTaskLimit);
+        } else {
+            this.pendingTaskCapacity = null;
+        }
+
+        if (brokerConfig.priorityLevels < 1) {
+            throw new RBrokerException("Broker failed to initialize, " +
+                    "priorityLevels must be 1 or greater.");
+        }
+        if (brokerConfig.pendingTaskQueueType == TaskQueueType.BOUNDED_ARRAY &&
+                brokerConfig.maxPendingTaskLimit <= 0) {
+            throw new RBrokerException("Broker failed to initialize, " +
+                    "BOUNDED_ARRAY pending task queue requires a " +
+                    "maxPendingTaskLimit.");
+        }
+        this.pendingTaskQueues = new ArrayList<PendingTaskQueue>();
+        for (int i = 0; i < brokerConfig.priorityLevels; i++) {
+            this.pendingTaskQueues.add(new PendingTaskQueue());
+        }
+        this.taskLatencies = new AtomicReferenceArray<TaskLatency>(
+                RTaskType.values().length * brokerConfig.priorityLevels);
 
         /*
          * Validate DeployR server endpoint passed to RBroker.
@@ -204,11 +383,19 @@ public abstract class RBrokerEngine implements RBroker {
 
             this.parallelTaskLimit = new AtomicInteger(parallelTaskLimit);
 
+            /*
+             * Fixed size thread pool, resized in step with
+             * resourceTokenPool on addResourceTokens() and
+             * retireResourceToken().
+             */
             this.taskWorkerExecutor =
-                    Executors.newFixedThreadPool(parallelTaskLimit);
+                    new ThreadPoolExecutor(parallelTaskLimit,
+                            parallelTaskLimit,
+                            0L, TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<Runnable>());
 
             this.resourceTokenPool =
-                    new ArrayBlockingQueue<Object>(parallelTaskLimit);
+                    new LinkedBlockingQueue<Object>();
 
             this.taskResourceTokenMap =
                     new ConcurrentHashMap<RTask, Object>(parallelTaskLimit);
@@ -244,6 +431,36 @@ public abstract class RBrokerEngine implements RBroker {
             throw new RBrokerException("Broker failed " +
                     "to initialized, cause: " + iex);
         }
+
+        if (brokerConfig.metricsExporter != null) {
+            brokerConfig.metricsExporter.register(brokerMetrics);
+        }
+
+        if (brokerConfig.jmxManagement) {
+            try {
+                /*
+                 * Never displace another broker's bean, on a name
+                 * collision register under name-2, name-3 and so on.
+                 */
+                MBeanServer mbeanServer =
+                        ManagementFactory.getPlatformMBeanServer();
+                String beanName = brokerName;
+                for (int suffix = 2; managementName == null; suffix++) {
+                    ObjectName name = new ObjectName(JmxMetricsExporter.DOMAIN +
+                            ":type=RBrokerManagement,name=" +
+                            ObjectName.quote(beanName));
+                    try {
+                        mbeanServer.registerMBean(new EngineManagement(), name);
+                        managementName = name;
+                    } catch (InstanceAlreadyExistsException iaex) {
+                        beanName = brokerName + "-" + suffix;
+                    }
+                }
+            } catch (Exception jex) {
+                System.out.println("RBrokerEngine: " +
+                        "management bean registration failed, ex=" + jex);
+            }
+        }
     }
 
     /*
@@ -259,12 +476,28 @@ public abstract class RBrokerEngine implements RBroker {
 
     public RTaskToken submit(RTask task, boolean priority)
             throws RBrokerException {
+        return submit(task, priority ? highestPriority() : 0);
+    }
+
+    public RTaskToken submit(RTask task, int priority)
+            throws RBrokerException {
+
+        validatePriority(priority);
 
         if (refreshingConfig.get()) {
             throw new RBrokerException("RTask submissions temporarily " +
                     "disabled while RBroker configuration refreshes.");
         }
 
+        if (draining) {
+            throw new RBrokerException("RTask submissions " +
+                    "disabled while RBroker drains.");
+        }
+
+        TaskTrace trace = null;
+        RTask clonedTask = null;
+        boolean capacityHeld = false;
+
         try {
 
             /*
@@ -278,18 +511,38 @@ public abstract class RBrokerEngine implements RBroker {
              * create a single RTask instance and submit it many times
              * to simulate load.
              */
-            RTask clonedTask = cloneTask(task);
+            clonedTask = cloneTask(task);
 
             /*
              * Prepare setup for RTaskToken.
              */
             RTaskToken rTaskToken = new RTaskTokenImpl(task);
+
             /*
-             * Appending associated RTaskToken to end of
-             * liveTaskTokens in preparation for pushing
-             * RTask onto pending[High,Low]PriorityQueue.
+             * Trace RTask, when RBrokerConfig.taskTracer enabled,
+             * from the trace context of the submitting thread.
              */
-            liveTaskTokens.add(rTaskToken);
+            trace = TaskTrace.start(brokerConfig.taskTracer, task);
+
+            if (!acquirePendingCapacity(1, brokerConfig.overflowPolicy)) {
+
+                if (brokerConfig.overflowPolicy ==
+                        TaskOverflowPolicy.CALLER_RUNS) {
+                    /*
+                     * Apply backpressure by executing RTask on
+                     * the submitting thread.
+                     */
+                    totalTasksSubmitted.incrementAndGet();
+                    executeOnCaller(clonedTask, rTaskToken, priority, trace);
+                    return rTaskToken;
+                }
+
+                totalTasksRejected.incrementAndGet();
+                throw new RBrokerException("Broker at capacity ( " +
+                        brokerConfig.maxPendingTaskLimit +
+                        " ), rejecting task " + clonedTask);
+            }
+            capacityHeld = true;
 
             /*
              * Register RTask and associated RTaskToken here.
@@ -299,41 +552,177 @@ public abstract class RBrokerEngine implements RBroker {
              * on token.
              */
             taskTokenListenerMap.put(clonedTask, rTaskToken);
+            onPending(rTaskToken, clonedTask, priority, trace);
 
-            boolean added = false;
-            if (priority)
-                added = pendingHighPriorityQueue.offer(clonedTask);
-            else
-                added = pendingLowPriorityQueue.offer(clonedTask);
+            if (trace != null) {
+                trace.beginStage(RTaskStage.QUEUE);
+            }
+            pendingTaskQueues.get(priority)
+                    .offer(new PendingTask(clonedTask, priority, trace));
+            capacityHeld = false;
+            totalTasksSubmitted.incrementAndGet();
 
-            if (!added) {
-                
-                /*
-                 * Undo (above) setup for RTaskToken that was
-                 * rejected by pending[High,Low]PriorityQueues.
-                 */
-                boolean liveTaskTokenRemoved =
-                    liveTaskTokens.remove(rTaskToken);
-                Object clonedTaskRemoved =
-                    taskTokenListenerMap.remove(clonedTask);
-
-                if(!liveTaskTokenRemoved || clonedTaskRemoved == null) {
-                    System.out.println("RBrokerEngine: " +
-                        "Broker at capacity, rTask rejected, cleanup: " +
-                        liveTaskTokenRemoved + ", " + clonedTaskRemoved);
+            /*
+             * Wake RBrokerWorkerManager, RTask ready for dispatch.
+             */
+            pendingTaskSignal.release();
+            schedulerWakeup.release();
+
+            return rTaskToken;
+
+        } catch (Exception rex) {
+
+            /*
+             * Undo setup for RTaskToken on a task never enqueued,
+             * returning pending capacity acquired for it.
+             */
+            if (capacityHeld) {
+                taskTokenListenerMap.remove(clonedTask);
+                releasePendingCapacity(1);
+            }
+            if (trace != null) {
+                trace.end(rex);
+            }
+            if (rex instanceof RBrokerException) {
+                throw (RBrokerException) rex;
+            }
+            throw new RBrokerException("RBroker: " +
+                    "submit failed, cause: " + rex.getMessage(), rex);
+        }
+
+    }
+
+    public RTaskBatch submitAll(Collection<? extends RTask> tasks)
+            throws RBrokerException {
+        return submitAll(tasks, false);
+    }
+
+    public RTaskBatch submitAll(Collection<? extends RTask> tasks,
+                                boolean priority)
+            throws RBrokerException {
+        return submitAll(tasks, priority ? highestPriority() : 0);
+    }
+
+    public RTaskBatch submitAll(Collection<? extends RTask> tasks,
+                                int priority)
+            throws RBrokerException {
+
+        validatePriority(priority);
+
+        if (refreshingConfig.get()) {
+            throw new RBrokerException("RTask submissions temporarily " +
+                    "disabled while RBroker configuration refreshes.");
+        }
+
+        if (draining) {
+            throw new RBrokerException("RTask submissions " +
+                    "disabled while RBroker drains.");
+        }
+
+        int batchSize = tasks.size();
+        List<RTask> clonedTasks = new ArrayList<RTask>(batchSize);
+        List<RTaskToken> rTaskTokens = new ArrayList<RTaskToken>(batchSize);
+        RTaskTracer taskTracer = brokerConfig.taskTracer;
+        List<TaskTrace> traces = (taskTracer != null) ?
+                new ArrayList<TaskTrace>(batchSize) : null;
+        int capacityHeld = 0;
+
+        try {
+
+            for (RTask task : tasks) {
+                clonedTasks.add(cloneTask(task));
+                rTaskTokens.add(new RTaskTokenImpl(task));
+                if (traces != null) {
+                    traces.add(TaskTrace.start(taskTracer, task));
                 }
+            }
+
+            /*
+             * Capacity for the entire batch is acquired in a single
+             * operation, so a batch is either accepted or rejected as
+             * a whole. TaskOverflowPolicy.CALLER_RUNS does not apply
+             * to batches.
+             */
+            TaskOverflowPolicy overflowPolicy =
+                    (brokerConfig.overflowPolicy == TaskOverflowPolicy.BLOCK) ?
+                            TaskOverflowPolicy.BLOCK : TaskOverflowPolicy.REJECT;
 
+            if (!acquirePendingCapacity(batchSize, overflowPolicy)) {
+                totalTasksRejected.addAndGet(batchSize);
                 throw new RBrokerException("Broker at capacity ( " +
-                        MAX_TASK_QUEUE_SIZE + " ), rejecting task " + clonedTask);
+                        brokerConfig.maxPendingTaskLimit +
+                        " ), rejecting batch of " + batchSize + " tasks.");
             }
+            capacityHeld = batchSize;
 
-            return rTaskToken;
+            PendingTaskQueue pendingQueue = pendingTaskQueues.get(priority);
+
+            for (int i = 0; i < batchSize; i++) {
+                RTask clonedTask = clonedTasks.get(i);
+                TaskTrace trace = (traces != null) ? traces.get(i) : null;
+                taskTokenListenerMap.put(clonedTask, rTaskTokens.get(i));
+                onPending(rTaskTokens.get(i), clonedTask, priority, trace);
+                if (trace != null) {
+                    trace.beginStage(RTaskStage.QUEUE);
+                }
+                pendingQueue.offer(new PendingTask(clonedTask, priority, trace));
+                capacityHeld--;
+            }
+
+            /*
+             * Wake RBrokerWorkerManager, RTask batch ready for dispatch.
+             */
+            totalTasksSubmitted.addAndGet(batchSize);
+            pendingTaskSignal.release(batchSize);
+            schedulerWakeup.release();
+
+            return new RTaskBatchImpl(rTaskTokens);
 
         } catch (Exception rex) {
+
+            /*
+             * Undo setup for RTaskToken on the rejected batch,
+             * returning pending capacity for tasks never enqueued.
+             */
+            for (RTask clonedTask : clonedTasks) {
+                taskTokenListenerMap.remove(clonedTask);
+            }
+            if (capacityHeld > 0) {
+                releasePendingCapacity(capacityHeld);
+            }
+            if (traces != null) {
+                for (TaskTrace trace : traces) {
+                    trace.end(rex);
+                }
+            }
+
+            if (rex instanceof RBrokerException) {
+                throw (RBrokerException) rex;
+            }
             throw new RBrokerException("RBroker: " +
-                    "submit failed, cause: " + rex.getMessage(), rex);
+                    "submitAll failed, cause: " + rex.getMessage(), rex);
         }
+    }
+
+    public RTaskFuture<RTaskResult> submitAsync(RTask task)
+            throws RBrokerException {
+        return submitAsync(task, false);
+    }
+
+    public RTaskFuture<RTaskResult> submitAsync(RTask task, boolean priority)
+            throws RBrokerException {
+        return submitAsync(task, priority ? highestPriority() : 0);
+    }
+
+    public RTaskFuture<RTaskResult> submitAsync(RTask task, int priority)
+            throws RBrokerException {
 
+        /*
+         * Delegate to submit(), honoring any task validation
+         * enforced by the concrete RBrokerEngine.
+         */
+        RTaskTokenImpl rTaskToken = (RTaskTokenImpl) submit(task, priority);
+        return rTaskToken.getCompletion();
     }
 
     public void addTaskListener(RTaskListener taskListener)
@@ -377,35 +766,133 @@ public abstract class RBrokerEngine implements RBroker {
     }
 
     public int maxConcurrency() {
-        return this.parallelTaskLimit.get();
+        return Math.min(this.parallelTaskLimit.get(), dispatchLimit);
     }
 
     public RBrokerStatus status() {
 
         /*
          * Pending tasks include all tasks on
-         * high and low priority queues.
+         * all priority level queues.
+         */
+        int pendingTasks = 0;
+        int[] pendingTasksByPriority = new int[pendingTaskQueues.size()];
+        Map<String, Integer> pendingTasksByTenant =
+                new HashMap<String, Integer>();
+        for (int i = 0; i < pendingTasksByPriority.length; i++) {
+            pendingTasksByPriority[i] =
+                    pendingTaskQueues.get(i).size(pendingTasksByTenant);
+            pendingTasks += pendingTasksByPriority[i];
+        }
+        /*
+         * Count dispatched tasks directly, resource tokens held
+         * out of the pool (pinned, quarantined, refreshing) are
+         * not executing tasks.
          */
-        int pendingTasks = pendingHighPriorityQueue.size() +
-                pendingLowPriorityQueue.size();
-        int executingTasks =
-                parallelTaskLimit.get() - resourceTokenPool.size();
+        int executingTasks = executingTaskTokens.size();
 
         return new RBrokerStatus(pendingTasks,
-                executingTasks);
+                executingTasks, pendingTasksByPriority, pendingTasksByTenant);
+    }
+
+    public RBrokerMetrics metrics() {
+        return brokerMetrics;
+    }
+
+    public List<RBrokerLatencyStats> intervalLatencyStats() {
+        return buildLatencyStats(true);
+    }
+
+    public void resetLatencyStats() {
+        for (int i = 0; i < taskLatencies.length(); i++) {
+            TaskLatency latency = taskLatencies.get(i);
+            if (latency != null) {
+                latency.reset();
+            }
+        }
     }
 
     public RBrokerStatus flush() {
 
         /*
          * Flush all pending tasks from
-         * high and low priority queues.
+         * all priority level queues.
          */
-        pendingHighPriorityQueue.clear();
-        pendingLowPriorityQueue.clear();
+        for (PendingTaskQueue pendingQueue : pendingTaskQueues) {
+            flushQueue(pendingQueue);
+        }
+        return status();
+    }
+
+    public RBrokerStatus flush(int priority) throws RBrokerException {
+
+        validatePriority(priority);
+        flushQueue(pendingTaskQueues.get(priority));
         return status();
     }
 
+    public void pause() {
+        dispatchPaused = true;
+    }
+
+    public void resume() {
+
+        synchronized (dispatchMonitor) {
+            dispatchPaused = false;
+            draining = false;
+            dispatchMonitor.notifyAll();
+        }
+    }
+
+    public boolean isPaused() {
+        return dispatchPaused;
+    }
+
+    public boolean drain(long timeout) throws InterruptedException {
+        return drain(timeout, false);
+    }
+
+    public boolean drain(long timeout, boolean stayClosed)
+            throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + timeout;
+        boolean drained = false;
+
+        synchronized (dispatchMonitor) {
+            draining = true;
+            try {
+                while (brokerMetrics.getPendingTasks() > 0 ||
+                        !parkedTasks.isEmpty() ||
+                        dispatchedTasks.get() > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0 || !taskBrokerIsActive.get()) {
+                        return false;
+                    }
+                    dispatchMonitor.wait(remaining);
+                }
+                drained = true;
+            } finally {
+                /*
+                 * Drain timed out or was interrupted, accept
+                 * submissions again unless asked to stay closed.
+                 */
+                if (!drained && !stayClosed) {
+                    draining = false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int resizeConcurrency(int limit) {
+
+        synchronized (dispatchMonitor) {
+            dispatchLimit = (limit > 0) ? limit : Integer.MAX_VALUE;
+            dispatchMonitor.notifyAll();
+        }
+        return maxConcurrency();
+    }
+
     public boolean isConnected() {
 
         boolean connected = false;
@@ -448,7 +935,26 @@ public abstract class RBrokerEngine implements RBroker {
     @Override
     public void shutdown() {
 
-        taskBrokerIsActive.set(false);
+        if (taskBrokerIsActive.getAndSet(false) &&
+                brokerConfig.metricsExporter != null) {
+            try {
+                brokerConfig.metricsExporter.unregister(brokerMetrics);
+            } catch (Exception mex) {
+            }
+        }
+
+        if (managementName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .unregisterMBean(managementName);
+            } catch (Exception jex) {
+            }
+            managementName = null;
+        }
+
+        synchronized (dispatchMonitor) {
+            dispatchMonitor.notifyAll();
+        }
 
         try {
 
@@ -477,7 +983,7 @@ public abstract class RBrokerEngine implements RBroker {
                         for (Object resToken : resourceTokenPool) {
                             if (resToken instanceof RProject) {
                                 RProject projectToken =
-                                        (RProject) resourceToken;
+                                        (RProject) resToken;
                                 try {
                                     projectToken.close();
                                 } catch (Exception pex) {
@@ -503,6 +1009,10 @@ public abstract class RBrokerEngine implements RBroker {
             brokerEngineExecutor.shutdownNow();
         } catch (Exception bex) {
         }
+        try {
+            deadlineExecutor.shutdownNow();
+        } catch (Exception dex) {
+        }
         try {
             taskWorkerExecutor.shutdownNow();
         } catch (Exception tex) {
@@ -526,6 +1036,29 @@ public abstract class RBrokerEngine implements RBroker {
 
     protected abstract RTask cloneTask(RTask genesis);
 
+    /*
+     * Resubmit an executing RTask, following a transient resource
+     * failure, on the highest priority level. Called from callback()
+     * on the worker thread ahead of the failed execution completing.
+     *
+     * The failed RTaskResult is marked repeatTask, so it is not
+     * delivered to the RTaskListener, and the RTaskToken of the failed
+     * execution is chained onto the RTaskToken of the repeat, so
+     * RTaskFuture and RTaskBatch callers see the outcome of the repeat.
+     */
+    protected void repeatTask(RTask task, RTaskResult result)
+            throws RBrokerException {
+
+        RTaskToken repeatToken = submit(task, highestPriority());
+
+        ((RTaskResultImpl) result).repeatTask = true;
+        RTaskToken rTaskToken = executingTaskTokens.get(task);
+        if (rTaskToken instanceof RTaskTokenImpl) {
+            ((RTaskTokenImpl) rTaskToken).repeatOn(
+                    (RTaskTokenImpl) repeatToken);
+        }
+    }
+
     protected abstract RBrokerWorker createBrokerWorker(RTask task,
                                                         long taskIndex,
                                                         boolean isPriorityTask,
@@ -533,130 +1066,1640 @@ public abstract class RBrokerEngine implements RBroker {
                                                         RBrokerEngine brokerEngine);
 
     /*
-     * RBrokerEngine: private implementation.
+     * Await next available resource token in pool for RTask.
+     * Subclasses override to prefer particular resource tokens,
+     * e.g. RProject already holding the state the RTask needs.
+     *
+     * Subclasses return null to park an RTask that must await a
+     * particular resource token currently in use, rather than block
+     * dispatch of every other RTask. A parked RTask is dispatched
+     * once handed back on resumeTask().
      */
-    private class RBrokerWorkerManager implements Runnable {
+    protected Object takeResourceToken(RTask task)
+            throws InterruptedException {
+        return resourceTokenPool.take();
+    }
 
-        public void run() {
+    /*
+     * Hand an RTask parked on takeResourceToken() back for dispatch
+     * on resourceToken, or on a resource token taken afresh for the
+     * RTask when resourceToken is null.
+     */
+    protected void resumeTask(RTask task, Object resourceToken) {
 
-            try {
+        readyTasks.offer(new ReadyTask(task, resourceToken));
+        pendingTaskSignal.release();
+        schedulerWakeup.release();
+    }
 
-                /*
-                 * Signal to constructor that the brokerEngineExecutor
-                 * thread is fully initialized and active, allowing
-                 * the constructor to return safely to caller.
-                 */
-                engineInitialized.release();
+    /*
+     * Return a resource token taken for, or handed back on
+     * resumeTask() to, an RTask that was never dispatched.
+     * Subclasses override where the resource token is held
+     * for particular RTask rather than returned to the pool.
+     */
+    protected void releaseResourceToken(RTask task, Object resourceToken) {
+        resourceTokenPool.add(resourceToken);
+    }
 
-                while (taskBrokerIsActive.get()) {
+    /*
+     * Add resource tokens to the live resourceTokenPool, growing
+     * parallelTaskLimit and the taskWorkerExecutor to match.
+     */
+    protected void addResourceTokens(Collection<?> resourceTokens) {
 
-                    RTask nextTaskInQueue = null;
+        int size = parallelTaskLimit.addAndGet(resourceTokens.size());
+        resizeWorkerExecutor(size);
+        resourceTokenPool.addAll(resourceTokens);
+    }
 
-                    /*
-                     * Await next queued Task.
-                     */
-                    boolean priorityTaskAvailable = false;
-                    while (nextTaskInQueue == null &&
-                            taskBrokerIsActive.get()) {
+    /*
+     * Permanently remove a resource token, not currently on the
+     * resourceTokenPool, shrinking parallelTaskLimit and the
+     * taskWorkerExecutor to match. Returns the new parallelTaskLimit.
+     */
+    protected int retireResourceToken() {
 
-                        /*
-                         * Retrieves but does not remove the task
-                         * at the head of the queue.
-                         */
+        int size = parallelTaskLimit.decrementAndGet();
+        resizeWorkerExecutor(size);
+        return size;
+    }
 
-                        nextTaskInQueue = pendingHighPriorityQueue.peek();
-                        if (nextTaskInQueue == null) {
-                            nextTaskInQueue = pendingLowPriorityQueue.peek();
-                            priorityTaskAvailable = false;
-                        } else {
-                            priorityTaskAvailable = true;
-                        }
+    private synchronized void resizeWorkerExecutor(int size) {
 
-                        if (nextTaskInQueue == null) {
-                            try {
-                                /*
-                                 * Avoid busy-wait, sleep.
-                                 */
-                                Thread.currentThread().sleep(50);
-                            } catch (Exception tex) {
+        if (size > 0 && taskWorkerExecutor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor executor =
+                    (ThreadPoolExecutor) taskWorkerExecutor;
+            /*
+             * Order updates so core size never exceeds max size.
+             */
+            if (size > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(size);
+                executor.setCorePoolSize(size);
+            } else {
+                executor.setCorePoolSize(size);
+                executor.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    /*
+     * Creates pending RTask queue per RBrokerConfig.pendingTaskQueueType,
+     * one for each tenant on each priority level.
+     *
+     * Queues are unbounded so offers always succeed, the
+     * maxPendingTaskLimit being enforced once across the broker
+     * by pendingTaskCapacity. A BOUNDED_ARRAY queue per tenant and
+     * level would multiply that limit, and its storage, by tenants
+     * times levels.
+     */
+    private Queue<PendingTask> createPendingQueue() {
+
+        switch (brokerConfig.pendingTaskQueueType) {
+
+            case CONCURRENT:
+                return new ConcurrentLinkedQueue<PendingTask>();
+
+            default:
+                return new LinkedBlockingQueue<PendingTask>();
+        }
+    }
+
+    private int highestPriority() {
+        return pendingTaskQueues.size() - 1;
+    }
+
+    protected void validatePriority(int priority) throws RBrokerException {
+
+        if (priority < 0 || priority > highestPriority()) {
+            throw new RBrokerException("RBroker: priority " + priority +
+                    " outside configured range [ 0, " +
+                    highestPriority() + " ].");
+        }
+    }
+
+    /*
+     * Retrieves and removes the next PendingTask for dispatch,
+     * called only on the RBrokerWorkerManager.
+     *
+     * Each priority level is ranked on its level plus one level for
+     * each priorityAgingInterval its longest waiting task has spent
+     * pending, ties going to the higher level. With aging disabled
+     * this results in strict priority ordering. Levels are tried in
+     * rank order, passing over a level where every pending task
+     * belongs to a tenant at its resource token quota.
+     */
+    private PendingTask pollPendingTask() {
+
+        long agingInterval = brokerConfig.priorityAgingInterval;
+        long now = System.currentTimeMillis();
+
+        int levels = pendingTaskQueues.size();
+        long[] ranks = new long[levels];
+
+        for (int level = 0; level < levels; level++) {
+
+            long enqueueTime = pendingTaskQueues.get(level).oldestEnqueueTime();
+            if (enqueueTime < 0) {
+                ranks[level] = Long.MIN_VALUE;
+                continue;
+            }
+
+            ranks[level] = level;
+            if (agingInterval > 0) {
+                ranks[level] += (now - enqueueTime) / agingInterval;
+            }
+        }
+
+        while (true) {
+
+            int selectedLevel = -1;
+            for (int level = levels - 1; level >= 0; level--) {
+                if (ranks[level] != Long.MIN_VALUE &&
+                        (selectedLevel < 0 ||
+                                ranks[level] > ranks[selectedLevel])) {
+                    selectedLevel = level;
+                }
+            }
+
+            if (selectedLevel < 0) {
+                return null;
+            }
+
+            PendingTask pendingTask =
+                    pendingTaskQueues.get(selectedLevel).pollNext();
+            if (pendingTask != null) {
+                return pendingTask;
+            }
+            ranks[selectedLevel] = Long.MIN_VALUE;
+        }
+    }
+
+    private boolean hasPendingTasks() {
+
+        for (PendingTaskQueue pendingQueue : pendingTaskQueues) {
+            if (pendingQueue.oldestEnqueueTime() >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    /*
+     * Flush all pending tasks from a single priority level queue.
+     */
+    /*
+     * Register withdrawal of RTask on its RTaskToken,
+     * see cancelPending().
+     */
+    private void onPending(RTaskToken rTaskToken,
+                           final RTask task,
+                           final int priority,
+                           final TaskTrace trace) {
+
+        ((RTaskTokenImpl) rTaskToken).onPending(
+                new RTaskTokenImpl.PendingCancellation() {
+
+            public boolean withdraw() {
+                return cancelPending(task, priority, trace);
+            }
+        });
+    }
+
+    /*
+     * Withdraw RTask cancelled while pending dispatch, returning
+     * false once the RBrokerWorkerManager has claimed it. An RTask
+     * already taken off its queue, awaiting a resource token or
+     * parked, is passed over by the RBrokerWorkerManager.
+     */
+    private boolean cancelPending(RTask task, int priority, TaskTrace trace) {
+
+        if (taskTokenListenerMap.remove(task) == null) {
+            return false;
+        }
+        if (pendingTaskQueues.get(priority).remove(task)) {
+            releasePendingCapacity(1);
+        }
+        parkedTasks.remove(task);
+        if (trace != null) {
+            trace.end(new CancellationException("RTask " +
+                    "cancelled before execution"));
+        }
+        signalDispatch();
+        return true;
+    }
+
+    private void flushQueue(PendingTaskQueue pendingQueue) {
+
+        int flushedTasks = 0;
+        PendingTask flushedTask;
+        while ((flushedTask = pendingQueue.poll()) != null) {
+            /*
+             * Release RTaskToken registrations held for flushed tasks,
+             * failing each RTaskToken so waiters are released.
+             */
+            RTaskTokenListener taskTokenListener =
+                    taskTokenListenerMap.remove(flushedTask.task);
+            if (taskTokenListener != null) {
+                failTask(flushedTask.task, (RTaskToken) taskTokenListener,
+                        flushedTask.trace, "RTask flushed before " +
+                                "dispatch, task " + flushedTask.task);
+            }
+            flushedTasks++;
+        }
+        releasePendingCapacity(flushedTasks);
+        signalDispatch();
+    }
+
+    /*
+     * Reserve a dispatch slot ahead of taking an RTask off the
+     * pendingTaskQueues, waiting while dispatch is paused or
+     * dispatchLimit RTask are already dispatched.
+     */
+    private void acquireDispatch() throws InterruptedException {
+
+        if (dispatchPaused || dispatchedTasks.get() >= dispatchLimit) {
+            synchronized (dispatchMonitor) {
+                while (taskBrokerIsActive.get() &&
+                        (dispatchPaused ||
+                                dispatchedTasks.get() >= dispatchLimit)) {
+                    dispatchMonitor.wait();
+                }
+            }
+        }
+        dispatchedTasks.incrementAndGet();
+    }
+
+    /*
+     * Release dispatch slot, on completion of a dispatched
+     * RTask or when no RTask was dispatched on the slot.
+     */
+    private void releaseDispatch() {
+        dispatchedTasks.decrementAndGet();
+        signalDispatch();
+    }
+
+    /*
+     * Wake threads on dispatchMonitor, only needed while
+     * concurrency is capped or the broker is draining.
+     */
+    private void signalDispatch() {
+
+        if (draining || dispatchLimit != Integer.MAX_VALUE) {
+            synchronized (dispatchMonitor) {
+                dispatchMonitor.notifyAll();
+            }
+        }
+    }
+
+    /*
+     * Record metrics counters and latencies for RTask on completion.
+     * RTask repeated by the broker are recorded as retried, their
+     * latencies recorded once, on their final execution.
+     */
+    private void recordCompletion(Future<RTaskResult> execution,
+                                  int priority,
+                                  long timeOnPending) {
+
+        RTaskResult result = null;
+        try {
+            result = execution.get();
+        } catch (Exception ex) {
+        }
+
+        if (result != null && result.getFailure() instanceof RGridException) {
+            totalGridFailures.incrementAndGet();
+        }
+
+        if (result instanceof RTaskResultImpl &&
+                ((RTaskResultImpl) result).repeatTask) {
+            totalTasksRetried.incrementAndGet();
+            return;
+        }
+
+        totalTasksCompleted.incrementAndGet();
+        if (result == null || !result.isSuccess()) {
+            totalTasksFailed.incrementAndGet();
+        }
+
+        if (result == null || result.getType() == null) {
+            return;
+        }
+
+        totalTasksCompletedByType.incrementAndGet(result.getType().ordinal());
+
+        int index = result.getType().ordinal() *
+                pendingTaskQueues.size() + priority;
+        TaskLatency latency = taskLatencies.get(index);
+        if (latency == null) {
+            taskLatencies.compareAndSet(index, null, new TaskLatency());
+            latency = taskLatencies.get(index);
+        }
+
+        latency.timeOnPending.record(timeOnPending);
+        latency.timeOnCall.record(result.getTimeOnCall());
+        latency.timeOnServer.record(result.getTimeOnServer());
+        latency.timeOnCode.record(result.getTimeOnCode());
+    }
+
+    /*
+     * Failure on completed RTask execution, null on success.
+     */
+    private static Throwable failureOf(Future<?> execution) {
+
+        try {
+            Object result = execution.get();
+            return (result instanceof RTaskResult) ?
+                    ((RTaskResult) result).getFailure() : null;
+        } catch (ExecutionException eex) {
+            return eex.getCause();
+        } catch (Exception ex) {
+            return ex;
+        }
+    }
+
+    private List<RBrokerLatencyStats> buildLatencyStats(boolean interval) {
+
+        List<RBrokerLatencyStats> latencyStats =
+                new ArrayList<RBrokerLatencyStats>();
+        RTaskType[] taskTypes = RTaskType.values();
+        int levels = pendingTaskQueues.size();
+
+        for (int i = 0; i < taskLatencies.length(); i++) {
+            TaskLatency latency = taskLatencies.get(i);
+            if (latency != null) {
+                latencyStats.add(latency.buildStats(taskTypes[i / levels],
+                        i % levels, interval));
+            }
+        }
+        return latencyStats;
+    }
+
+    private TenantAccount tenantAccount(String tenant) {
+
+        TenantAccount account = tenantAccounts.get(tenant);
+        if (account == null) {
+            TenantAccount created = new TenantAccount(tenant);
+            account = tenantAccounts.putIfAbsent(tenant, created);
+            if (account == null)
+                account = created;
+        }
+        return account;
+    }
+
+    /*
+     * Drop the TenantQueue on every priority level and the
+     * TenantAccount of a tenant with no task pending or
+     * executing, so per-request or per-user tenant keys
+     * do not accumulate.
+     */
+    private void evictIdleTenant(String tenant) {
+
+        TenantAccount account = tenantAccounts.get(tenant);
+        if (account != null && account.executingTasks.get() > 0) {
+            return;
+        }
+        for (int i = 0; i < pendingTaskQueues.size(); i++) {
+            if (!pendingTaskQueues.get(i).retire(tenant)) {
+                return;
+            }
+        }
+        if (account != null && account.executingTasks.get() == 0) {
+            tenantAccounts.remove(tenant, account);
+        }
+    }
+
+    private boolean tenantAtQuota(String tenant) {
+
+        int quota = tenantTokenQuota(tenant);
+        return quota > 0 &&
+                tenantAccount(tenant).executingTasks.get() >= quota;
+    }
+
+    /*
+     * Maximum number of resource tokens tenant can hold
+     * concurrently, 0 indicating no quota. Overridden by
+     * concrete implementations of RBrokerEngine supporting
+     * per-tenant quotas.
+     */
+    protected int tenantTokenQuota(String tenant) {
+        return 0;
+    }
+
+    private static String tenantOf(RTask task) {
+        String tenant = (task instanceof AbstractTask) ?
+                ((AbstractTask) task).getTenant() : null;
+        return (tenant != null) ? tenant : RBrokerConfig.DEFAULT_TENANT;
+    }
+
+    private static long deadlineOf(RTask task) {
+        return (task instanceof AbstractTask) ?
+                ((AbstractTask) task).getDeadline() : 0L;
+    }
+
+    /*
+     * Acquire space for permits RTask on the pending queues. Returns
+     * false when space is not available under the overflowPolicy.
+     */
+    private boolean acquirePendingCapacity(int permits,
+                                           TaskOverflowPolicy overflowPolicy)
+            throws InterruptedException {
+
+        if (pendingTaskCapacity == null) {
+            return true;
+        }
+
+        if (overflowPolicy == TaskOverflowPolicy.BLOCK) {
+            if (brokerConfig.overflowTimeout > 0) {
+                return pendingTaskCapacity.tryAcquire(permits,
+                        brokerConfig.overflowTimeout, TimeUnit.MILLISECONDS);
+            }
+            if (permits > brokerConfig.maxPendingTaskLimit) {
+                /*
+                 * Batch can never fit, reject rather than wait forever.
+                 */
+                return false;
+            }
+            pendingTaskCapacity.acquire(permits);
+            return true;
+        } else {
+            return pendingTaskCapacity.tryAcquire(permits);
+        }
+    }
+
+    private void releasePendingCapacity(int permits) {
+
+        if (pendingTaskCapacity != null && permits > 0) {
+            pendingTaskCapacity.release(permits);
+        }
+    }
+
+    /*
+     * Prepare RBrokerWorker execution for RTask holding resourceToken,
+     * registering the Future for the execution on the RTaskToken.
+     */
+    private RTaskExecution prepareExecution(RTask task,
+                                            RTaskToken rTaskToken,
+                                            int priority,
+                                            long enqueueTime,
+                                            long submitTime,
+                                            long dequeueTime,
+                                            Object resourceToken,
+                                            TaskTrace trace) {
+
+        long tokenAcquiredTime = System.nanoTime();
+        if (trace != null) {
+            trace.endStage(null);
+        }
+
+        RBrokerWorker worker =
+                createBrokerWorker(task,
+                        executorTaskCounter.getAndIncrement(),
+                        priority == highestPriority(),
+                        resourceToken,
+                        this);
+
+        taskResourceTokenMap.put(task, resourceToken);
+
+        /*
+         * Register Future on RTaskToken ahead of
+         * execution so RTaskExecution.done() always
+         * publishes a token holding its Future.
+         */
+        TenantAccount account = tenantAccount(tenantOf(task));
+        account.executingTasks.incrementAndGet();
+
+        long timeOnPending = System.currentTimeMillis() - enqueueTime;
+        totalTasksDispatched.incrementAndGet();
+        totalTimeTasksPending.addAndGet(timeOnPending);
+
+        RTaskExecution execution = new RTaskExecution(worker, rTaskToken,
+                account, timeOnPending, priority);
+        execution.submitTime = submitTime;
+        execution.dequeueTime = dequeueTime;
+        execution.tokenAcquiredTime = tokenAcquiredTime;
+        execution.trace = trace;
+        execution.task = task;
+        executingTaskTokens.put(task, rTaskToken);
+        rTaskToken.onTask(task, execution);
+
+        if (deadlineOf(task) > 0) {
+            long remaining = deadlineOf(task) - System.currentTimeMillis();
+            execution.deadlineEnforcer =
+                    new DeadlineEnforcer(execution, worker);
+            execution.deadlineFuture = deadlineExecutor.schedule(
+                    execution.deadlineEnforcer,
+                    remaining, TimeUnit.MILLISECONDS);
+        }
+        return execution;
+    }
+
+    /*
+     * Complete the RTaskToken for an RTask whose deadline passed
+     * while pending, without execution.
+     */
+    private void expireTask(RTask task,
+                            RTaskToken rTaskToken,
+                            TaskTrace trace) {
+
+        failTask(task, rTaskToken, trace, "RTask deadline " +
+                "expired before dispatch, task " + task);
+    }
+
+    /*
+     * Complete the RTaskToken for a pending RTask with an
+     * RBrokerException, without execution. The failure is
+     * delivered to the RTaskFuture and RTaskListener as for
+     * any failed RTask.
+     */
+    private void failTask(RTask task,
+                          RTaskToken rTaskToken,
+                          TaskTrace trace,
+                          final String reason) {
+
+        RTaskExecution execution =
+                new RTaskExecution(new RBrokerWorker() {
+
+                    public RTaskResult call() throws RBrokerException {
+                        throw new RBrokerException(reason);
+                    }
+
+                    public void interrupt() {
+                    }
+
+                }, rTaskToken);
+        execution.trace = trace;
+        rTaskToken.onTask(task, execution);
+        execution.run();
+    }
+
+    /*
+     * TaskOverflowPolicy.CALLER_RUNS, execute RTask on the
+     * submitting thread once a resource token is available.
+     */
+    private void executeOnCaller(RTask task,
+                                 RTaskToken rTaskToken,
+                                 int priority,
+                                 TaskTrace trace)
+            throws InterruptedException {
+
+        long enqueueTime = System.currentTimeMillis();
+        long submitTime = System.nanoTime();
+        if (trace != null) {
+            trace.beginStage(RTaskStage.TOKEN_WAIT);
+        }
+        acquireDispatch();
+
+        /*
+         * Registered ahead of takeResourceToken() so an RTask
+         * parked there can be dispatched on resumeTask().
+         */
+        taskTokenListenerMap.put(task, rTaskToken);
+        parkedTasks.put(task, new PendingTask(task, priority, trace));
+        Object resourceToken = null;
+        try {
+            resourceToken = takeResourceToken(task);
+        } catch (InterruptedException iex) {
+            parkedTasks.remove(task);
+            taskTokenListenerMap.remove(task);
+            releaseDispatch();
+            throw iex;
+        }
+        if (resourceToken == null) {
+            /*
+             * Parked, dispatched by the RBrokerWorkerManager.
+             */
+            releaseDispatch();
+            return;
+        }
+        parkedTasks.remove(task);
+        taskTokenListenerMap.remove(task);
+        prepareExecution(task, rTaskToken,
+                priority, enqueueTime, submitTime,
+                submitTime, resourceToken, trace).run();
+    }
+
+    /*
+     * RBrokerEngine: private implementation.
+     */
+    private class RBrokerWorkerManager implements Runnable {
+
+        public void run() {
+
+            try {
+
+                /*
+                 * Signal to constructor that the brokerEngineExecutor
+                 * thread is fully initialized and active, allowing
+                 * the constructor to return safely to caller.
+                 */
+                engineInitialized.release();
+
+                while (taskBrokerIsActive.get()) {
+
+                    /*
+                     * Await next queued Task. Blocks until
+                     * submit() signals a new task is pending.
+                     */
+                    pendingTaskSignal.acquire();
+                    schedulerWakeup.drainPermits();
+
+                    /*
+                     * Await dispatch slot, see pause() and
+                     * resizeConcurrency(). The slot is held until
+                     * the dispatched task completes.
+                     */
+                    acquireDispatch();
+                    boolean taskDispatched = false;
+
+                    /*
+                     * Retrieves and removes the next task in
+                     * priority order, see pollPendingTask(),
+                     * parked tasks handed back on resumeTask()
+                     * taking precedence.
+                     *
+                     * Note, a permit may outlive its task following
+                     * a flush() so an empty poll is simply ignored.
+                     */
+                    ReadyTask readyTask = readyTasks.poll();
+                    PendingTask pendingTask = (readyTask != null) ?
+                            parkedTasks.remove(readyTask.task) :
+                            pollPendingTask();
+                    long dequeueTime = System.nanoTime();
+                    RTask nextTaskInQueue = null;
+                    Object resourceToken = (readyTask != null) ?
+                            readyTask.resourceToken : null;
+
+                    if (readyTask == null &&
+                            pendingTask == null && hasPendingTasks()) {
+                        /*
+                         * Every pending task belongs to a tenant at
+                         * its resource token quota. Return permit and
+                         * await a submission or a released token.
+                         */
+                        releaseDispatch();
+                        pendingTaskSignal.release();
+                        schedulerWakeup.acquire();
+                        continue;
+                    }
+
+                    if (pendingTask != null) {
+                        nextTaskInQueue = pendingTask.task;
+                        if (readyTask == null) {
+                            releasePendingCapacity(1);
+                        }
+                    } else if (resourceToken != null) {
+                        releaseResourceToken(readyTask.task, resourceToken);
+                        resourceToken = null;
+                    }
+
+                    /*
+                     * Drop task whose deadline has already passed,
+                     * ahead of waiting on a resource token. A parked
+                     * task resumed on a resource token hands it back.
+                     */
+                    if (nextTaskInQueue != null &&
+                            deadlineOf(nextTaskInQueue) > 0 &&
+                            deadlineOf(nextTaskInQueue) <
+                                    System.currentTimeMillis()) {
+
+                        if (resourceToken != null) {
+                            releaseResourceToken(nextTaskInQueue,
+                                    resourceToken);
+                        }
+                        RTaskTokenListener taskTokenListener =
+                                taskTokenListenerMap.remove(nextTaskInQueue);
+                        if (taskTokenListener != null) {
+                            expireTask(nextTaskInQueue,
+                                    (RTaskToken) taskTokenListener,
+                                    pendingTask.trace);
+                        }
+                        releaseDispatch();
+                        continue;
+                    }
+
+                    /*
+                     * If task found on queue and taskBroker
+                     * is still active, process task.
+                     */
+                    if (nextTaskInQueue != null &&
+                            taskBrokerIsActive.get()) {
+
+                        if (pendingTask.trace != null &&
+                                readyTask == null) {
+                            pendingTask.trace.beginStage(
+                                    RTaskStage.TOKEN_WAIT);
+                        }
+
+                        /*
+                         * Await next available resource token in pool,
+                         * unless handed one on resumeTask().
+                         */
+                        if (resourceToken == null) {
+
+                            parkedTasks.put(nextTaskInQueue, pendingTask);
+                            resourceToken =
+                                    takeResourceToken(nextTaskInQueue);
+
+                            if (resourceToken == null) {
+                                /*
+                                 * Parked awaiting a particular resource
+                                 * token, see resumeTask().
+                                 */
+                                releaseDispatch();
+                                continue;
                             }
-                        } else {
+                            parkedTasks.remove(nextTaskInQueue);
+                        }
+
+                        boolean resourceTokenInUse = false;
+
+                        try {
+
+                            RTaskTokenListener taskTokenListener =
+                                    taskTokenListenerMap.remove(nextTaskInQueue);
+
+                            if (taskTokenListener != null) {
+
+                                RTaskExecution execution =
+                                        prepareExecution(nextTaskInQueue,
+                                                (RTaskToken) taskTokenListener,
+                                                pendingTask.priority,
+                                                pendingTask.enqueueTime,
+                                                pendingTask.submitTime,
+                                                dequeueTime,
+                                                resourceToken,
+                                                pendingTask.trace);
+                                resourceTokenInUse = true;
+                                taskDispatched = true;
+                                taskWorkerExecutor.execute(execution);
+
+                            }
+                            /*
+                             * Otherwise RTask was cancelled while
+                             * pending, see cancelPending().
+                             */
+
+                        } catch (Exception ex) {
+                            System.out.println("RBrokerEngine: " +
+                                    " processing task " + nextTaskInQueue +
+                                    ", ex=" + ex);
+                        }
+
+                        if (!resourceTokenInUse && resourceToken != null) {
                             /*
-                             * Retrieves and removes the task
-                             * at the head of the queue.
+                             * Return unused resource token.
                              */
-                            nextTaskInQueue = priorityTaskAvailable ?
-                                    pendingHighPriorityQueue.take() :
-                                    pendingLowPriorityQueue.take();
+                            releaseResourceToken(nextTaskInQueue,
+                                    resourceToken);
                         }
+
+                    } // nextTaskInQueue != null
+
+                    if (!taskDispatched) {
+                        releaseDispatch();
+                    }
+
+                } // while taskBrokerIsActive
+
+
+            } catch (InterruptedException iex) {
+                /*
+                 * RBroker.shutdown() interrupts the blocked
+                 * RBrokerWorkerManager, exit quietly.
+                 */
+            } catch (Exception mex) {
+                System.out.println("RBrokerEngine: " +
+                        "brokerEngineExecutor.run ex=" + mex);
+            }
+        }
+
+    }
+
+    /*
+     * PendingTaskQueue holds the PendingTask for a single priority
+     * level, on one TenantQueue per tenant. Tasks are dispatched
+     * across tenants in weighted round-robin order, each tenant
+     * receiving up to its weight in consecutive dispatches per turn. Tenants
+     * with no pending task, or at their resource token quota,
+     * forfeit their turn.
+     */
+    private final class PendingTaskQueue {
+
+        private final ConcurrentHashMap<String, TenantQueue> tenantQueues =
+                new ConcurrentHashMap<String, TenantQueue>();
+
+        /*
+         * Number of pending tasks on level, read by RBrokerMetrics.
+         */
+        private final AtomicInteger depth = new AtomicInteger();
+
+        /*
+         * Incremented as TenantQueue are added and retired,
+         * signalling pollNext() to rebuild its rotation.
+         */
+        private final AtomicInteger membership = new AtomicInteger();
+
+        /*
+         * Round-robin state, accessed only on the
+         * RBrokerWorkerManager by pollNext().
+         */
+        private final List<TenantQueue> rotation = new ArrayList<TenantQueue>();
+        private int rotationMembership = -1;
+        private int cursor = 0;
+        private int servedInTurn = 0;
+
+        private void offer(PendingTask pendingTask) {
+
+            while (true) {
+                TenantQueue tenantQueue = tenantQueues.get(pendingTask.tenant);
+                if (tenantQueue == null) {
+                    TenantQueue created = new TenantQueue(pendingTask.tenant,
+                            createPendingQueue());
+                    tenantQueue = tenantQueues.putIfAbsent(pendingTask.tenant,
+                            created);
+                    if (tenantQueue == null) {
+                        tenantQueue = created;
+                        membership.incrementAndGet();
                     }
+                }
+                /*
+                 * Unbounded, see createPendingQueue(). Retry
+                 * where the TenantQueue was retired meanwhile.
+                 */
+                if (tenantQueue.offer(pendingTask)) {
+                    break;
+                }
+                tenantQueues.remove(pendingTask.tenant, tenantQueue);
+            }
+            depth.incrementAndGet();
+        }
+
+        /*
+         * Retire the TenantQueue for tenant when empty,
+         * returns false while tasks remain pending.
+         */
+        private boolean retire(String tenant) {
+
+            TenantQueue tenantQueue = tenantQueues.get(tenant);
+            if (tenantQueue == null) {
+                return true;
+            }
+            if (!tenantQueue.retire()) {
+                return false;
+            }
+            if (tenantQueues.remove(tenant, tenantQueue)) {
+                membership.incrementAndGet();
+            }
+            return true;
+        }
+
+        /*
+         * Retrieves and removes the next PendingTask in
+         * round-robin order, null where no tenant is eligible.
+         */
+        private PendingTask pollNext() {
+
+            int currentMembership = membership.get();
+            if (rotationMembership != currentMembership) {
+                rotation.clear();
+                rotation.addAll(tenantQueues.values());
+                rotationMembership = currentMembership;
+            }
+
+            int tenants = rotation.size();
+            if (tenants == 0) {
+                return null;
+            }
+            for (int i = 0; i <= tenants; i++) {
+
+                cursor = cursor % tenants;
+                TenantQueue tenantQueue = rotation.get(cursor);
+
+                if (servedInTurn < tenantQueue.weight &&
+                        !tenantAtQuota(tenantQueue.tenant)) {
+                    PendingTask pendingTask = tenantQueue.poll();
+                    if (pendingTask != null) {
+                        servedInTurn++;
+                        depth.decrementAndGet();
+                        return pendingTask;
+                    }
+                    evictIdleTenant(tenantQueue.tenant);
+                }
+
+                cursor++;
+                servedInTurn = 0;
+            }
+            return null;
+        }
+
+        /*
+         * Retrieves and removes any PendingTask, ignoring
+         * round-robin order, used on flush().
+         */
+        private PendingTask poll() {
+
+            for (TenantQueue tenantQueue : tenantQueues.values()) {
+                PendingTask pendingTask = tenantQueue.poll();
+                if (pendingTask != null) {
+                    depth.decrementAndGet();
+                    return pendingTask;
+                }
+            }
+            return null;
+        }
+
+        /*
+         * Removes pending RTask, see cancelPending().
+         */
+        private boolean remove(RTask task) {
+
+            TenantQueue tenantQueue = tenantQueues.get(tenantOf(task));
+            if (tenantQueue != null && tenantQueue.remove(task)) {
+                depth.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        /*
+         * Enqueue time of the longest waiting task at the
+         * head of any tenant queue, -1 when the level is empty.
+         */
+        private long oldestEnqueueTime() {
+
+            long enqueueTime = -1L;
+            for (TenantQueue tenantQueue : tenantQueues.values()) {
+                long tenantEnqueueTime = tenantQueue.oldestEnqueueTime();
+                if (tenantEnqueueTime >= 0 && (enqueueTime < 0 ||
+                        tenantEnqueueTime < enqueueTime))
+                    enqueueTime = tenantEnqueueTime;
+            }
+            return enqueueTime;
+        }
+
+        /*
+         * Number of pending tasks on level, accumulating
+         * per-tenant counts onto pendingTasksByTenant.
+         */
+        private int size(Map<String, Integer> pendingTasksByTenant) {
+
+            int size = 0;
+            for (TenantQueue tenantQueue : tenantQueues.values()) {
+                int tenantSize = tenantQueue.size();
+                if (tenantSize > 0) {
+                    Integer count = pendingTasksByTenant.get(tenantQueue.tenant);
+                    pendingTasksByTenant.put(tenantQueue.tenant,
+                            (count != null) ? count + tenantSize : tenantSize);
+                }
+                size += tenantSize;
+            }
+            return size;
+        }
+    }
+
+    /*
+     * TenantQueue holds the PendingTask for a single tenant on
+     * a priority level. Tasks with a deadline are held in
+     * earliest-deadline-first order ahead of tasks without
+     * a deadline, which are held in FIFO order. Both queues are
+     * unbounded, capacity is enforced by pendingTaskCapacity ahead
+     * of any offer.
+     */
+    private final class TenantQueue {
+
+        private final String tenant;
+        private final int weight;
+        private final Queue<PendingTask> fifoQueue;
+        private boolean retired = false;
+        private final PriorityBlockingQueue<PendingTask> deadlineQueue =
+                new PriorityBlockingQueue<PendingTask>(11,
+                        new Comparator<PendingTask>() {
+                            public int compare(PendingTask t1,
+                                               PendingTask t2) {
+                                long d1 = deadlineOf(t1.task);
+                                long d2 = deadlineOf(t2.task);
+                                return (d1 < d2) ? -1 : ((d1 == d2) ? 0 : 1);
+                            }
+                        });
+
+        private TenantQueue(String tenant, Queue<PendingTask> fifoQueue) {
+            this.tenant = tenant;
+            this.fifoQueue = fifoQueue;
+            Integer tenantWeight = brokerConfig.tenantWeights.get(tenant);
+            this.weight = (tenantWeight != null && tenantWeight > 1) ?
+                    tenantWeight : 1;
+        }
+
+        /*
+         * Returns false, without enqueueing, once retired.
+         */
+        private synchronized boolean offer(PendingTask pendingTask) {
+            if (retired)
+                return false;
+            if (deadlineOf(pendingTask.task) > 0)
+                deadlineQueue.offer(pendingTask);
+            else
+                fifoQueue.offer(pendingTask);
+            return true;
+        }
+
+        private synchronized boolean retire() {
+            if (size() > 0)
+                return false;
+            retired = true;
+            return true;
+        }
+
+        private PendingTask poll() {
+            PendingTask pendingTask = deadlineQueue.poll();
+            return (pendingTask != null) ? pendingTask : fifoQueue.poll();
+        }
+
+        private synchronized boolean remove(RTask task) {
+            Queue<PendingTask> queue = (deadlineOf(task) > 0) ?
+                    deadlineQueue : fifoQueue;
+            for (PendingTask pendingTask : queue) {
+                if (pendingTask.task == task) {
+                    return queue.remove(pendingTask);
+                }
+            }
+            return false;
+        }
+
+        private long oldestEnqueueTime() {
+            long enqueueTime = -1L;
+            PendingTask head = deadlineQueue.peek();
+            if (head != null)
+                enqueueTime = head.enqueueTime;
+            head = fifoQueue.peek();
+            if (head != null && (enqueueTime < 0 ||
+                    head.enqueueTime < enqueueTime))
+                enqueueTime = head.enqueueTime;
+            return enqueueTime;
+        }
+
+        private int size() {
+            return deadlineQueue.size() + fifoQueue.size();
+        }
+    }
+
+    /*
+     * DeadlineEnforcer cancels an RTaskExecution still running
+     * when the deadline on its RTask passes, interrupting any
+     * corresponding execution on the DeployR server.
+     *
+     * The RTaskExecution clears the enforcer once its worker exits,
+     * so a cancelled enforcer left on the deadlineExecutor queue
+     * until the deadline no longer holds the RTaskExecution,
+     * RTaskToken or RTaskResult reachable.
+     */
+    private static final class DeadlineEnforcer implements Runnable {
 
-                    /*
-                     * If task found on queue and taskBroker
-                     * is still active, process task.
-                     */
-                    if (nextTaskInQueue != null &&
-                            taskBrokerIsActive.get()) {
+        private volatile RTaskExecution execution;
+        private volatile RBrokerWorker worker;
+
+        private DeadlineEnforcer(RTaskExecution execution,
+                                 RBrokerWorker worker) {
+            this.execution = execution;
+            this.worker = worker;
+        }
+
+        public void run() {
+            RTaskExecution execution = this.execution;
+            RBrokerWorker worker = this.worker;
+            if (execution == null || worker == null) {
+                return;
+            }
+            try {
+                /*
+                 * Cancel only fails where the RTaskExecution has
+                 * already completed, leaving nothing to interrupt.
+                 */
+                if (execution.cancel(true)) {
+                    worker.interrupt();
+                }
+            } catch (Exception dex) {
+                System.out.println("RBrokerEngine: " +
+                        "deadline enforcement failed, ex=" + dex);
+            }
+        }
+
+        private void clear() {
+            execution = null;
+            worker = null;
+        }
+    }
+
+    /*
+     * WorkerCall records whether the RBrokerWorker was ever called,
+     * an RTaskExecution cancelled ahead of execution never calling
+     * its worker so never returning its resource token on callback.
+     */
+    private static final class WorkerCall implements Callable<RTaskResult> {
+
+        private final RBrokerWorker worker;
+        private volatile boolean called;
+
+        private WorkerCall(RBrokerWorker worker) {
+            this.worker = worker;
+        }
+
+        public RTaskResult call() throws Exception {
+            called = true;
+            return worker.call();
+        }
+    }
+
+    /*
+     * ReadyTask, a parked RTask handed back on resumeTask()
+     * and the resource token it is to be dispatched on.
+     */
+    private static final class ReadyTask {
+
+        private final RTask task;
+        private final Object resourceToken;
+
+        private ReadyTask(RTask task, Object resourceToken) {
+            this.task = task;
+            this.resourceToken = resourceToken;
+        }
+    }
+
+    /*
+     * PendingTask records the tenant, priority level and enqueue
+     * time of an RTask held on the pendingTaskQueues.
+     */
+    private static final class PendingTask {
+
+        private final RTask task;
+        private final String tenant;
+        private final int priority;
+        private final long enqueueTime;
+        private final long submitTime;
+        private final TaskTrace trace;
+
+        private PendingTask(RTask task, int priority, TaskTrace trace) {
+            this.task = task;
+            this.tenant = tenantOf(task);
+            this.priority = priority;
+            this.enqueueTime = System.currentTimeMillis();
+            this.submitTime = System.nanoTime();
+            this.trace = trace;
+        }
+    }
+
+    /*
+     * RTaskExecution completes the RTaskFuture on its RTaskToken
+     * directly on the worker thread, then publishes the RTaskToken
+     * onto completedTaskTokens when the RTask completes, fails or
+     * is cancelled.
+     *
+     * A dispatched RTaskExecution cancelled while running completes
+     * its Future on the cancelling thread, while the worker still
+     * holds its resource token. Completion is therefore deferred
+     * until the worker exits run(), keeping executing task counts
+     * and dispatch slots in step with the resource tokens in use.
+     */
+    private class RTaskExecution extends FutureTask<RTaskResult> {
+
+        private final RTaskToken rTaskToken;
+        private final TenantAccount account;
+        private final long timeOnPending;
+        private final int priority;
+
+        /*
+         * System.nanoTime() timestamps recorded on the
+         * RTaskResult once the RTask completes.
+         */
+        private long submitTime;
+        private long dequeueTime;
+        private long tokenAcquiredTime;
+        private volatile long executionStartTime;
+
+        /*
+         * TaskTrace for RTask, null unless RBrokerConfig.taskTracer
+         * was enabled when the RTask was submitted.
+         */
+        private TaskTrace trace;
+
+        /*
+         * RTask passed to the RBrokerWorker, null when not dispatched.
+         */
+        private RTask task;
+
+        /*
+         * DeadlineEnforcer scheduled on deadlineExecutor, null
+         * unless the RTask was submitted with a deadline.
+         */
+        private DeadlineEnforcer deadlineEnforcer;
+        private ScheduledFuture<?> deadlineFuture;
+
+        private final WorkerCall workerCall;
+
+        public RTaskExecution(RBrokerWorker worker, RTaskToken rTaskToken) {
+            this(worker, rTaskToken, null, 0L, 0);
+        }
+
+        public RTaskExecution(RBrokerWorker worker,
+                              RTaskToken rTaskToken,
+                              TenantAccount account,
+                              long timeOnPending,
+                              int priority) {
+            this(new WorkerCall(worker), rTaskToken,
+                    account, timeOnPending, priority);
+        }
 
+        private RTaskExecution(WorkerCall workerCall,
+                               RTaskToken rTaskToken,
+                               TenantAccount account,
+                               long timeOnPending,
+                               int priority) {
+            super(workerCall);
+            this.workerCall = workerCall;
+            this.rTaskToken = rTaskToken;
+            this.account = account;
+            this.timeOnPending = timeOnPending;
+            this.priority = priority;
+        }
+
+        public void run() {
+            executionStartTime = System.nanoTime();
+            Object traceScope = null;
+            if (trace != null && account != null) {
+                /*
+                 * Make EXECUTE span current on worker thread so
+                 * spans on the DeployR call nest beneath it.
+                 */
+                trace.beginStage(RTaskStage.EXECUTE);
+                traceScope = trace.attach();
+            }
+            try {
+                super.run();
+            } finally {
+                if (trace != null) {
+                    trace.detach(traceScope);
+                }
+                if (account != null) {
+                    if (!workerCall.called) {
                         /*
-                         * Await next available resource token in pool.
+                         * Cancelled ahead of execution, return
+                         * the resource token the worker never
+                         * called back with.
                          */
+                        callback(task, new RTaskResultImpl(null,
+                                null, false, 0L, 0L, 0L,
+                                new CancellationException("RTask " +
+                                        "cancelled before execution")));
+                    }
+                    /*
+                     * Worker has released its resource token,
+                     * wake RBrokerWorkerManager if tenant quota
+                     * was holding back pending tasks.
+                     */
+                    boolean tenantIdle =
+                            account.executingTasks.decrementAndGet() == 0;
+                    schedulerWakeup.release();
+                    complete();
+                    if (tenantIdle) {
+                        evictIdleTenant(account.tenant);
+                    }
+                }
+            }
+        }
 
-                        Object resourceToken = resourceTokenPool.take();
+        /*
+         * RTaskExecution that was never dispatched, failed
+         * without a resource token, completes immediately.
+         * Dispatched RTaskExecution complete once run() exits.
+         */
+        protected void done() {
+            if (account == null) {
+                complete();
+            }
+        }
 
-                        boolean resourceTokenInUse = false;
+        private void complete() {
+            if (deadlineFuture != null) {
+                deadlineFuture.cancel(false);
+                deadlineEnforcer.clear();
+            }
+            long executionEndTime = System.nanoTime();
+            if (task != null) {
+                executingTaskTokens.remove(task);
+            }
+            if (account != null) {
+                recordTimestamps(executionEndTime);
+                account.recordTask(this, timeOnPending);
+                if (trace != null) {
+                    trace.endStage(failureOf(this));
+                }
+            }
+            rTaskToken.onTaskDone(rTaskToken.getTask());
+            if (account != null) {
+                /*
+                 * Recorded once RTaskToken callbacks have run,
+                 * as they may mark the RTask for repeat.
+                 */
+                recordCompletion(this, priority, timeOnPending);
+            }
+            completedTaskTokens.offer(rTaskToken);
+            if (account != null) {
+                releaseDispatch();
+            }
+        }
 
-                        try {
+        /*
+         * Record RTaskExecution timestamps on the RTaskResult.
+         */
+        private void recordTimestamps(long executionEndTime) {
 
-                            RBrokerWorker worker =
-                                    createBrokerWorker(nextTaskInQueue,
-                                            executorTaskCounter.getAndIncrement(),
-                                            priorityTaskAvailable,
-                                            resourceToken,
-                                            RBrokerEngine.this);
+            RTaskResult result = null;
+            try {
+                result = get();
+            } catch (Exception ex) {
+            }
 
-                            resourceTokenInUse = true;
-                            taskResourceTokenMap.put(nextTaskInQueue, resourceToken);
+            if (result instanceof RTaskResultImpl) {
+                RTaskResultImpl resultImpl = (RTaskResultImpl) result;
+                resultImpl.submitTime = submitTime;
+                resultImpl.dequeueTime = dequeueTime;
+                resultImpl.tokenAcquiredTime = tokenAcquiredTime;
+                resultImpl.executionStartTime = executionStartTime;
+                resultImpl.executionEndTime = executionEndTime;
+            }
+        }
+    }
 
-                            Future future = taskWorkerExecutor.submit(worker);
+    /*
+     * EngineMetrics reads RBrokerMetrics directly from
+     * the lock-free counters and queues on RBrokerEngine.
+     */
+    private final class EngineMetrics implements RBrokerMetrics {
 
-                            RTaskTokenListener taskTokenListener =
-                                    taskTokenListenerMap.remove(nextTaskInQueue);
+        public String getBrokerName() {
+            return brokerName;
+        }
 
-                            if (taskTokenListener != null) {
-                                taskTokenListener.onTask(nextTaskInQueue, future);
-                            } else {
-                                System.out.println("RBrokerEngine: " +
-                                        "taskTokenListener callback not found for " +
-                                        nextTaskInQueue + ", unexpected error.");
-                            }
+        public int getPriorityLevels() {
+            return pendingTaskQueues.size();
+        }
 
-                        } catch (Exception ex) {
+        public int getPendingTasks() {
+            int pendingTasks = 0;
+            for (int i = 0; i < pendingTaskQueues.size(); i++) {
+                pendingTasks += pendingTaskQueues.get(i).depth.get();
+            }
+            return pendingTasks;
+        }
 
-                            if (!resourceTokenInUse && resourceToken != null) {
-                                /*
-                                 * Return unused RProject instance
-                                 * to the tail of the project pool.
-                                 */
-                                resourceTokenPool.add(resourceToken);
-                            }
+        public int getPendingTasks(int priority) {
+            if (priority < 0 || priority >= pendingTaskQueues.size()) {
+                return 0;
+            }
+            return pendingTaskQueues.get(priority).depth.get();
+        }
 
-                            System.out.println("RBrokerEngine: " +
-                                    " processing task " + nextTaskInQueue +
-                                    ", ex=" + ex);
-                        }
+        public int getAvailableResourceTokens() {
+            BlockingQueue<Object> tokenPool = resourceTokenPool;
+            return (tokenPool != null) ? tokenPool.size() : 0;
+        }
 
-                    } // nextTaskInQueue != null
+        public int getInFlightTasks() {
+            BlockingQueue<Object> tokenPool = resourceTokenPool;
+            return (tokenPool != null && parallelTaskLimit != null) ?
+                    Math.max(0, parallelTaskLimit.get() - tokenPool.size()) : 0;
+        }
 
-                } // while taskBrokerIsActive
+        public int getMaxConcurrency() {
+            return (parallelTaskLimit != null) ? parallelTaskLimit.get() : 0;
+        }
 
+        public long getTotalTasksSubmitted() {
+            return totalTasksSubmitted.get();
+        }
 
-            } catch (Exception mex) {
-                System.out.println("RBrokerEngine: " +
-                        "brokerEngineExecutor.run ex=" + mex);
+        public long getTotalTasksRejected() {
+            return totalTasksRejected.get();
+        }
+
+        public long getTotalTasksRetried() {
+            return totalTasksRetried.get();
+        }
+
+        public long getTotalGridFailures() {
+            return totalGridFailures.get();
+        }
+
+        public long getTotalTasksCompleted() {
+            return totalTasksCompleted.get();
+        }
+
+        public long getTotalTasksFailed() {
+            return totalTasksFailed.get();
+        }
+    }
+
+    /*
+     * EngineManagement exposes RBrokerEngine status and dispatch
+     * controls as an RBrokerManagementMXBean.
+     */
+    private final class EngineManagement implements RBrokerManagementMXBean {
+
+        public String getBrokerName() {
+            return brokerName;
+        }
+
+        public boolean isPaused() {
+            return dispatchPaused;
+        }
+
+        public boolean isDraining() {
+            return draining;
+        }
+
+        public int getPendingTasks() {
+            return brokerMetrics.getPendingTasks();
+        }
+
+        public int[] getPendingTasksByPriority() {
+            int[] pendingTasks = new int[pendingTaskQueues.size()];
+            for (int i = 0; i < pendingTasks.length; i++) {
+                pendingTasks[i] = brokerMetrics.getPendingTasks(i);
+            }
+            return pendingTasks;
+        }
+
+        public int getExecutingTasks() {
+            return brokerMetrics.getInFlightTasks();
+        }
+
+        public int getAvailableResourceTokens() {
+            return brokerMetrics.getAvailableResourceTokens();
+        }
+
+        public int getMaxConcurrency() {
+            return (parallelTaskLimit != null) ? maxConcurrency() : 0;
+        }
+
+        public Map<String, Long> getTasksCompletedByType() {
+            Map<String, Long> completed = new LinkedHashMap<String, Long>();
+            for (RTaskType taskType : RTaskType.values()) {
+                completed.put(taskType.name(),
+                        totalTasksCompletedByType.get(taskType.ordinal()));
+            }
+            return completed;
+        }
+
+        public Map<String, Double> getThroughputByType() {
+            double uptime = Math.max(1L,
+                    System.currentTimeMillis() - startTime) / 1000.0;
+            Map<String, Double> throughput =
+                    new LinkedHashMap<String, Double>();
+            for (RTaskType taskType : RTaskType.values()) {
+                throughput.put(taskType.name(),
+                        totalTasksCompletedByType.get(taskType.ordinal()) /
+                                uptime);
+            }
+            return throughput;
+        }
+
+        public Map<String, Long> getLatencyPercentiles() {
+            Map<String, Long> percentiles = new LinkedHashMap<String, Long>();
+            for (RBrokerLatencyStats stats : buildLatencyStats(false)) {
+                String prefix = stats.taskType + "." + stats.priority + ".";
+                putPercentiles(percentiles, prefix + "timeOnPending",
+                        stats.timeOnPending);
+                putPercentiles(percentiles, prefix + "timeOnCall",
+                        stats.timeOnCall);
+                putPercentiles(percentiles, prefix + "timeOnServer",
+                        stats.timeOnServer);
+            }
+            return percentiles;
+        }
+
+        private void putPercentiles(Map<String, Long> percentiles,
+                                    String prefix,
+                                    RLatencyStats stats) {
+            percentiles.put(prefix + ".p50", stats.p50);
+            percentiles.put(prefix + ".p90", stats.p90);
+            percentiles.put(prefix + ".p99", stats.p99);
+            percentiles.put(prefix + ".p999", stats.p999);
+            percentiles.put(prefix + ".max", stats.max);
+        }
+
+        public void pause() {
+            RBrokerEngine.this.pause();
+        }
+
+        public void resume() {
+            RBrokerEngine.this.resume();
+        }
+
+        public boolean drain(long timeout) throws InterruptedException {
+            return RBrokerEngine.this.drain(timeout);
+        }
+
+        public int resizeConcurrency(int limit) {
+            return RBrokerEngine.this.resizeConcurrency(limit);
+        }
+
+        public int flush(int priority) throws Exception {
+            return RBrokerEngine.this.flush(priority).pendingTasks;
+        }
+    }
+
+    /*
+     * TaskLatency holds latency histograms for RTask
+     * of a single RTaskType and priority level.
+     */
+    private static final class TaskLatency {
+
+        private final LatencyHistogram timeOnPending = new LatencyHistogram();
+        private final LatencyHistogram timeOnCall = new LatencyHistogram();
+        private final LatencyHistogram timeOnServer = new LatencyHistogram();
+        private final LatencyHistogram timeOnCode = new LatencyHistogram();
+
+        private RBrokerLatencyStats buildStats(RTaskType taskType,
+                                               int priority,
+                                               boolean interval) {
+
+            RBrokerLatencyStats stats = new RBrokerLatencyStats();
+            stats.taskType = taskType;
+            stats.priority = priority;
+            if (interval) {
+                stats.timeOnPending = timeOnPending.intervalStats();
+                stats.timeOnCall = timeOnCall.intervalStats();
+                stats.timeOnServer = timeOnServer.intervalStats();
+                stats.timeOnCode = timeOnCode.intervalStats();
+            } else {
+                stats.timeOnPending = timeOnPending.stats();
+                stats.timeOnCall = timeOnCall.stats();
+                stats.timeOnServer = timeOnServer.stats();
+                stats.timeOnCode = timeOnCode.stats();
+            }
+            return stats;
+        }
+
+        private void reset() {
+            timeOnPending.reset();
+            timeOnCall.reset();
+            timeOnServer.reset();
+            timeOnCode.reset();
+        }
+    }
+
+    /*
+     * TenantAccount tracks executing tasks and
+     * runtime statistics for a single tenant.
+     */
+    private static final class TenantAccount {
+
+        private final String tenant;
+        private final AtomicInteger executingTasks = new AtomicInteger();
+        private final AtomicLong totalTasksRun = new AtomicLong();
+        private final AtomicLong totalTasksRunToSuccess = new AtomicLong();
+        private final AtomicLong totalTimeTasksPending = new AtomicLong();
+        private final AtomicLong totalTimeTasksOnCall = new AtomicLong();
+
+        private TenantAccount(String tenant) {
+            this.tenant = tenant;
+        }
+
+        private void recordTask(Future<RTaskResult> execution,
+                                long timeOnPending) {
+
+            RTaskResult result = null;
+            try {
+                result = execution.get();
+            } catch (Exception ex) {
+            }
+
+            if (result instanceof RTaskResultImpl &&
+                    ((RTaskResultImpl) result).repeatTask) {
+                return;
+            }
+
+            totalTasksRun.incrementAndGet();
+            totalTimeTasksPending.addAndGet(timeOnPending);
+            if (result != null) {
+                if (result.isSuccess()) {
+                    totalTasksRunToSuccess.incrementAndGet();
+                }
+                totalTimeTasksOnCall.addAndGet(result.getTimeOnCall());
             }
         }
 
+        private RBrokerTenantStats buildStats() {
+
+            RBrokerTenantStats stats = new RBrokerTenantStats();
+            stats.tenant = tenant;
+            stats.executingTasks = executingTasks.get();
+            stats.totalTasksRun = totalTasksRun.get();
+            stats.totalTasksRunToSuccess = totalTasksRunToSuccess.get();
+            stats.totalTimeTasksPending = totalTimeTasksPending.get();
+            stats.totalTimeTasksOnCall = totalTimeTasksOnCall.get();
+            return stats;
+        }
     }
 
     private class RBrokerListenerManager implements Runnable {
@@ -665,89 +2708,113 @@ public abstract class RBrokerEngine implements RBroker {
 
             while (taskBrokerIsActive.get()) {
 
-                int tasksHandledOnLoop = 0;
+                RTaskToken rTaskToken = null;
 
                 try {
 
-                    while (liveTaskTokens.isEmpty() &&
-                            taskBrokerIsActive.get()) {
-                        try {
-                            Thread.currentThread().sleep(
-                                    LIVE_TASK_TOKEN_PEEK_INTERVAL);
-                        } catch (InterruptedException iex) {
-                        }
-                    }
+                    /*
+                     * Await next completed RTask.
+                     */
+                    rTaskToken = completedTaskTokens.take();
+
+                } catch (InterruptedException iex) {
+                    /*
+                     * RBroker.shutdown() interrupts the blocked
+                     * RBrokerListenerManager, exit quietly.
+                     */
+                    break;
+                }
+
+                boolean taskHandled = false;
 
-                    for (RTaskToken rTaskToken : liveTaskTokens) {
+                /*
+                 * Make DELIVER span current on listener thread
+                 * so spans in RTaskListener code nest beneath it.
+                 */
+                TaskTrace trace = null;
+                Object traceScope = null;
+                Future<?> execution = rTaskToken.getFuture();
+                if (execution instanceof RTaskExecution) {
+                    trace = ((RTaskExecution) execution).trace;
+                }
+                if (trace != null) {
+                    trace.beginStage(RTaskStage.DELIVER);
+                    traceScope = trace.attach();
+                }
 
-                        boolean repeatTaskFound = false;
+                try {
 
-                        if (rTaskToken.isDone()) {
+                    boolean repeatTaskFound = false;
 
-                            RTaskResult result = null;
+                    RTaskResult result = null;
 
-                            try {
+                    try {
 
-                                // Extract task result.
-                                result =
-                                        (RTaskResult) rTaskToken.getResult();
-
-                                if (taskListener != null) {
-
-                                    if (((RTaskResultImpl) result).repeatTask) {
-                                        repeatTaskFound = true;
-                                    } else {
-
-                                        try {
-                                            taskListener.onTaskCompleted(
-                                                    rTaskToken.getTask(), result);
-                                        } catch (Exception ontcx) {
-                                            /*
-                                             * RBrokerEngine onTaskCompleted
-                                             * is * calling back into client
-                                             * application code. That code
-                                             * could erroneously throw an
-                                             * Exception back into
-                                             * RBrokerEngine. If so, swallow
-                                             * it.
-                                             */
-                                        }
-
-                                    }
-                                }
+                        // Extract task result.
+                        result =
+                                (RTaskResult) rTaskToken.getResult();
 
-                            } catch (Exception ex) {
-
-                                Throwable cause = ex;
-                                if (ex instanceof ExecutionException)
-                                    cause = ex.getCause();
-
-                                if (taskListener != null) {
-
-                                    try {
-                                        taskListener.onTaskError(
-                                                rTaskToken.getTask(), cause);
-                                    } catch (Exception ontex) {
-                                        /*
-                                         * RBrokerEngine onTaskError is
-                                         * calling back into client application
-                                         * code. That code could erroneously
-                                         * throw an Exception back into
-                                         * RBrokerEngine. If so, swallow it.
-                                         */
-                                    }
+                        if (result instanceof RTaskResultImpl) {
+                            ((RTaskResultImpl) result).listenerDeliveredTime =
+                                    System.nanoTime();
+                        }
+
+                        if (taskListener != null) {
+
+                            if (((RTaskResultImpl) result).repeatTask) {
+                                repeatTaskFound = true;
+                            } else {
+
+                                try {
+                                    taskListener.onTaskCompleted(
+                                            rTaskToken.getTask(), result);
+                                } catch (Exception ontcx) {
+                                    /*
+                                     * RBrokerEngine onTaskCompleted
+                                     * is * calling back into client
+                                     * application code. That code
+                                     * could erroneously throw an
+                                     * Exception back into
+                                     * RBrokerEngine. If so, swallow
+                                     * it.
+                                     */
                                 }
+
                             }
+                        }
 
-                            liveTaskTokens.remove(rTaskToken);
+                    } catch (Exception ex) {
 
-                            if (!repeatTaskFound) {
-                                tasksHandledOnLoop++;
-                                updateBrokerStats(result);
-                            }
+                        Throwable cause = ex;
+                        if (ex instanceof ExecutionException)
+                            cause = ex.getCause();
+
+                        if (taskListener != null) {
 
+                            try {
+                                taskListener.onTaskError(
+                                        rTaskToken.getTask(), cause);
+                            } catch (Exception ontex) {
+                                /*
+                                 * RBrokerEngine onTaskError is
+                                 * calling back into client application
+                                 * code. That code could erroneously
+                                 * throw an Exception back into
+                                 * RBrokerEngine. If so, swallow it.
+                                 */
+                            }
                         }
+                    }
+
+                    if (trace != null) {
+                        trace.detach(traceScope);
+                        trace.endStage(null);
+                        trace.end(failureOf(execution));
+                    }
 
+                    if (!repeatTaskFound) {
+                        taskHandled = true;
+                        updateBrokerStats(result);
                     }
 
                 } catch (Exception ex) {
@@ -756,7 +2823,7 @@ public abstract class RBrokerEngine implements RBroker {
                     }
                 }
 
-                if (tasksHandledOnLoop > 0) {
+                if (taskHandled) {
                     if (brokerListener != null) {
                         brokerListener.onRuntimeStats(buildStats(),
                                 maxConcurrency());
@@ -773,12 +2840,36 @@ public abstract class RBrokerEngine implements RBroker {
 
             totalTasksRunByBroker.incrementAndGet();
 
+            if (result == null) {
+                /*
+                 * RTask cancelled or failed without result.
+                 */
+                return;
+            }
+
             if (result.isSuccess()) {
                 totalTasksRunToSuccess.incrementAndGet();
             }
             totalTaskTimeOnCode.addAndGet(result.getTimeOnCode());
             totalTaskTimeOnServer.addAndGet(result.getTimeOnServer());
             totalTaskTimeOnCall.addAndGet(result.getTimeOnCall());
+
+            if (result.getSubmitTime() != 0L &&
+                    result.getExecutionStartTime() != 0L) {
+                totalTaskTimeQueued.addAndGet(
+                        result.getDequeueTime() - result.getSubmitTime());
+                totalTaskTimeAwaitingToken.addAndGet(
+                        result.getTokenAcquiredTime() - result.getDequeueTime());
+                totalTaskTimeAwaitingWorker.addAndGet(
+                        result.getExecutionStartTime() -
+                                result.getTokenAcquiredTime());
+                totalTaskTimeExecuting.addAndGet(
+                        result.getExecutionEndTime() -
+                                result.getExecutionStartTime());
+                totalTaskTimeAwaitingDelivery.addAndGet(
+                        result.getListenerDeliveredTime() -
+                                result.getExecutionEndTime());
+            }
         }
 
         /*
@@ -794,6 +2885,18 @@ public abstract class RBrokerEngine implements RBroker {
             stats.totalTimeTasksOnCode = totalTaskTimeOnCode.get();
             stats.totalTimeTasksOnServer = totalTaskTimeOnServer.get();
             stats.totalTimeTasksOnCall = totalTaskTimeOnCall.get();
+            stats.totalTimeTasksQueuedNanos = totalTaskTimeQueued.get();
+            stats.totalTimeTasksAwaitingTokenNanos =
+                    totalTaskTimeAwaitingToken.get();
+            stats.totalTimeTasksAwaitingWorkerNanos =
+                    totalTaskTimeAwaitingWorker.get();
+            stats.totalTimeTasksExecutingNanos = totalTaskTimeExecuting.get();
+            stats.totalTimeTasksAwaitingDeliveryNanos =
+                    totalTaskTimeAwaitingDelivery.get();
+            for (TenantAccount account : tenantAccounts.values()) {
+                stats.tenantStats.put(account.tenant, account.buildStats());
+            }
+            stats.latencyStats = buildLatencyStats(false);
             return stats;
         }
 
@@ -802,5 +2905,10 @@ public abstract class RBrokerEngine implements RBroker {
         private AtomicLong totalTaskTimeOnCode = new AtomicLong();
         private AtomicLong totalTaskTimeOnServer = new AtomicLong();
         private AtomicLong totalTaskTimeOnCall = new AtomicLong();
+        private AtomicLong totalTaskTimeQueued = new AtomicLong();
+        private AtomicLong totalTaskTimeAwaitingToken = new AtomicLong();
+        private AtomicLong totalTaskTimeAwaitingWorker = new AtomicLong();
+        private AtomicLong totalTaskTimeExecuting = new AtomicLong();
+        private AtomicLong totalTaskTimeAwaitingDelivery = new AtomicLong();
     }
 }
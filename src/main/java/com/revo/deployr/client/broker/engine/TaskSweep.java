@@ -0,0 +1,443 @@
+/*
+ * TaskSweep.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.engine;
+
+import com.revo.deployr.client.RClientException;
+import com.revo.deployr.client.RDataException;
+import com.revo.deployr.client.RGridException;
+import com.revo.deployr.client.RSecurityException;
+import com.revo.deployr.client.broker.RTaskCallback;
+import com.revo.deployr.client.broker.RTaskResult;
+import com.revo.deployr.client.broker.RTaskSweep;
+import com.revo.deployr.client.broker.RTaskToken;
+import com.revo.deployr.client.broker.config.BackgroundBrokerConfig;
+import com.revo.deployr.client.broker.impl.RTaskResultImpl;
+import com.revo.deployr.client.broker.impl.RTaskTokenImpl;
+import com.revo.deployr.client.broker.task.BackgroundTask;
+import com.revo.deployr.client.data.RData;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * TaskSweep, a parameter sweep driven on a BackgroundTaskBroker.
+ *
+ * A single driver thread draws the next set of rinputs from the
+ * stream only once a slot in the sweep window is free, so at most
+ * windowSize sweep tasks, and their rinputs, are held at any one
+ * time whatever the size of the sweep. Each sweep task shares the
+ * template BackgroundTaskOptions, only its rinputs differ.
+ *
+ * Submissions are paced by a token bucket. A sweep task throttled
+ * by the DeployR server is marked as a repeatTask, so the failure
+ * is not reported on RTaskListener, and retried once the retry
+ * delay has passed. The delay doubles on each consecutive throttled
+ * task and no sweep task is submitted until it has passed.
+ */
+class TaskSweep implements RTaskSweep, Runnable {
+
+    private final BackgroundTaskBroker brokerEngine;
+    private final BackgroundTask template;
+    private final Iterator<List<RData>> rinputs;
+    private final int priority;
+
+    private final double submitRate;
+    private final int burstSize;
+    private final long retryDelay;
+    private final long maxRetryDelay;
+    private final int maxRetries;
+
+    private final Semaphore window;
+    private final ConcurrentHashMap<RTaskToken, SweepInput> inFlight =
+            new ConcurrentHashMap<RTaskToken, SweepInput>();
+    private final LinkedBlockingQueue<SweepInput> retries =
+            new LinkedBlockingQueue<SweepInput>();
+    private final CountDownLatch sweepDone = new CountDownLatch(1);
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private volatile boolean drained = false;
+    private volatile Thread driverThread;
+
+    private final AtomicLong submittedTasks = new AtomicLong();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong retriedTasks = new AtomicLong();
+
+    /*
+     * Retry-after state, shared by every sweep task.
+     */
+    private final AtomicInteger consecutiveThrottles = new AtomicInteger();
+    private volatile long resumeTime = 0L;
+
+    /*
+     * Token bucket state, accessed on the driver thread only.
+     */
+    private double bucketTokens;
+    private long bucketRefillTime = System.nanoTime();
+
+    TaskSweep(BackgroundTaskBroker brokerEngine,
+              BackgroundTask template,
+              Iterator<List<RData>> rinputs,
+              int priority) {
+
+        BackgroundBrokerConfig config =
+                (BackgroundBrokerConfig) brokerEngine.brokerConfig;
+
+        this.brokerEngine = brokerEngine;
+        this.template = template;
+        this.rinputs = rinputs;
+        this.priority = priority;
+        this.submitRate = config.sweepSubmitRate;
+        this.burstSize = Math.max(1, config.sweepBurstSize);
+        this.retryDelay = Math.max(1L, config.sweepRetryDelay);
+        this.maxRetryDelay = Math.max(retryDelay, config.maxSweepRetryDelay);
+        this.maxRetries = Math.max(0, config.sweepMaxRetries);
+        this.window = new Semaphore(config.sweepWindowSize > 0 ?
+                config.sweepWindowSize :
+                Math.max(1, config.maxConcurrentTaskLimit * 2));
+        this.bucketTokens = burstSize;
+    }
+
+    /*
+     * RTaskSweep Interface implementation.
+     */
+
+    public long submittedTasks() {
+        return submittedTasks.get();
+    }
+
+    public long completedTasks() {
+        return completedTasks.get();
+    }
+
+    public long failedTasks() {
+        return failedTasks.get();
+    }
+
+    public long retriedTasks() {
+        return retriedTasks.get();
+    }
+
+    public boolean isDone() {
+        return sweepDone.getCount() == 0;
+    }
+
+    public void cancel() {
+
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread driver = driverThread;
+        if (driver != null) {
+            driver.interrupt();
+        }
+
+        for (RTaskToken rTaskToken : inFlight.keySet()) {
+            if (!rTaskToken.cancel(false) && !rTaskToken.isDone()) {
+                /*
+                 * RTask still pending on the broker, can not be
+                 * cancelled, abandon it.
+                 */
+                if (inFlight.remove(rTaskToken) != null) {
+                    recordCompleted(false);
+                    window.release();
+                }
+            }
+        }
+
+        checkDone();
+    }
+
+    public void await() throws InterruptedException {
+        sweepDone.await();
+    }
+
+    public boolean await(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return sweepDone.await(timeout, unit);
+    }
+
+    /*
+     * Sweep driver.
+     */
+    public void run() {
+
+        driverThread = Thread.currentThread();
+        boolean exhausted = false;
+
+        try {
+
+            while (!cancelled.get() &&
+                    brokerEngine.taskBrokerIsActive.get()) {
+
+                window.acquire();
+
+                SweepInput input = retries.poll();
+
+                if (input == null && !exhausted) {
+                    try {
+                        if (rinputs.hasNext()) {
+                            input = new SweepInput(rinputs.next());
+                        } else {
+                            exhausted = true;
+                        }
+                    } catch (RuntimeException rex) {
+                        System.out.println("TaskSweep: " +
+                                "rinputs stream ex=" + rex);
+                        exhausted = true;
+                    }
+                }
+
+                if (input == null) {
+                    if (inFlight.isEmpty() && retries.isEmpty()) {
+                        window.release();
+                        break;
+                    }
+                    /*
+                     * Stream exhausted, await completion or
+                     * retry of sweep tasks in flight.
+                     */
+                    input = retries.poll(SWEEP_POLL_INTERVAL,
+                            TimeUnit.MILLISECONDS);
+                    if (input == null) {
+                        window.release();
+                        continue;
+                    }
+                }
+
+                awaitSubmitPermit();
+                submit(input);
+            }
+
+        } catch (InterruptedException iex) {
+            /*
+             * TaskSweep.cancel() interrupts the blocked driver.
+             */
+        } finally {
+
+            driverThread = null;
+            Thread.interrupted();
+
+            if (!brokerEngine.taskBrokerIsActive.get()) {
+                cancel();
+            }
+
+            /*
+             * Sweep cancelled, drop rinputs awaiting retry.
+             */
+            SweepInput dropped;
+            while ((dropped = retries.poll()) != null) {
+                recordCompleted(false);
+            }
+
+            drained = true;
+            checkDone();
+        }
+    }
+
+    private void submit(final SweepInput input) {
+
+        BackgroundTask task = (BackgroundTask) brokerEngine.cloneTask(template);
+        task.rinputs = input.rinputs;
+
+        final RTaskTokenImpl rTaskToken;
+        try {
+            rTaskToken = (RTaskTokenImpl) brokerEngine.submit(task, priority);
+        } catch (Exception ex) {
+            /*
+             * Broker at capacity, back off and retry as if
+             * the DeployR server had throttled the task.
+             */
+            window.release();
+            if (cancelled.get() || !brokerEngine.taskBrokerIsActive.get() ||
+                    !scheduleRetry(input)) {
+                recordCompleted(false);
+            }
+            return;
+        }
+
+        if (input.attempts == 0) {
+            submittedTasks.incrementAndGet();
+        } else {
+            retriedTasks.incrementAndGet();
+        }
+
+        inFlight.put(rTaskToken, input);
+
+        rTaskToken.getCompletion().addCallback(
+                new RTaskCallback<RTaskResult>() {
+
+            public void onSuccess(RTaskResult result) {
+
+                if (inFlight.remove(rTaskToken) == null) {
+                    return;
+                }
+
+                try {
+
+                    if (result != null && !result.isSuccess() &&
+                            !cancelled.get() &&
+                            isThrottled(result.getFailure()) &&
+                            scheduleRetry(input)) {
+
+                        if (cancelled.get() && retries.remove(input)) {
+                            recordCompleted(false);
+                        } else if (result instanceof RTaskResultImpl) {
+                            ((RTaskResultImpl) result).repeatTask = true;
+                        }
+
+                    } else {
+
+                        boolean success =
+                                (result != null && result.isSuccess());
+                        if (success) {
+                            consecutiveThrottles.set(0);
+                        }
+                        recordCompleted(success);
+                    }
+
+                } finally {
+                    window.release();
+                    checkDone();
+                }
+            }
+
+            public void onFailure(Throwable throwable) {
+
+                if (inFlight.remove(rTaskToken) == null) {
+                    return;
+                }
+
+                recordCompleted(false);
+                window.release();
+                checkDone();
+            }
+        });
+    }
+
+    /*
+     * Queue SweepInput for retry after the retry delay,
+     * returns false once maxRetries is exhausted.
+     */
+    private boolean scheduleRetry(SweepInput input) {
+
+        if (input.attempts >= maxRetries) {
+            return false;
+        }
+        input.attempts++;
+
+        int throttles = consecutiveThrottles.getAndIncrement();
+        long delay = Math.min(maxRetryDelay,
+                retryDelay << Math.min(throttles, 30));
+        long retryTime = System.currentTimeMillis() + delay;
+        if (retryTime > resumeTime) {
+            resumeTime = retryTime;
+        }
+
+        retries.offer(input);
+        return true;
+    }
+
+    /*
+     * Blocks the driver until any retry delay has passed and
+     * a token is available on the token bucket.
+     */
+    private void awaitSubmitPermit() throws InterruptedException {
+
+        long retryWait = resumeTime - System.currentTimeMillis();
+        if (retryWait > 0) {
+            Thread.sleep(retryWait);
+        }
+
+        if (submitRate <= 0.0) {
+            return;
+        }
+
+        while (true) {
+
+            long now = System.nanoTime();
+            bucketTokens = Math.min(burstSize, bucketTokens +
+                    ((now - bucketRefillTime) * submitRate) / 1e9);
+            bucketRefillTime = now;
+
+            if (bucketTokens >= 1.0) {
+                bucketTokens -= 1.0;
+                return;
+            }
+
+            TimeUnit.NANOSECONDS.sleep(
+                    (long) (((1.0 - bucketTokens) * 1e9) / submitRate));
+        }
+    }
+
+    private void recordCompleted(boolean success) {
+        if (!success) {
+            failedTasks.incrementAndGet();
+        }
+        completedTasks.incrementAndGet();
+    }
+
+    private void checkDone() {
+
+        if (drained && inFlight.isEmpty() && retries.isEmpty() &&
+                sweepDone.getCount() > 0) {
+            sweepDone.countDown();
+            brokerEngine.endSweep(this);
+        }
+    }
+
+    /*
+     * Server responses indicating the DeployR server is at
+     * capacity or rate limiting job submissions.
+     */
+    private static boolean isThrottled(Exception failure) {
+
+        int errorCode = 0;
+
+        if (failure instanceof RGridException) {
+            return true;
+        } else if (failure instanceof RClientException) {
+            errorCode = ((RClientException) failure).errorCode;
+        } else if (failure instanceof RSecurityException) {
+            errorCode = ((RSecurityException) failure).errorCode;
+        } else if (failure instanceof RDataException) {
+            errorCode = ((RDataException) failure).errorCode;
+        }
+
+        return errorCode == 429 || errorCode == 503;
+    }
+
+    /*
+     * SweepInput, a set of rinputs drawn from the
+     * stream and the number of retries made on it.
+     */
+    private static final class SweepInput {
+
+        private final List<RData> rinputs;
+        private int attempts = 0;
+
+        private SweepInput(List<RData> rinputs) {
+            this.rinputs = rinputs;
+        }
+    }
+
+    private static final long SWEEP_POLL_INTERVAL = 250L;
+}
@@ -0,0 +1,133 @@
+/*
+ * TaskTrace.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.engine;
+
+import com.revo.deployr.client.broker.RTask;
+import com.revo.deployr.client.broker.trace.RTaskSpan;
+import com.revo.deployr.client.broker.trace.RTaskStage;
+import com.revo.deployr.client.broker.trace.RTaskTracer;
+
+/*
+ * TaskTrace carries the RTaskStage.TASK span for a single RTask, and
+ * the span for its current stage, from the submitting thread through
+ * the RBrokerWorkerManager, worker and RBrokerListenerManager threads.
+ * Only created when an RTaskTracer is registered.
+ *
+ * Stages run one after another, each thread handing the TaskTrace to
+ * the next through the broker queues, so stageSpan is volatile rather
+ * than guarded. Exceptions raised by the RTaskTracer are swallowed so
+ * tracing can never fail RTask handling.
+ */
+final class TaskTrace {
+
+    private final RTaskTracer tracer;
+    private final RTask task;
+    private final RTaskSpan taskSpan;
+    private volatile RTaskSpan stageSpan;
+
+    private TaskTrace(RTaskTracer tracer, RTask task, RTaskSpan taskSpan) {
+        this.tracer = tracer;
+        this.task = task;
+        this.taskSpan = taskSpan;
+    }
+
+    /*
+     * Start TASK span as a child of the trace context current on the
+     * submitting thread, and the SUBMIT stage, or null if tracer null.
+     */
+    static TaskTrace start(RTaskTracer tracer, RTask task) {
+
+        if (tracer == null) {
+            return null;
+        }
+
+        RTaskSpan taskSpan = null;
+        try {
+            taskSpan = tracer.startSpan(RTaskStage.TASK, task,
+                    tracer.currentContext());
+        } catch (RuntimeException tex) {
+        }
+
+        TaskTrace trace = new TaskTrace(tracer, task, taskSpan);
+        trace.beginStage(RTaskStage.SUBMIT);
+        return trace;
+    }
+
+    /*
+     * End the current stage span, if any, and start stage span.
+     */
+    void beginStage(RTaskStage stage) {
+
+        endStage(null);
+        try {
+            stageSpan = tracer.startSpan(stage, task,
+                    (taskSpan != null) ? taskSpan.getContext() : null);
+        } catch (RuntimeException tex) {
+        }
+    }
+
+    /*
+     * End the current stage span, if any.
+     */
+    void endStage(Throwable failure) {
+
+        RTaskSpan span = stageSpan;
+        stageSpan = null;
+        if (span != null) {
+            try {
+                span.end(failure);
+            } catch (RuntimeException tex) {
+            }
+        }
+    }
+
+    /*
+     * Attach the current stage span context to the calling thread,
+     * returning the scope for detach().
+     */
+    Object attach() {
+
+        RTaskSpan span = stageSpan;
+        try {
+            return (span != null) ?
+                    tracer.attachContext(span.getContext()) : null;
+        } catch (RuntimeException tex) {
+            return null;
+        }
+    }
+
+    void detach(Object scope) {
+
+        if (scope != null) {
+            try {
+                tracer.detachContext(scope);
+            } catch (RuntimeException tex) {
+            }
+        }
+    }
+
+    /*
+     * End the current stage span and the TASK span.
+     */
+    void end(Throwable failure) {
+
+        endStage(failure);
+        if (taskSpan != null) {
+            try {
+                taskSpan.end(failure);
+            } catch (RuntimeException tex) {
+            }
+        }
+    }
+
+}
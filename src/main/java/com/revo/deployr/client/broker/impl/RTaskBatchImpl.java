@@ -0,0 +1,96 @@
+/*
+ * RTaskBatchImpl.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.impl;
+
+import com.revo.deployr.client.broker.RTaskBatch;
+import com.revo.deployr.client.broker.RTaskCallback;
+import com.revo.deployr.client.broker.RTaskResult;
+import com.revo.deployr.client.broker.RTaskToken;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * RTaskBatchImpl.
+ */
+public class RTaskBatchImpl implements RTaskBatch {
+
+    private final List<RTaskToken> tokens;
+    private final CountDownLatch pendingTasks;
+    private final AtomicInteger failedTasks = new AtomicInteger();
+
+    public RTaskBatchImpl(List<RTaskToken> tokens) {
+
+        this.tokens = Collections.unmodifiableList(tokens);
+        this.pendingTasks = new CountDownLatch(tokens.size());
+
+        RTaskCallback<RTaskResult> progress =
+                new RTaskCallback<RTaskResult>() {
+
+            public void onSuccess(RTaskResult result) {
+                if (result == null || !result.isSuccess()) {
+                    failedTasks.incrementAndGet();
+                }
+                pendingTasks.countDown();
+            }
+
+            public void onFailure(Throwable throwable) {
+                failedTasks.incrementAndGet();
+                pendingTasks.countDown();
+            }
+        };
+
+        for (RTaskToken token : tokens) {
+            ((RTaskTokenImpl) token).getCompletion().addCallback(progress);
+        }
+    }
+
+    public List<RTaskToken> getTokens() {
+        return tokens;
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public int completedTasks() {
+        return tokens.size() - (int) pendingTasks.getCount();
+    }
+
+    public int failedTasks() {
+        return failedTasks.get();
+    }
+
+    public boolean isDone() {
+        return pendingTasks.getCount() == 0;
+    }
+
+    public void await() throws InterruptedException {
+        pendingTasks.await();
+    }
+
+    public boolean await(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return pendingTasks.await(timeout, unit);
+    }
+
+    public String toString() {
+        return "RTaskBatch: [ " + size() + " , " +
+                completedTasks() + " , " +
+                failedTasks() + " ]";
+    }
+
+}
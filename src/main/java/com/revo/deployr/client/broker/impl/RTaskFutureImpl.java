@@ -0,0 +1,226 @@
+/*
+ * RTaskFutureImpl.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.impl;
+
+import com.revo.deployr.client.broker.RTaskCallback;
+import com.revo.deployr.client.broker.RTaskFunction;
+import com.revo.deployr.client.broker.RTaskFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * RTaskFutureImpl.
+ *
+ * Completes exactly once, by complete(), fail() or cancel().
+ * Registered callbacks are notified on the completing thread.
+ */
+public class RTaskFutureImpl<V> implements RTaskFuture<V> {
+
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private final AtomicBoolean completing = new AtomicBoolean(false);
+    private final List<RTaskCallback<? super V>> callbacks =
+            new ArrayList<RTaskCallback<? super V>>();
+
+    private volatile V value;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+
+    public boolean complete(V value) {
+
+        if (!completing.compareAndSet(false, true)) {
+            return false;
+        }
+        this.value = value;
+        publish();
+        return true;
+    }
+
+    public boolean fail(Throwable failure) {
+
+        if (!completing.compareAndSet(false, true)) {
+            return false;
+        }
+        this.failure = failure;
+        this.cancelled = (failure instanceof CancellationException);
+        publish();
+        return true;
+    }
+
+    /*
+     * Future interface methods.
+     */
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return fail(new CancellationException("RTask cancelled."));
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return completed.getCount() == 0;
+    }
+
+    public V get() throws InterruptedException, ExecutionException {
+
+        completed.await();
+        return report();
+    }
+
+    public V get(long timeout, TimeUnit unit)
+            throws InterruptedException,
+            ExecutionException,
+            TimeoutException {
+
+        if (!completed.await(timeout, unit)) {
+            throw new TimeoutException("RTaskFuture timeout " +
+                    "waiting on result.");
+        }
+        return report();
+    }
+
+    /*
+     * RTaskFuture interface methods.
+     */
+
+    public <U> RTaskFuture<U> thenApply(
+            final RTaskFunction<? super V, ? extends U> function) {
+
+        final RTaskFutureImpl<U> next = new RTaskFutureImpl<U>();
+
+        addCallback(new RTaskCallback<V>() {
+
+            public void onSuccess(V value) {
+                try {
+                    next.complete(function.apply(value));
+                } catch (Exception fex) {
+                    next.fail(fex);
+                }
+            }
+
+            public void onFailure(Throwable throwable) {
+                next.fail(throwable);
+            }
+        });
+
+        return next;
+    }
+
+    public <U> RTaskFuture<U> thenCompose(
+            final RTaskFunction<? super V, RTaskFuture<U>> function) {
+
+        final RTaskFutureImpl<U> next = new RTaskFutureImpl<U>();
+
+        addCallback(new RTaskCallback<V>() {
+
+            public void onSuccess(V value) {
+
+                RTaskFuture<U> composed = null;
+                try {
+                    composed = function.apply(value);
+                } catch (Exception fex) {
+                    next.fail(fex);
+                    return;
+                }
+
+                if (composed == null) {
+                    next.complete(null);
+                } else {
+                    composed.addCallback(new RTaskCallback<U>() {
+
+                        public void onSuccess(U value) {
+                            next.complete(value);
+                        }
+
+                        public void onFailure(Throwable throwable) {
+                            next.fail(throwable);
+                        }
+                    });
+                }
+            }
+
+            public void onFailure(Throwable throwable) {
+                next.fail(throwable);
+            }
+        });
+
+        return next;
+    }
+
+    public RTaskFuture<V> addCallback(RTaskCallback<? super V> callback) {
+
+        synchronized (callbacks) {
+            if (!isDone()) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        notify(callback);
+        return this;
+    }
+
+    /*
+     * RTaskFutureImpl private implementation.
+     */
+
+    private void publish() {
+
+        List<RTaskCallback<? super V>> pending;
+        synchronized (callbacks) {
+            completed.countDown();
+            pending = new ArrayList<RTaskCallback<? super V>>(callbacks);
+            callbacks.clear();
+        }
+        for (RTaskCallback<? super V> callback : pending) {
+            notify(callback);
+        }
+    }
+
+    private void notify(RTaskCallback<? super V> callback) {
+
+        try {
+            if (failure == null) {
+                callback.onSuccess(value);
+            } else {
+                callback.onFailure(failure);
+            }
+        } catch (Exception cex) {
+            /*
+             * Callback is calling back into client application
+             * code. That code could erroneously throw an
+             * Exception back into RTaskFutureImpl. If so,
+             * swallow it.
+             */
+        }
+    }
+
+    private V report() throws ExecutionException {
+
+        if (cancelled) {
+            throw (CancellationException) failure;
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return value;
+    }
+
+}
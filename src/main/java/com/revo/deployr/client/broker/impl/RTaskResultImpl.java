@@ -148,6 +148,18 @@ public class RTaskResultImpl implements RTaskResult {
     */
     public boolean repeatTask = false;
 
+    /**
+     * Task System.nanoTime() timestamps, recorded by
+     * {@link com.revo.deployr.client.broker.RBroker} as
+     * the task moves from submission to delivery.
+     */
+    public long submitTime = 0L;
+    public long dequeueTime = 0L;
+    public long tokenAcquiredTime = 0L;
+    public long executionStartTime = 0L;
+    public long executionEndTime = 0L;
+    public volatile long listenerDeliveredTime = 0L;
+
     /*
      * RTaskResult interface methods.
      */
@@ -245,6 +257,48 @@ public class RTaskResultImpl implements RTaskResult {
         return timeOnCall;
     }
 
+    /**
+     * Task System.nanoTime() on submission.
+     */
+    public long getSubmitTime() {
+        return submitTime;
+    }
+
+    /**
+     * Task System.nanoTime() on removal from pending queue.
+     */
+    public long getDequeueTime() {
+        return dequeueTime;
+    }
+
+    /**
+     * Task System.nanoTime() on acquiring a resource token.
+     */
+    public long getTokenAcquiredTime() {
+        return tokenAcquiredTime;
+    }
+
+    /**
+     * Task System.nanoTime() on start of execution.
+     */
+    public long getExecutionStartTime() {
+        return executionStartTime;
+    }
+
+    /**
+     * Task System.nanoTime() on end of execution.
+     */
+    public long getExecutionEndTime() {
+        return executionEndTime;
+    }
+
+    /**
+     * Task System.nanoTime() on delivery to listener.
+     */
+    public long getListenerDeliveredTime() {
+        return listenerDeliveredTime;
+    }
+
     public String toString() {
         return "[ " + success + " , " +
                 timeOnCode + " , " +
@@ -13,12 +13,19 @@
 package com.revo.deployr.client.broker.impl;
 
 import com.revo.deployr.client.broker.RTask;
+import com.revo.deployr.client.broker.RTaskCallback;
+import com.revo.deployr.client.broker.RTaskFuture;
 import com.revo.deployr.client.broker.RTaskResult;
 import com.revo.deployr.client.broker.RTaskToken;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /*
  * RTaskTokenImpl.
@@ -27,7 +34,37 @@ public class RTaskTokenImpl implements RTaskToken {
 
     private final RTask task;
     private RTaskResult result;
-    private Future future;
+    private volatile Future future;
+
+    /*
+     * RTaskToken for the repeat execution of an RTask whose
+     * execution failed on a transient resource failure, see
+     * repeatOn(). Results are reported from the repeat.
+     */
+    private volatile RTaskTokenImpl repeat;
+
+    /*
+     * Withdraws the RTask from RBroker while pending dispatch,
+     * registered by RBroker on submission, see onPending().
+     */
+    private volatile PendingCancellation pendingCancellation;
+
+    /*
+     * Released once RBroker registers the Future for
+     * the RTask on onTask(), waking blocked getResult() callers.
+     */
+    private final CountDownLatch futureAssigned = new CountDownLatch(1);
+
+    /*
+     * Composable view on the RTask result, completed on
+     * onTaskDone() by the worker thread that executed the RTask.
+     */
+    private final RTaskFutureImpl<RTaskResult> completion =
+            new RTaskFutureImpl<RTaskResult>() {
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    return RTaskTokenImpl.this.cancel(mayInterruptIfRunning);
+                }
+            };
 
     public RTaskTokenImpl(RTask task) {
         this.task = task;
@@ -36,6 +73,7 @@ public class RTaskTokenImpl implements RTaskToken {
     public RTaskTokenImpl(RTask task, Future future) {
         this.task = task;
         this.future = future;
+        this.futureAssigned.countDown();
     }
 
     public final RTask getTask() {
@@ -50,14 +88,35 @@ public class RTaskTokenImpl implements RTaskToken {
         if (result != null) {
             return result;
         } else {
-            while (future == null) {
-                try {
-                    Thread.currentThread().sleep(25);
-                } catch (InterruptedException iex) {
-                    throw iex;
-                }
+            futureAssigned.await();
+            RTaskResult taskResult = (RTaskResult) future.get();
+            RTaskTokenImpl repeatToken = repeat;
+            return (repeatToken != null) ?
+                    repeatToken.getResult() : taskResult;
+        }
+    }
+
+    public RTaskResult getResult(long timeout, TimeUnit unit)
+            throws InterruptedException,
+            CancellationException,
+            ExecutionException,
+            TimeoutException {
+
+        if (result != null) {
+            return result;
+        } else {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!futureAssigned.await(timeout, unit)) {
+                throw new TimeoutException("RTask pending " +
+                        "execution, timeout waiting on result.");
             }
-            return (RTaskResult) future.get();
+            long remaining = deadline - System.nanoTime();
+            RTaskResult taskResult = (RTaskResult) future.get(remaining,
+                    TimeUnit.NANOSECONDS);
+            RTaskTokenImpl repeatToken = repeat;
+            return (repeatToken != null) ?
+                    repeatToken.getResult(deadline - System.nanoTime(),
+                            TimeUnit.NANOSECONDS) : taskResult;
         }
     }
 
@@ -65,7 +124,15 @@ public class RTaskTokenImpl implements RTaskToken {
         return future;
     }
 
+    public final RTaskFuture<RTaskResult> getCompletion() {
+        return completion;
+    }
+
     public boolean isDone() {
+        RTaskTokenImpl repeatToken = repeat;
+        if (repeatToken != null) {
+            return repeatToken.isDone();
+        }
         return (future != null) ? future.isDone() : false;
     }
 
@@ -75,9 +142,14 @@ public class RTaskTokenImpl implements RTaskToken {
 
     public boolean cancel(boolean mayInterruptIfRunning) {
 
+        RTaskTokenImpl repeatToken = repeat;
+
         if (result != null) {
             // RTask completed, can not be cancelled.
             return false;
+        } else if (repeatToken != null) {
+            // RTask repeating, delegate to repeat RTaskToken.
+            return repeatToken.cancel(mayInterruptIfRunning);
         } else if (future != null) {
             // RTask completed, can not be cancelled.
             if (future.isDone() || future.isCancelled()) {
@@ -88,12 +160,34 @@ public class RTaskTokenImpl implements RTaskToken {
             return future.cancel(mayInterruptIfRunning);
 
         } else {
-            // RTask still pending onTask() confirmation
-            // from RBroker, can not be cancelled.
-            return false;
+            // RTask pending dispatch, withdraw from RBroker.
+            PendingCancellation cancellation = pendingCancellation;
+            if (cancellation == null || !cancellation.withdraw()) {
+                return false;
+            }
+
+            FutureTask<RTaskResult> cancelled = new FutureTask<RTaskResult>(
+                    new Callable<RTaskResult>() {
+                        public RTaskResult call() {
+                            return null;
+                        }
+                    });
+            cancelled.cancel(false);
+            onTask(task, cancelled);
+            completion.fail(new CancellationException("RTask " +
+                    "cancelled before execution."));
+            return true;
         }
     }
 
+    /*
+     * Register withdrawal of the RTask pending dispatch,
+     * allowing cancel() ahead of onTask().
+     */
+    public void onPending(PendingCancellation pendingCancellation) {
+        this.pendingCancellation = pendingCancellation;
+    }
+
     /*
      * RTaskListener Interface methods.
      */
@@ -101,7 +195,58 @@ public class RTaskTokenImpl implements RTaskToken {
                        Future future) {
 
         this.future = future;
+        futureAssigned.countDown();
+    }
+
+    public void onTaskDone(RTask task) {
+
+        if (repeat != null) {
+            /*
+             * Completion follows the repeat execution.
+             */
+            return;
+        }
+
+        try {
+            completion.complete((RTaskResult) future.get());
+        } catch (ExecutionException eex) {
+            completion.fail(eex.getCause());
+        } catch (CancellationException cex) {
+            completion.fail(cex);
+        } catch (InterruptedException iex) {
+            completion.fail(iex);
+        }
     }
 
+    /*
+     * Chain this RTaskToken onto the RTaskToken for the repeat
+     * execution of the RTask, called by RBroker ahead of the failed
+     * execution completing. getResult() and the RTaskFuture then
+     * report the outcome of the repeat.
+     */
+    public void repeatOn(RTaskTokenImpl repeatToken) {
+
+        this.repeat = repeatToken;
+        repeatToken.getCompletion().addCallback(
+                new RTaskCallback<RTaskResult>() {
+
+            public void onSuccess(RTaskResult value) {
+                completion.complete(value);
+            }
+
+            public void onFailure(Throwable throwable) {
+                completion.fail(throwable);
+            }
+        });
+    }
+
+    /*
+     * PendingCancellation withdraws an RTask pending dispatch,
+     * returning false once RBroker has claimed it for execution.
+     */
+    public interface PendingCancellation {
+
+        public boolean withdraw();
+    }
 
 }
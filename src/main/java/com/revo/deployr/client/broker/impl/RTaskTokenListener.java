@@ -25,4 +25,6 @@ public interface RTaskTokenListener {
     public void onTask(RTask task,
                        Future future);
 
+    public void onTaskDone(RTask task);
+
 }
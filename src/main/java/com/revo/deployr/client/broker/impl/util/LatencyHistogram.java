@@ -0,0 +1,191 @@
+/*
+ * LatencyHistogram.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.impl.util;
+
+import com.revo.deployr.client.broker.RLatencyStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * LatencyHistogram, a lock-free log-linear histogram of latencies
+ * in milliseconds.
+ *
+ * Latencies below SUB_BUCKET_COUNT are counted exactly, above that
+ * each power of two range is split into SUB_BUCKET_COUNT / 2 linear
+ * buckets, bounding relative error to under 2%. Latencies beyond
+ * MAX_VALUE are counted as MAX_VALUE.
+ *
+ * record() is a pair of atomic adds, stats() reads the live counts.
+ * intervalStats() reports latencies recorded since the previous
+ * interval, reset() discards every latency recorded so far.
+ */
+public final class LatencyHistogram {
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+
+    /*
+     * Counts at the previous intervalStats(), guarded by this.
+     */
+    private long[] intervalCounts = new long[BUCKET_COUNT];
+    private long intervalSum = 0L;
+
+    public void record(long value) {
+
+        if (value < 0L) {
+            value = 0L;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        sum.addAndGet(value);
+    }
+
+    public RLatencyStats stats() {
+        return buildStats(snapshot(), sum.get());
+    }
+
+    public synchronized RLatencyStats intervalStats() {
+
+        long[] current = snapshot();
+        long currentSum = sum.get();
+        long[] interval = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            interval[i] = Math.max(0L, current[i] - intervalCounts[i]);
+        }
+        RLatencyStats stats =
+                buildStats(interval, Math.max(0L, currentSum - intervalSum));
+
+        intervalCounts = current;
+        intervalSum = currentSum;
+        return stats;
+    }
+
+    public synchronized void reset() {
+
+        /*
+         * Subtract rather than zero counts so latencies
+         * recorded concurrently are not lost.
+         */
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            if (count != 0L) {
+                counts.addAndGet(i, -count);
+            }
+        }
+        sum.addAndGet(-sum.get());
+        intervalCounts = new long[BUCKET_COUNT];
+        intervalSum = 0L;
+    }
+
+    private long[] snapshot() {
+
+        long[] current = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            current[i] = counts.get(i);
+        }
+        return current;
+    }
+
+    private static RLatencyStats buildStats(long[] buckets, long total) {
+
+        RLatencyStats stats = new RLatencyStats();
+
+        long count = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets[i];
+        }
+        if (count == 0L) {
+            return stats;
+        }
+
+        stats.count = count;
+        stats.mean = (double) total / count;
+
+        long p50 = rank(count, 0.50);
+        long p90 = rank(count, 0.90);
+        long p95 = rank(count, 0.95);
+        long p99 = rank(count, 0.99);
+        long p999 = rank(count, 0.999);
+
+        long seen = 0L;
+        boolean first = true;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+
+            if (buckets[i] == 0L) {
+                continue;
+            }
+            if (first) {
+                stats.min = lowestValue(i);
+                first = false;
+            }
+
+            long previous = seen;
+            seen += buckets[i];
+            long value = highestValue(i);
+
+            if (previous < p50 && seen >= p50) stats.p50 = value;
+            if (previous < p90 && seen >= p90) stats.p90 = value;
+            if (previous < p95 && seen >= p95) stats.p95 = value;
+            if (previous < p99 && seen >= p99) stats.p99 = value;
+            if (previous < p999 && seen >= p999) stats.p999 = value;
+            stats.max = value;
+        }
+        return stats;
+    }
+
+    private static long rank(long count, double percentile) {
+        return Math.max(1L, (long) Math.ceil(count * percentile));
+    }
+
+    private static int bucketIndex(long value) {
+
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF +
+                (int) (value >> shift) - SUB_BUCKET_HALF;
+    }
+
+    private static long lowestValue(int index) {
+
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF +
+                SUB_BUCKET_HALF;
+        return subBucket << shift;
+    }
+
+    private static long highestValue(int index) {
+
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        return Math.min(MAX_VALUE, lowestValue(index) + (1L << shift) - 1L);
+    }
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    /*
+     * Largest latency tracked, a little over 49 days.
+     */
+    private static final long MAX_VALUE = (1L << 32) - 1L;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+}
@@ -0,0 +1,79 @@
+/*
+ * JmxMetricsExporter.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * {@link com.revo.deployr.client.broker.metrics.RBrokerMetricsExporter}
+ * registering each {@link com.revo.deployr.client.broker.RBroker}
+ * metrics as an MBean, named
+ * com.revo.deployr.client.broker:type=RBrokerMetrics,name=brokerName,
+ * on the platform MBeanServer.
+ */
+public class JmxMetricsExporter implements RBrokerMetricsExporter {
+
+    public static final String DOMAIN = "com.revo.deployr.client.broker";
+
+    private final MBeanServer mbeanServer;
+
+    public JmxMetricsExporter() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsExporter(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+    }
+
+    public void register(RBrokerMetrics metrics) {
+
+        try {
+            ObjectName name = objectName(metrics);
+            if (mbeanServer.isRegistered(name)) {
+                mbeanServer.unregisterMBean(name);
+            }
+            mbeanServer.registerMBean(
+                    new StandardMBean(metrics, RBrokerMetrics.class), name);
+        } catch (Exception ex) {
+            System.out.println("JmxMetricsExporter: " +
+                    "register failed, ex=" + ex);
+        }
+    }
+
+    public void unregister(RBrokerMetrics metrics) {
+
+        try {
+            ObjectName name = objectName(metrics);
+            if (mbeanServer.isRegistered(name)) {
+                mbeanServer.unregisterMBean(name);
+            }
+        } catch (Exception ex) {
+            System.out.println("JmxMetricsExporter: " +
+                    "unregister failed, ex=" + ex);
+        }
+    }
+
+    /**
+     * MBean name for the
+     * {@link com.revo.deployr.client.broker.RBroker} metrics.
+     */
+    public static ObjectName objectName(RBrokerMetrics metrics)
+            throws Exception {
+        return new ObjectName(DOMAIN + ":type=RBrokerMetrics,name=" +
+                ObjectName.quote(metrics.getBrokerName()));
+    }
+
+}
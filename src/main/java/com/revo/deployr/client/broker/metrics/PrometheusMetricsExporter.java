@@ -0,0 +1,182 @@
+/*
+ * PrometheusMetricsExporter.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>
+ * {@link com.revo.deployr.client.broker.metrics.RBrokerMetricsExporter}
+ * rendering the metrics of each registered
+ * {@link com.revo.deployr.client.broker.RBroker} in the Prometheus
+ * text exposition format, labelled by broker name.
+ * </p>
+ * Metrics are only read when scraped, typically from an HTTP
+ * handler serving /metrics on the application.
+ */
+public class PrometheusMetricsExporter implements RBrokerMetricsExporter {
+
+    private final CopyOnWriteArrayList<RBrokerMetrics> registered =
+            new CopyOnWriteArrayList<RBrokerMetrics>();
+
+    public void register(RBrokerMetrics metrics) {
+        registered.addIfAbsent(metrics);
+    }
+
+    public void unregister(RBrokerMetrics metrics) {
+        registered.remove(metrics);
+    }
+
+    /**
+     * Returns metrics for every registered
+     * {@link com.revo.deployr.client.broker.RBroker}
+     * in Prometheus text format.
+     */
+    public String scrape() {
+
+        StringWriter writer = new StringWriter();
+        try {
+            scrape(writer);
+        } catch (IOException iex) {
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes metrics for every registered
+     * {@link com.revo.deployr.client.broker.RBroker}
+     * in Prometheus text format.
+     */
+    public void scrape(Writer writer) throws IOException {
+
+        header(writer, "rbroker_pending_tasks", "gauge",
+                "RTask pending execution, by priority level.");
+        for (RBrokerMetrics metrics : registered) {
+            for (int i = 0; i < metrics.getPriorityLevels(); i++) {
+                sample(writer, "rbroker_pending_tasks", metrics,
+                        "priority", String.valueOf(i),
+                        metrics.getPendingTasks(i));
+            }
+        }
+
+        gauge(writer, "rbroker_available_resource_tokens",
+                "Resource tokens available for RTask execution.",
+                AVAILABLE_RESOURCE_TOKENS);
+        gauge(writer, "rbroker_in_flight_tasks",
+                "RTask currently executing.", IN_FLIGHT_TASKS);
+        gauge(writer, "rbroker_max_concurrency",
+                "Task execution concurrency currently enforced.",
+                MAX_CONCURRENCY);
+        counter(writer, "rbroker_tasks_submitted_total",
+                "RTask accepted for execution.", TASKS_SUBMITTED);
+        counter(writer, "rbroker_tasks_rejected_total",
+                "RTask rejected with the broker at capacity.",
+                TASKS_REJECTED);
+        counter(writer, "rbroker_tasks_retried_total",
+                "RTask executions repeated following a failure.",
+                TASKS_RETRIED);
+        counter(writer, "rbroker_grid_failures_total",
+                "RTask executions failed on a DeployR grid failure.",
+                GRID_FAILURES);
+        counter(writer, "rbroker_tasks_completed_total",
+                "RTask completed, successfully or otherwise.",
+                TASKS_COMPLETED);
+        counter(writer, "rbroker_tasks_failed_total",
+                "RTask completed in failure.", TASKS_FAILED);
+        writer.flush();
+    }
+
+    private void gauge(Writer writer, String name, String help, int metric)
+            throws IOException {
+        header(writer, name, "gauge", help);
+        for (RBrokerMetrics metrics : registered) {
+            sample(writer, name, metrics, null, null, read(metrics, metric));
+        }
+    }
+
+    private void counter(Writer writer, String name, String help, int metric)
+            throws IOException {
+        header(writer, name, "counter", help);
+        for (RBrokerMetrics metrics : registered) {
+            sample(writer, name, metrics, null, null, read(metrics, metric));
+        }
+    }
+
+    private static long read(RBrokerMetrics metrics, int metric) {
+
+        switch (metric) {
+            case AVAILABLE_RESOURCE_TOKENS:
+                return metrics.getAvailableResourceTokens();
+            case IN_FLIGHT_TASKS:
+                return metrics.getInFlightTasks();
+            case MAX_CONCURRENCY:
+                return metrics.getMaxConcurrency();
+            case TASKS_SUBMITTED:
+                return metrics.getTotalTasksSubmitted();
+            case TASKS_REJECTED:
+                return metrics.getTotalTasksRejected();
+            case TASKS_RETRIED:
+                return metrics.getTotalTasksRetried();
+            case GRID_FAILURES:
+                return metrics.getTotalGridFailures();
+            case TASKS_COMPLETED:
+                return metrics.getTotalTasksCompleted();
+            default:
+                return metrics.getTotalTasksFailed();
+        }
+    }
+
+    private static void header(Writer writer, String name,
+                               String type, String help)
+            throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void sample(Writer writer, String name,
+                               RBrokerMetrics metrics,
+                               String label, String labelValue,
+                               long value)
+            throws IOException {
+
+        writer.write(name);
+        writer.write("{broker=\"");
+        writer.write(escape(metrics.getBrokerName()));
+        writer.write("\"");
+        if (label != null) {
+            writer.write("," + label + "=\"" + escape(labelValue) + "\"");
+        }
+        writer.write("} ");
+        writer.write(String.valueOf(value));
+        writer.write("\n");
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+    private static final int AVAILABLE_RESOURCE_TOKENS = 0;
+    private static final int IN_FLIGHT_TASKS = 1;
+    private static final int MAX_CONCURRENCY = 2;
+    private static final int TASKS_SUBMITTED = 3;
+    private static final int TASKS_REJECTED = 4;
+    private static final int TASKS_RETRIED = 5;
+    private static final int GRID_FAILURES = 6;
+    private static final int TASKS_COMPLETED = 7;
+    private static final int TASKS_FAILED = 8;
+}
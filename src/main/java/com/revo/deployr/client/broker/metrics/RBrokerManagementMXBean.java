@@ -0,0 +1,126 @@
+/*
+ * RBrokerManagementMXBean.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.metrics;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * Live management interface for a
+ * {@link com.revo.deployr.client.broker.RBroker}, registered
+ * on the platform MBeanServer as
+ * com.revo.deployr.client.broker:type=RBrokerManagement,name=brokerName
+ * when {@link com.revo.deployr.client.broker.config.RBrokerConfig#jmxManagement}
+ * is enabled, a numeric suffix being appended to brokerName
+ * where that name is already registered.
+ * </p>
+ * Operations allow load to be shed or a broker throttled in
+ * production without changes to application code.
+ */
+public interface RBrokerManagementMXBean {
+
+    /**
+     * Returns the name identifying the broker.
+     */
+    public String getBrokerName();
+
+    /**
+     * Returns true while task dispatch is paused.
+     */
+    public boolean isPaused();
+
+    /**
+     * Returns true while the broker is draining,
+     * refusing new task submissions.
+     */
+    public boolean isDraining();
+
+    /**
+     * Returns the number of tasks pending execution
+     * across all priority levels.
+     */
+    public int getPendingTasks();
+
+    /**
+     * Returns the number of tasks pending execution
+     * on each priority level, indexed by level.
+     */
+    public int[] getPendingTasksByPriority();
+
+    /**
+     * Returns the number of tasks currently executing.
+     */
+    public int getExecutingTasks();
+
+    /**
+     * Returns the number of resource tokens currently
+     * available for task execution.
+     */
+    public int getAvailableResourceTokens();
+
+    /**
+     * Returns the task execution concurrency currently enforced.
+     */
+    public int getMaxConcurrency();
+
+    /**
+     * Returns the number of tasks completed,
+     * keyed on RTaskType.
+     */
+    public Map<String, Long> getTasksCompletedByType();
+
+    /**
+     * Returns the mean number of tasks completed per second
+     * since the broker started, keyed on RTaskType.
+     */
+    public Map<String, Double> getThroughputByType();
+
+    /**
+     * Returns latency percentiles, in milliseconds, keyed on
+     * RTaskType.priority.latency.percentile, for example
+     * DISCRETE.0.timeOnCall.p99.
+     */
+    public Map<String, Long> getLatencyPercentiles();
+
+    /**
+     * Pauses task dispatch, pending tasks remain queued.
+     */
+    public void pause();
+
+    /**
+     * Resumes task dispatch and task submissions following
+     * a call on {@link #pause} or {@link #drain}.
+     */
+    public void resume();
+
+    /**
+     * Refuses new task submissions then waits up to timeout
+     * milliseconds for pending and executing tasks to complete.
+     * Returns true if the broker drained within the timeout,
+     * otherwise submissions are accepted again.
+     */
+    public boolean drain(long timeout) throws InterruptedException;
+
+    /**
+     * Caps task execution concurrency at limit, a limit of 0
+     * removing the cap. Returns the concurrency now enforced.
+     */
+    public int resizeConcurrency(int limit);
+
+    /**
+     * Flushes all pending tasks on the priority level.
+     * Returns the number of tasks still pending.
+     */
+    public int flush(int priority) throws Exception;
+
+}
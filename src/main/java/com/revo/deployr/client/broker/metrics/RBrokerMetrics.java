@@ -0,0 +1,105 @@
+/*
+ * RBrokerMetrics.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.metrics;
+
+/**
+ * <p>
+ * Live counters and gauges for an
+ * {@link com.revo.deployr.client.broker.RBroker}.
+ * </p>
+ * Each value is read directly from lock-free counters maintained
+ * by the broker as tasks move through it, so metrics can be read
+ * at any rate from any thread without allocation and without
+ * coupling to {@link com.revo.deployr.client.broker.RBrokerListener}.
+ */
+public interface RBrokerMetrics {
+
+    /**
+     * Name identifying the
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public String getBrokerName();
+
+    /**
+     * Number of priority levels on the
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public int getPriorityLevels();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * pending execution across all priority levels.
+     */
+    public int getPendingTasks();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * pending execution at the given priority level.
+     */
+    public int getPendingTasks(int priority);
+
+    /**
+     * Number of resource tokens, slots or R sessions,
+     * available for {@link com.revo.deployr.client.broker.RTask}
+     * execution.
+     */
+    public int getAvailableResourceTokens();
+
+    /**
+     * Number of {@link com.revo.deployr.client.broker.RTask}
+     * currently executing.
+     */
+    public int getInFlightTasks();
+
+    /**
+     * Task execution concurrency currently enforced.
+     */
+    public int getMaxConcurrency();
+
+    /**
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * accepted for execution.
+     */
+    public long getTotalTasksSubmitted();
+
+    /**
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * rejected on submission with the broker at capacity.
+     */
+    public long getTotalTasksRejected();
+
+    /**
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * executions repeated by the broker following a failure.
+     */
+    public long getTotalTasksRetried();
+
+    /**
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * executions that failed on a DeployR grid failure.
+     */
+    public long getTotalGridFailures();
+
+    /**
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * completed, successfully or otherwise.
+     */
+    public long getTotalTasksCompleted();
+
+    /**
+     * Total number of {@link com.revo.deployr.client.broker.RTask}
+     * completed in failure.
+     */
+    public long getTotalTasksFailed();
+
+}
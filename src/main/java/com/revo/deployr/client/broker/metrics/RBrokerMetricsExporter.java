@@ -0,0 +1,41 @@
+/*
+ * RBrokerMetricsExporter.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.metrics;
+
+/**
+ * <p>
+ * Service provider interface for exporting
+ * {@link com.revo.deployr.client.broker.metrics.RBrokerMetrics}
+ * to a monitoring system.
+ * </p>
+ * An exporter is set on
+ * {@link com.revo.deployr.client.broker.config.RBrokerConfig#metricsExporter}.
+ * The broker registers its metrics on startup and unregisters them
+ * on shutdown. A single exporter may be shared by many brokers.
+ */
+public interface RBrokerMetricsExporter {
+
+    /**
+     * Register metrics for a live
+     * {@link com.revo.deployr.client.broker.RBroker}.
+     */
+    public void register(RBrokerMetrics metrics);
+
+    /**
+     * Unregister metrics for an
+     * {@link com.revo.deployr.client.broker.RBroker}
+     * on shutdown.
+     */
+    public void unregister(RBrokerMetrics metrics);
+
+}
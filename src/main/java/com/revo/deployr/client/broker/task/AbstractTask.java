@@ -31,6 +31,18 @@ public abstract class AbstractTask implements RTask {
      */
     protected Object token;
 
+    /*
+     * RTask deadline, optionally assigned by a client application,
+     * 0 indicating no deadline.
+     */
+    protected long deadline;
+
+    /*
+     * RTask tenant key, optionally assigned by a client application,
+     * null indicating the default tenant.
+     */
+    protected String tenant;
+
     public Object getToken() {
         return token;
     }
@@ -38,4 +50,53 @@ public abstract class AbstractTask implements RTask {
     public void setToken(Object token) {
         this.token = token;
     }
+
+    /**
+     * Return RTask deadline, in milliseconds since the epoch as
+     * reported by System.currentTimeMillis(). A value of 0
+     * indicates the RTask has no deadline.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set an RTask deadline, in milliseconds since the epoch as
+     * reported by System.currentTimeMillis().
+     *
+     * Within each priority level, pending tasks with a deadline are
+     * dispatched in earliest-deadline-first order ahead of tasks
+     * without a deadline. A task whose deadline passes while pending
+     * is dropped without execution and reported as failed. A task
+     * still executing when its deadline passes is cancelled, along
+     * with any corresponding execution on the DeployR server.
+     *
+     * A value of 0, the default, indicates no deadline.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Return RTask tenant key.
+     */
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Set an RTask tenant key.
+     *
+     * Tenant keys identify the client application, caller or group
+     * that submitted an RTask. Where multiple tenants share a single
+     * RBroker, pending tasks are scheduled across tenants in
+     * weighted round-robin order so a tenant with a large backlog
+     * can not block tasks submitted by other tenants.
+     *
+     * A value of null, the default, schedules the RTask under
+     * RBrokerConfig.DEFAULT_TENANT.
+     */
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
 }
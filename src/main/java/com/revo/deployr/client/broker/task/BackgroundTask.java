@@ -13,8 +13,10 @@
 package com.revo.deployr.client.broker.task;
 
 import com.revo.deployr.client.broker.options.BackgroundTaskOptions;
+import com.revo.deployr.client.data.RData;
 
 import java.net.URL;
+import java.util.List;
 
 /**
  * Represents a Background {@link com.revo.deployr.client.broker.RTask}
@@ -59,6 +61,14 @@ public class BackgroundTask extends AbstractTask {
      */
     public BackgroundTaskOptions options;
 
+    /*
+     * Optional rinputs, when set take precedence over
+     * options.rinputs on submission. Set on each task of
+     * a parameter sweep so the sweep template options
+     * are shared rather than copied.
+     */
+    public List<RData> rinputs;
+
     public BackgroundTask(String name,
                           String description,
                           String code,
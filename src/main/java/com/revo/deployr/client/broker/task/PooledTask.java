@@ -49,6 +49,13 @@ public class PooledTask extends AbstractTask {
      */
     public final PooledTaskOptions options;
 
+    /*
+     * Affinity key, optionally assigned by a client application,
+     * pins tasks sharing the key to a single R session so each task
+     * sees the workspace left by the one before.
+     */
+    private String affinityKey;
+
     public PooledTask(String code,
                       PooledTaskOptions options) {
 
@@ -88,6 +95,14 @@ public class PooledTask extends AbstractTask {
         this.options = options;
     }
 
+    public String getAffinityKey() {
+        return affinityKey;
+    }
+
+    public void setAffinityKey(String affinityKey) {
+        this.affinityKey = affinityKey;
+    }
+
     public String toString() {
 
         if (code != null) {
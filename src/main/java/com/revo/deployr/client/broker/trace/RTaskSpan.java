@@ -0,0 +1,37 @@
+/*
+ * RTaskSpan.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.trace;
+
+/**
+ * Span started by an
+ * {@link com.revo.deployr.client.broker.trace.RTaskTracer}
+ * for a single {@link com.revo.deployr.client.broker.trace.RTaskStage}.
+ * A span may be ended on a different thread to the
+ * thread on which it was started.
+ */
+public interface RTaskSpan {
+
+    /**
+     * Returns the trace context holding this span, passed back
+     * to the {@link com.revo.deployr.client.broker.trace.RTaskTracer}
+     * as the parent of child spans and on
+     * {@link com.revo.deployr.client.broker.trace.RTaskTracer#attachContext}.
+     */
+    public Object getContext();
+
+    /**
+     * Ends the span, failure is null when the stage succeeded.
+     */
+    public void end(Throwable failure);
+
+}
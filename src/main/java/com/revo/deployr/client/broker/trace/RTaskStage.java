@@ -0,0 +1,62 @@
+/*
+ * RTaskStage.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.trace;
+
+/**
+ * Defines the stages of
+ * {@link com.revo.deployr.client.broker.RTask} handling traced
+ * by an {@link com.revo.deployr.client.broker.trace.RTaskTracer}.
+ * Each stage is reported as a child span of the
+ * {@link #TASK} span.
+ */
+public enum RTaskStage {
+    /**
+     * Span covering the RTask from submission
+     * to listener delivery.
+     */
+    TASK("rbroker.task"),
+    /**
+     * Submission of the RTask on the calling thread.
+     */
+    SUBMIT("rbroker.submit"),
+    /**
+     * RTask pending on the broker queue.
+     */
+    QUEUE("rbroker.queue"),
+    /**
+     * RTask awaiting a resource token.
+     */
+    TOKEN_WAIT("rbroker.token_wait"),
+    /**
+     * RTask executing on DeployR.
+     */
+    EXECUTE("rbroker.execute"),
+    /**
+     * RTask result delivery to the
+     * {@link com.revo.deployr.client.broker.RTaskListener}.
+     */
+    DELIVER("rbroker.deliver");
+
+    private final String spanName;
+
+    private RTaskStage(String spanName) {
+        this.spanName = spanName;
+    }
+
+    /**
+     * Returns the span name for the stage.
+     */
+    public String getSpanName() {
+        return spanName;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * RTaskTracer.java
+ *
+ * Copyright (C) 2010-2016, Microsoft Corporation
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.broker.trace;
+
+import com.revo.deployr.client.broker.RTask;
+
+/**
+ * <p>
+ * Tracing interceptor for
+ * {@link com.revo.deployr.client.broker.RTask} handled by an
+ * {@link com.revo.deployr.client.broker.RBroker}, registered on
+ * {@link com.revo.deployr.client.broker.config.RBrokerConfig#taskTracer}.
+ * </p>
+ * <p>
+ * The trace context current on the submitting thread is captured on
+ * submit and becomes the parent of an
+ * {@link com.revo.deployr.client.broker.trace.RTaskStage#TASK} span,
+ * with a child span for each stage the RTask passes through. The
+ * EXECUTE and DELIVER span contexts are attached to the worker and
+ * listener threads for the duration of those stages, so spans
+ * created by HTTP client instrumentation or by
+ * {@link com.revo.deployr.client.broker.RTaskListener} code nest
+ * beneath the RTask.
+ * </p>
+ * <p>
+ * Trace contexts are opaque to the broker, so the interface maps
+ * directly onto OpenTelemetry without a dependency on it:
+ * currentContext returns Context.current(), startSpan builds a span
+ * named {@link com.revo.deployr.client.broker.trace.RTaskStage#getSpanName}
+ * with the parent Context, attachContext returns Context.makeCurrent()
+ * and detachContext closes the returned Scope.
+ * </p>
+ * Tracer methods are called on broker threads and must not block.
+ * When no tracer is registered no tracing work is performed.
+ */
+public interface RTaskTracer {
+
+    /**
+     * Returns the trace context current on the calling thread,
+     * or null if there is none.
+     */
+    public Object currentContext();
+
+    /**
+     * Starts a span for the stage of the RTask, as a child of
+     * parentContext, which may be null.
+     */
+    public RTaskSpan startSpan(RTaskStage stage,
+                               RTask task,
+                               Object parentContext);
+
+    /**
+     * Makes context current on the calling thread, returning
+     * a scope passed to
+     * {@link com.revo.deployr.client.broker.trace.RTaskTracer#detachContext}
+     * on the same thread.
+     */
+    public Object attachContext(Object context);
+
+    /**
+     * Restores the trace context that was current on the calling
+     * thread ahead of the matching attachContext call.
+     */
+    public void detachContext(Object scope);
+
+}
@@ -31,6 +31,12 @@ public class BackgroundTaskWorker implements RBrokerWorker {
     private final Integer resourceToken;
     private final BackgroundTaskBroker rBroker;
 
+    /*
+     * RJob submitted by this worker, retained so
+     * interrupt() can cancel the job.
+     */
+    private volatile RJob submittedJob;
+
     public BackgroundTaskWorker(BackgroundTask task,
                                 long executorTaskRef,
                                 boolean isPriorityTask,
@@ -67,6 +73,15 @@ public class BackgroundTaskWorker implements RBrokerWorker {
                     ROptionsTranslator.translate(task.options,
                             isPriorityTask);
 
+            if (task.rinputs != null) {
+                if (options == null) {
+                    options = new JobExecutionOptions();
+                    if (isPriorityTask)
+                        options.priority = JobExecutionOptions.HIGH_PRIORITY;
+                }
+                options.rinputs = task.rinputs;
+            }
+
             if (task.code != null) {
                 rJob = rUser.submitJobCode(task.name,
                         task.description,
@@ -89,6 +104,7 @@ public class BackgroundTaskWorker implements RBrokerWorker {
             }
 
             timeOnCall = System.currentTimeMillis() - startTime;
+            submittedJob = rJob;
 
             taskResult = new RTaskResultImpl(rJob.about().id,
                     RTaskType.BACKGROUND,
@@ -131,4 +147,24 @@ public class BackgroundTaskWorker implements RBrokerWorker {
         return taskResult;
     }
 
+    public void interrupt() {
+
+        RJob rJob = submittedJob;
+        if (rJob != null) {
+            try {
+                /*
+                 * Only cancel RJob that has yet to reach
+                 * a terminal state on the DeployR server.
+                 */
+                String status = rJob.query().status;
+                if (RJob.SCHEDULED.equals(status) ||
+                        RJob.QUEUED.equals(status) ||
+                        RJob.RUNNING.equals(status)) {
+                    rJob.cancel();
+                }
+            } catch (Exception iex) {
+            }
+        }
+    }
+
 }
@@ -155,4 +155,12 @@ public class DiscreteTaskWorker implements RBrokerWorker {
 
     }
 
+    public void interrupt() {
+        /*
+         * DiscreteTask execute on a temporary project on the
+         * DeployR server, no handle is available to interrupt
+         * the execution. Cancellation relies on the RTaskToken.
+         */
+    }
+
 }
@@ -35,17 +35,42 @@ public class PooledTaskWorker implements RBrokerWorker {
     private final RProject rProject;
     private final PooledTaskBroker rBroker;
 
+    /*
+     * Set when rProject already holds the preloads
+     * requested on task, skipping redundant preloads.
+     */
+    private final boolean preloaded;
+
+    /*
+     * Set while this worker holds rProject, guarding
+     * interrupt() against interrupting a later task
+     * executing on the same RProject.
+     */
+    private volatile boolean executing;
+
     public PooledTaskWorker(PooledTask task,
                             long executorTaskRef,
                             boolean isPriorityTask,
                             RProject resourceToken,
                             RBroker rBroker) {
 
+        this(task, executorTaskRef, isPriorityTask,
+                resourceToken, rBroker, false);
+    }
+
+    public PooledTaskWorker(PooledTask task,
+                            long executorTaskRef,
+                            boolean isPriorityTask,
+                            RProject resourceToken,
+                            RBroker rBroker,
+                            boolean preloaded) {
+
         this.task = task;
         this.executorTaskRef = executorTaskRef;
         this.isPriorityTask = isPriorityTask;
         this.rProject = resourceToken;
         this.rBroker = (PooledTaskBroker) rBroker;
+        this.preloaded = preloaded;
     }
 
     public RTaskResult call() throws RClientException,
@@ -58,6 +83,8 @@ public class PooledTaskWorker implements RBrokerWorker {
         long timeOnCall = 0L;
         long timeOnServer = 0L;
 
+        executing = true;
+
         try {
 
             ProjectExecutionOptions options =
@@ -71,6 +98,12 @@ public class PooledTaskWorker implements RBrokerWorker {
 
             options.phantom = true;
 
+            if (preloaded) {
+                options.preloadWorkspace = null;
+                options.preloadDirectory = null;
+                options.preloadByDirectory = null;
+            }
+
             long startTime = System.currentTimeMillis();
 
             RProjectExecution execResult = null;
@@ -154,6 +187,8 @@ public class PooledTaskWorker implements RBrokerWorker {
                     0L, ex);
         } finally {
 
+            executing = false;
+
             /*
              * Callback to PooledTaskBroker to release
              * RProject back into pool for other tasks.
@@ -163,4 +198,14 @@ public class PooledTaskWorker implements RBrokerWorker {
 
         return taskResult;
     }
+
+    public void interrupt() {
+
+        if (executing) {
+            try {
+                rProject.interruptExecution();
+            } catch (Exception iex) {
+            }
+        }
+    }
 }
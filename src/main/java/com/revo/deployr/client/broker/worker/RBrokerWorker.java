@@ -20,4 +20,11 @@ import java.util.concurrent.Callable;
  * RBrokerWorker.
  */
 public interface RBrokerWorker extends Callable<RTaskResult> {
+
+    /*
+     * Interrupt any execution on the DeployR server corresponding
+     * to the RTask, called when the RTask deadline passes. Must be
+     * safe to call at any time, including after call() returns.
+     */
+    public void interrupt();
 }
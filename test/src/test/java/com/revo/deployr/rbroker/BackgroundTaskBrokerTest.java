@@ -15,12 +15,16 @@ package com.revo.deployr.rbroker;
 import com.revo.deployr.DeployRUtil;
 import com.revo.deployr.client.broker.*;
 import com.revo.deployr.client.broker.config.*;
+import com.revo.deployr.client.broker.engine.BackgroundTaskBroker;
 import com.revo.deployr.client.broker.options.*;
 import com.revo.deployr.client.*;
+import com.revo.deployr.client.data.RData;
 import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.auth.basic.RBasicAuthentication;
 import org.junit.*;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -1058,4 +1062,291 @@ public class BackgroundTaskBrokerTest {
         }
     }
  
+
+    /**
+     * Test BackgroundBrokerConfig job completion tracking.
+     */
+    @Test
+    public void testJobCompletionTracking() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        BackgroundBrokerConfig config = null;
+        RTask rTask = null;
+        RTaskResult rTaskResult = null;
+        final RTaskResult[] jobResult = new RTaskResult[1];
+        final CountDownLatch jobLatch = new CountDownLatch(1);
+        String jobID = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new BackgroundBrokerConfig(endpoint, rAuth);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.trackJobCompletion = true;
+
+        try {
+            rBroker = RBrokerFactory.backgroundTaskBroker(config);
+            rBroker.addTaskListener(new RJobListener() {
+                public void onTaskCompleted(RTask rTask, RTaskResult rTaskResult) {
+                }
+                public void onTaskError(RTask rTask, Throwable throwable) {
+                }
+                public void onJobCompleted(RTask rTask,
+                                           RTaskResult rTaskResult,
+                                           RJob rJob) {
+                    jobResult[0] = rTaskResult;
+                    jobLatch.countDown();
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.backgroundTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                rTask = RTaskFactory.backgroundTask("testJobCompletionTracking",
+                                                    "Background Task",
+                                                    "Histogram of Auto Sales",
+                                                     "root", "testuser", null, null);
+                rTaskResult = rBroker.submit(rTask).getResult();
+                jobID = rTaskResult.getID();
+                jobLatch.await(120, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            DeployRUtil.deleteJobArtifacts(rBroker.owner(), jobID);
+        } catch (Exception dex) {}
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(rTaskResult);
+            assertTrue(rTaskResult.isSuccess());
+            assertNotNull(jobResult[0]);
+            assertEquals(jobID, jobResult[0].getID());
+            assertTrue(jobResult[0].isSuccess());
+            assertTrue(jobResult[0].getTimeOnServer() > 0L);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test configurable and adaptive submission concurrency.
+     */
+    @Test
+    public void testConfigurableSubmissionConcurrency() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBroker rAdaptiveBroker = null;
+        RBasicAuthentication rAuth = null;
+        BackgroundBrokerConfig config = null;
+        BackgroundBrokerConfig adaptiveConfig = null;
+        int maxConcurrency = 0;
+        int adaptiveConcurrency = 0;
+        RTaskResult rTaskResult = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new BackgroundBrokerConfig(endpoint, rAuth, 25);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        adaptiveConfig = new BackgroundBrokerConfig(endpoint, rAuth, 25);
+        adaptiveConfig.allowSelfSignedSSLCert = allowSelfSigned;
+        adaptiveConfig.adaptiveConcurrency = true;
+        adaptiveConfig.minConcurrentTaskLimit = 2;
+
+        try {
+            rBroker = RBrokerFactory.backgroundTaskBroker(config);
+            maxConcurrency = rBroker.maxConcurrency();
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.backgroundTaskBroker failed: ";
+        }
+
+        if (exception == null) {
+            try {
+                rAdaptiveBroker =
+                    RBrokerFactory.backgroundTaskBroker(adaptiveConfig);
+                adaptiveConcurrency = rAdaptiveBroker.maxConcurrency();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "RBrokerFactory.backgroundTaskBroker " +
+                    "adaptive failed: ";
+            }
+        }
+
+        if (exception == null) {
+            try {
+                RTask rTask = RTaskFactory.backgroundTask("Test Adaptive Job",
+                        "Test adaptive submission concurrency.",
+                        "x <- rnorm(10)", null);
+                RTaskToken rTaskToken = rAdaptiveBroker.submit(rTask);
+                rTaskResult = rTaskToken.getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rAdaptiveBroker.submit failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+            if (rAdaptiveBroker != null) {
+                rAdaptiveBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertEquals(25, maxConcurrency);
+            assertEquals(2, adaptiveConcurrency);
+            assertNotNull(rTaskResult);
+            assertTrue(rTaskResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test parameter sweep on a rate limited broker.
+     */
+    @Test
+    public void testParameterSweep() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        BackgroundBrokerConfig config = null;
+        RTaskSweep rTaskSweep = null;
+        boolean sweepDone = false;
+        final int sweepSize = 10;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new BackgroundBrokerConfig(endpoint, rAuth);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.sweepSubmitRate = 5.0;
+        config.sweepBurstSize = 2;
+        config.sweepWindowSize = 4;
+
+        try {
+            rBroker = RBrokerFactory.backgroundTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.backgroundTaskBroker failed: ";
+        }
+
+        if (exception == null) {
+            try {
+                RTask rTask = RTaskFactory.backgroundTask("Test Sweep Job",
+                        "Test parameter sweep.",
+                        "x <- y * 2", null);
+
+                Iterator<List<RData>> rinputs = new Iterator<List<RData>>() {
+
+                    int next = 0;
+
+                    public boolean hasNext() {
+                        return next < sweepSize;
+                    }
+
+                    public List<RData> next() {
+                        return Arrays.asList((RData)
+                            RDataFactory.createNumeric("y", next++));
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+
+                rTaskSweep = ((BackgroundTaskBroker) rBroker)
+                                    .submitSweep(rTask, rinputs);
+                sweepDone = rTaskSweep.await(60, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submitSweep failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(sweepDone);
+            assertTrue(rTaskSweep.isDone());
+            assertEquals(sweepSize, rTaskSweep.submittedTasks());
+            assertEquals(sweepSize, rTaskSweep.completedTasks());
+            assertEquals(0, rTaskSweep.failedTasks());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
 }
@@ -16,11 +16,22 @@ import com.revo.deployr.DeployRUtil;
 import com.revo.deployr.client.broker.*;
 import com.revo.deployr.client.broker.config.*;
 import com.revo.deployr.client.broker.options.*;
+import com.revo.deployr.client.broker.task.DiscreteTask;
+import com.revo.deployr.client.broker.metrics.*;
+import com.revo.deployr.client.broker.trace.*;
 import com.revo.deployr.client.*;
 import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.auth.basic.RBasicAuthentication;
 import org.junit.*;
+import java.lang.management.ManagementFactory;
+import javax.management.JMX;
+import javax.management.ObjectName;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.*;
 
@@ -962,5 +973,1552 @@ public class DiscreteTaskBrokerTest {
             fail(cleanupExceptionMsg + cleanupException.getMessage());
         }
     }
- 
+
+    /**
+     * Test RTaskToken.getResult(timeout, unit) timed wait.
+     */
+    @Test
+    public void testTaskTokenTimedResult() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTask rTask = null;
+        RTaskResult rTaskResult = null;
+        boolean timedOut = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+
+            try {
+                rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                         "root", "testuser", null, null);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "RTaskFactory.discreteTask failed: ";
+            }
+        }
+
+        if(rTask != null) {
+            try {
+                RTaskToken rTaskToken = rBroker.submit(rTask);
+                try {
+                    rTaskToken.getResult(1L, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException tex) {
+                    timedOut = true;
+                }
+                rTaskResult = rTaskToken.getResult(2L, TimeUnit.MINUTES);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rTaskToken.getResult(timeout) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(timedOut);
+            assertNotNull(rTaskResult);
+            assertTrue(rTaskResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RBroker.submitAll batch submission.
+     */
+    @Test
+    public void testSubmitAllBatch() {
+
+        // Test variables.
+        int batchSize = 3;
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        List<RTask> rTasks = new ArrayList<RTask>();
+        RTaskBatch rTaskBatch = null;
+        boolean batchDone = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 2);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+
+            try {
+                for(int i=0; i<batchSize; i++) {
+                    rTasks.add(RTaskFactory.discreteTask(
+                                         "Histogram of Auto Sales",
+                                         "root", "testuser", null, null));
+                }
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "RTaskFactory.discreteTask failed: ";
+            }
+        }
+
+        if(rTasks.size() == batchSize) {
+            try {
+                rTaskBatch = rBroker.submitAll(rTasks);
+                batchDone = rTaskBatch.await(2L, TimeUnit.MINUTES);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submitAll(rTasks) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(rTaskBatch);
+            assertTrue(batchDone);
+            assertEquals(batchSize, rTaskBatch.getTokens().size());
+            assertEquals(batchSize, rTaskBatch.completedTasks());
+            assertEquals(0, rTaskBatch.failedTasks());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RBroker.submit(RTask, int) across multiple priority levels.
+     */
+    @Test
+    public void testMultiLevelPrioritySubmission() {
+
+        // Test variables.
+        int priorityLevels = 3;
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        List<RTaskToken> rTaskTokens = new ArrayList<RTaskToken>();
+        RBrokerStatus rBrokerStatus = null;
+        int completedTasks = 0;
+        boolean invalidPriorityRejected = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.priorityLevels = priorityLevels;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+
+            try {
+                for(int i=0; i<priorityLevels; i++) {
+                    RTask rTask = RTaskFactory.discreteTask(
+                                         "Histogram of Auto Sales",
+                                         "root", "testuser", null, null);
+                    rTaskTokens.add(rBroker.submit(rTask, i));
+                }
+                rBrokerStatus = rBroker.status();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask, priority) failed: ";
+            }
+
+            try {
+                RTask rTask = RTaskFactory.discreteTask(
+                                     "Histogram of Auto Sales",
+                                     "root", "testuser", null, null);
+                rBroker.submit(rTask, priorityLevels);
+            } catch (RBrokerException rex) {
+                invalidPriorityRejected = true;
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask, priority) failed: ";
+            }
+
+            try {
+                for(RTaskToken rTaskToken : rTaskTokens) {
+                    RTaskResult rTaskResult = rTaskToken.getResult();
+                    if(rTaskResult != null && rTaskResult.isSuccess()) {
+                        completedTasks++;
+                    }
+                }
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rTaskToken.getResult() failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(rBrokerStatus);
+            assertEquals(priorityLevels,
+                         rBrokerStatus.pendingTasksByPriority.length);
+            assertTrue(invalidPriorityRejected);
+            assertEquals(priorityLevels, completedTasks);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RTask dropped when deadline passes ahead of dispatch.
+     */
+    @Test
+    public void testTaskExpiredDeadline() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTask rTask = null;
+        RTaskToken rTaskToken = null;
+        boolean taskExpired = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+
+            try {
+                rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                                  "root", "testuser",
+                                                  null, null);
+                ((DiscreteTask) rTask).setDeadline(
+                        System.currentTimeMillis() - 1000L);
+                rTaskToken = rBroker.submit(rTask);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+
+            if(rTaskToken != null) {
+                try {
+                    rTaskToken.getResult();
+                } catch (ExecutionException eex) {
+                    taskExpired = true;
+                } catch (Exception ex) {
+                    exception = ex;
+                    exceptionMsg = "rTaskToken.getResult() failed: ";
+                }
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(rTaskToken);
+            assertTrue(taskExpired);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test DiscreteBrokerConfig adaptive concurrency limit.
+     */
+    @Test
+    public void testAdaptiveConcurrencyLimit() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        List<RTaskToken> rTaskTokens = new ArrayList<RTaskToken>();
+        int successfulTasks = 0;
+        int initialConcurrency = 0;
+        int adaptedConcurrency = 0;
+        int adaptiveTaskCount = 20;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 8);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.adaptiveConcurrency = true;
+        config.minConcurrentTaskLimit = 2;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            initialConcurrency = rBroker.maxConcurrency();
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                for(int i = 0; i < adaptiveTaskCount; i++) {
+                    RTask rTask =
+                        RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                                  "root", "testuser",
+                                                  null, null);
+                    rTaskTokens.add(rBroker.submit(rTask));
+                }
+                for(RTaskToken rTaskToken : rTaskTokens) {
+                    if(rTaskToken.getResult().isSuccess()) {
+                        successfulTasks++;
+                    }
+                }
+                adaptedConcurrency = rBroker.maxConcurrency();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertEquals(2, initialConcurrency);
+            assertEquals(adaptiveTaskCount, successfulTasks);
+            assertTrue(adaptedConcurrency >= 2);
+            assertTrue(adaptedConcurrency <= 8);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RBroker latency percentiles and interval snapshots.
+     */
+    @Test
+    public void testLatencyStats() {
+
+        // Test variables.
+        int batchSize = 3;
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        List<RTask> rTasks = new ArrayList<RTask>();
+        final CountDownLatch tasksReported = new CountDownLatch(batchSize);
+        boolean tasksDone = false;
+        List<RBrokerLatencyStats> intervalStats = null;
+        List<RBrokerLatencyStats> emptyIntervalStats = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 2);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                    tasksReported.countDown();
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                    tasksReported.countDown();
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                for(int i=0; i<batchSize; i++) {
+                    rTasks.add(RTaskFactory.discreteTask(
+                                         "Histogram of Auto Sales",
+                                         "root", "testuser", null, null));
+                }
+                rBroker.submitAll(rTasks);
+                tasksDone = tasksReported.await(2L, TimeUnit.MINUTES);
+                intervalStats = rBroker.intervalLatencyStats();
+                emptyIntervalStats = rBroker.intervalLatencyStats();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submitAll(rTasks) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(tasksDone);
+            assertEquals(1, intervalStats.size());
+            RBrokerLatencyStats latencyStats = intervalStats.get(0);
+            assertEquals(RTaskType.DISCRETE, latencyStats.taskType);
+            assertEquals(0, latencyStats.priority);
+            assertEquals(batchSize, latencyStats.timeOnCall.count);
+            assertTrue(latencyStats.timeOnCall.p99 >=
+                                latencyStats.timeOnCall.p50);
+            assertTrue(latencyStats.timeOnCall.max >=
+                                latencyStats.timeOnCall.p99);
+            assertEquals(1, emptyIntervalStats.size());
+            assertEquals(0L, emptyIntervalStats.get(0).timeOnCall.count);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RTaskResult dispatch timestamps.
+     */
+    @Test
+    public void testTaskTimestamps() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTask rTask = null;
+        final CountDownLatch taskReported = new CountDownLatch(1);
+        final RTaskResult[] reportedResult = new RTaskResult[1];
+        boolean taskDone = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                    reportedResult[0] = result;
+                    taskReported.countDown();
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                    taskReported.countDown();
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                         "root", "testuser", null, null);
+                rBroker.submit(rTask);
+                taskDone = taskReported.await(2L, TimeUnit.MINUTES);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(taskDone);
+            RTaskResult result = reportedResult[0];
+            assertNotNull(result);
+            assertTrue(result.getSubmitTime() != 0L);
+            assertTrue(result.getDequeueTime() - result.getSubmitTime() >= 0L);
+            assertTrue(result.getTokenAcquiredTime() -
+                                result.getDequeueTime() >= 0L);
+            assertTrue(result.getExecutionStartTime() -
+                                result.getTokenAcquiredTime() >= 0L);
+            assertTrue(result.getExecutionEndTime() -
+                                result.getExecutionStartTime() >= 0L);
+            assertTrue(result.getListenerDeliveredTime() -
+                                result.getExecutionEndTime() >= 0L);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RBrokerMetrics exported through RBrokerMetricsExporter.
+     */
+    @Test
+    public void testMetricsExporter() {
+
+        // Test variables.
+        int batchSize = 3;
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        PrometheusMetricsExporter exporter = new PrometheusMetricsExporter();
+        List<RTask> rTasks = new ArrayList<RTask>();
+        final CountDownLatch tasksReported = new CountDownLatch(batchSize);
+        boolean tasksDone = false;
+        String scrape = null;
+        String shutdownScrape = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 2);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.brokerName = "metrics-test";
+        config.metricsExporter = exporter;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                    tasksReported.countDown();
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                    tasksReported.countDown();
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                for(int i=0; i<batchSize; i++) {
+                    rTasks.add(RTaskFactory.discreteTask(
+                                         "Histogram of Auto Sales",
+                                         "root", "testuser", null, null));
+                }
+                rBroker.submitAll(rTasks);
+                tasksDone = tasksReported.await(2L, TimeUnit.MINUTES);
+                scrape = exporter.scrape();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submitAll(rTasks) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+                shutdownScrape = exporter.scrape();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(tasksDone);
+            RBrokerMetrics metrics = rBroker.metrics();
+            assertEquals("metrics-test", metrics.getBrokerName());
+            assertEquals(batchSize, metrics.getTotalTasksSubmitted());
+            assertEquals(batchSize, metrics.getTotalTasksCompleted());
+            assertEquals(0, metrics.getPendingTasks());
+            assertTrue(scrape.contains(
+                "rbroker_tasks_submitted_total{broker=\"metrics-test\"} " +
+                batchSize));
+            assertFalse(shutdownScrape.contains("metrics-test"));
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RBrokerManagementMXBean pause, resume and drain.
+     */
+    @Test
+    public void testManagementPauseResumeDrain() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RBrokerManagementMXBean management = null;
+        RTask rTask = null;
+        RTaskToken rTaskToken = null;
+        RTaskResult rTaskResult = null;
+        boolean pausedOnBean = false;
+        int pendingWhilePaused = 0;
+        boolean drained = false;
+        boolean submitRefused = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.brokerName = "management-test";
+        config.jmxManagement = true;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            management = JMX.newMXBeanProxy(
+                    ManagementFactory.getPlatformMBeanServer(),
+                    new ObjectName(JmxMetricsExporter.DOMAIN +
+                            ":type=RBrokerManagement,name=" +
+                            ObjectName.quote("management-test")),
+                    RBrokerManagementMXBean.class);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                                  "root", "testuser",
+                                                  null, null);
+                management.pause();
+                pausedOnBean = rBroker.isPaused();
+                rTaskToken = rBroker.submit(rTask);
+                pendingWhilePaused = management.getPendingTasks();
+                management.resume();
+                rTaskResult = rTaskToken.getResult();
+                drained = rBroker.drain(120000L);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rBroker.submit(rTask);
+            } catch (RBrokerException rbex) {
+                submitRefused = true;
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(pausedOnBean);
+            assertEquals(1, pendingWhilePaused);
+            assertNotNull(rTaskResult);
+            assertTrue(rTaskResult.isSuccess());
+            assertTrue(drained);
+            assertTrue(submitRefused);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RTaskTracer spans and context propagation.
+     */
+    @Test
+    public void testTaskTracing() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTask rTask = null;
+        final List<String> startedSpans =
+                Collections.synchronizedList(new ArrayList<String>());
+        final List<String> endedSpans =
+                Collections.synchronizedList(new ArrayList<String>());
+        final Map<String, Object> spanParents =
+                Collections.synchronizedMap(new HashMap<String, Object>());
+        final ThreadLocal<Object> currentContext = new ThreadLocal<Object>();
+        final Object[] deliveryContext = new Object[1];
+        final CountDownLatch taskTraced = new CountDownLatch(1);
+        boolean traceDone = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.taskTracer = new RTaskTracer() {
+
+            public Object currentContext() {
+                return currentContext.get();
+            }
+
+            public RTaskSpan startSpan(final RTaskStage stage,
+                                       RTask task,
+                                       Object parentContext) {
+                startedSpans.add(stage.getSpanName());
+                if (parentContext != null) {
+                    spanParents.put(stage.getSpanName(), parentContext);
+                }
+                return new RTaskSpan() {
+
+                    public Object getContext() {
+                        return stage.getSpanName();
+                    }
+
+                    public void end(Throwable failure) {
+                        endedSpans.add(stage.getSpanName());
+                        if (stage == RTaskStage.TASK) {
+                            taskTraced.countDown();
+                        }
+                    }
+                };
+            }
+
+            public Object attachContext(Object context) {
+                Object previous = currentContext.get();
+                currentContext.set(context);
+                return new Object[] { previous };
+            }
+
+            public void detachContext(Object scope) {
+                currentContext.set(((Object[]) scope)[0]);
+            }
+        };
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                    deliveryContext[0] = currentContext.get();
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                    deliveryContext[0] = currentContext.get();
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                                  "root", "testuser",
+                                                  null, null);
+                currentContext.set("caller");
+                rBroker.submit(rTask);
+                currentContext.remove();
+                traceDone = taskTraced.await(2L, TimeUnit.MINUTES);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(traceDone);
+            assertEquals(Arrays.asList("rbroker.task", "rbroker.submit",
+                            "rbroker.queue", "rbroker.token_wait",
+                            "rbroker.execute", "rbroker.deliver"),
+                    startedSpans);
+            assertEquals(startedSpans.size(), endedSpans.size());
+            assertEquals("caller", spanParents.get("rbroker.task"));
+            assertEquals("rbroker.task", spanParents.get("rbroker.execute"));
+            assertEquals("rbroker.deliver", deliveryContext[0]);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RTask submitted on an idle broker is dispatched without
+     * waiting out a poll interval.
+     */
+    @Test
+    public void testIdleBrokerDispatchLatency() {
+
+        // Test variables.
+        int tasks = 5;
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTask rTask = null;
+        final List<RTaskResult> reportedResults =
+                Collections.synchronizedList(new ArrayList<RTaskResult>());
+        final Semaphore taskReported = new Semaphore(0);
+        boolean tasksDone = true;
+        long maxDispatchLatency = 0L;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                    reportedResults.add(result);
+                    taskReported.release();
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                    taskReported.release();
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                for(int i=0; i<tasks; i++) {
+                    /*
+                     * Allow broker to fall idle ahead of each submission.
+                     */
+                    Thread.sleep(200L);
+                    rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                             "root", "testuser", null, null);
+                    rBroker.submit(rTask);
+                    tasksDone &= taskReported.tryAcquire(2L, TimeUnit.MINUTES);
+                }
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(tasksDone);
+            assertEquals(tasks, reportedResults.size());
+            for(RTaskResult result : reportedResults) {
+                maxDispatchLatency = Math.max(maxDispatchLatency,
+                        result.getDequeueTime() - result.getSubmitTime());
+            }
+            /*
+             * Dispatch on an idle broker is signalled on submit,
+             * well inside the 50 ms interval once spent polling.
+             */
+            assertTrue(maxDispatchLatency < TimeUnit.MILLISECONDS.toNanos(50L));
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RTask completions are delivered in completion order,
+     * once each, without waiting out a poll interval.
+     */
+    @Test
+    public void testCompletionDeliveryOrder() {
+
+        // Test variables.
+        int tasks = 5;
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTask rTask = null;
+        final List<RTaskResult> reportedResults =
+                Collections.synchronizedList(new ArrayList<RTaskResult>());
+        final CountDownLatch tasksReported = new CountDownLatch(tasks);
+        boolean tasksDone = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                    reportedResults.add(result);
+                    tasksReported.countDown();
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                    tasksReported.countDown();
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                for(int i=0; i<tasks; i++) {
+                    rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                             "root", "testuser", null, null);
+                    rBroker.submit(rTask);
+                }
+                tasksDone = tasksReported.await(2L, TimeUnit.MINUTES);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(tasksDone);
+            assertEquals(tasks, reportedResults.size());
+            long previousEndTime = 0L;
+            for(int i=0; i<tasks; i++) {
+                RTaskResult result = reportedResults.get(i);
+                if (i > 0) {
+                    assertTrue(result.getExecutionEndTime() -
+                                        previousEndTime >= 0L);
+                }
+                previousEndTime = result.getExecutionEndTime();
+                /*
+                 * Completions are pushed to the listener, well inside
+                 * the 25 ms interval once spent polling.
+                 */
+                assertTrue(result.getListenerDeliveredTime() -
+                                result.getExecutionEndTime() <
+                                    TimeUnit.MILLISECONDS.toNanos(25L));
+            }
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test TaskOverflowPolicy.REJECT rejects submissions beyond
+     * maxPendingTaskLimit without holding capacity.
+     */
+    @Test
+    public void testOverflowPolicyReject() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTaskToken pendingToken = null;
+        RTaskToken laterToken = null;
+        RTaskResult pendingResult = null;
+        RTaskResult laterResult = null;
+        RBrokerException rejection = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.maxPendingTaskLimit = 1;
+        config.overflowPolicy = TaskOverflowPolicy.REJECT;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rBroker.pause();
+                pendingToken = rBroker.submit(RTaskFactory.discreteTask(
+                        "Histogram of Auto Sales", "root", "testuser",
+                        null, null));
+                try {
+                    rBroker.submit(RTaskFactory.discreteTask(
+                            "Histogram of Auto Sales", "root", "testuser",
+                            null, null));
+                } catch (RBrokerException rex) {
+                    rejection = rex;
+                }
+                rBroker.resume();
+                pendingResult = pendingToken.getResult();
+                laterToken = rBroker.submit(RTaskFactory.discreteTask(
+                        "Histogram of Auto Sales", "root", "testuser",
+                        null, null));
+                laterResult = laterToken.getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(rejection);
+            assertTrue(rejection.getMessage().startsWith("Broker at capacity"));
+            assertTrue(pendingResult.isSuccess());
+            assertTrue(laterResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test TaskOverflowPolicy.BLOCK holds submissions beyond
+     * maxPendingTaskLimit until capacity frees or overflowTimeout.
+     */
+    @Test
+    public void testOverflowPolicyBlock() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTaskToken pendingToken = null;
+        RTaskToken blockedToken = null;
+        RTaskResult blockedResult = null;
+        RBrokerException timeout = null;
+        long timeBlocked = 0L;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.maxPendingTaskLimit = 1;
+        config.overflowPolicy = TaskOverflowPolicy.BLOCK;
+        config.overflowTimeout = 500L;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rBroker.pause();
+                pendingToken = rBroker.submit(RTaskFactory.discreteTask(
+                        "Histogram of Auto Sales", "root", "testuser",
+                        null, null));
+
+                /*
+                 * No capacity frees while paused, blocked
+                 * submission times out.
+                 */
+                long blockStart = System.currentTimeMillis();
+                try {
+                    rBroker.submit(RTaskFactory.discreteTask(
+                            "Histogram of Auto Sales", "root", "testuser",
+                            null, null));
+                } catch (RBrokerException rex) {
+                    timeout = rex;
+                }
+                timeBlocked = System.currentTimeMillis() - blockStart;
+
+                /*
+                 * Capacity frees once resumed, blocked
+                 * submission is accepted.
+                 */
+                final RBroker pausedBroker = rBroker;
+                new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            Thread.sleep(100L);
+                        } catch (InterruptedException iex) {
+                        }
+                        pausedBroker.resume();
+                    }
+                }).start();
+                blockedToken = rBroker.submit(RTaskFactory.discreteTask(
+                        "Histogram of Auto Sales", "root", "testuser",
+                        null, null));
+                pendingToken.getResult();
+                blockedResult = blockedToken.getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(timeout);
+            assertTrue(timeBlocked >= 500L);
+            assertTrue(blockedResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test TaskOverflowPolicy.CALLER_RUNS executes submissions beyond
+     * maxPendingTaskLimit on the submitting thread.
+     */
+    @Test
+    public void testOverflowPolicyCallerRuns() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTaskToken pendingToken = null;
+        RTaskToken callerToken = null;
+        RTaskResult pendingResult = null;
+        RTaskResult callerResult = null;
+        boolean doneOnReturn = false;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.maxPendingTaskLimit = 1;
+        config.overflowPolicy = TaskOverflowPolicy.CALLER_RUNS;
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rBroker.pause();
+                pendingToken = rBroker.submit(RTaskFactory.discreteTask(
+                        "Histogram of Auto Sales", "root", "testuser",
+                        null, null));
+
+                /*
+                 * Caller runs overflow once dispatch resumes.
+                 */
+                final RBroker pausedBroker = rBroker;
+                new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            Thread.sleep(100L);
+                        } catch (InterruptedException iex) {
+                        }
+                        pausedBroker.resume();
+                    }
+                }).start();
+                callerToken = rBroker.submit(RTaskFactory.discreteTask(
+                        "Histogram of Auto Sales", "root", "testuser",
+                        null, null));
+                doneOnReturn = callerToken.isDone();
+                pendingResult = pendingToken.getResult();
+                callerResult = callerToken.getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(doneOnReturn);
+            assertTrue(pendingResult.isSuccess());
+            assertTrue(callerResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test RTaskTracer span for each stage begins and ends once,
+     * in stage order, recording any task failure.
+     */
+    @Test
+    public void testTaskTracingSpanLifecycle() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        DiscreteBrokerConfig config = null;
+        RTask rTask = null;
+        final List<String> spanEvents =
+                Collections.synchronizedList(new ArrayList<String>());
+        final Semaphore taskTraced = new Semaphore(0);
+        List<String> goodTaskEvents = null;
+        List<String> badTaskEvents = null;
+        boolean traceDone = true;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        config = new DiscreteBrokerConfig(endpoint, null, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.taskTracer = new RTaskTracer() {
+
+            public Object currentContext() {
+                return null;
+            }
+
+            public RTaskSpan startSpan(final RTaskStage stage,
+                                       RTask task,
+                                       Object parentContext) {
+                spanEvents.add("begin " + stage.getSpanName());
+                return new RTaskSpan() {
+
+                    public Object getContext() {
+                        return stage.getSpanName();
+                    }
+
+                    public void end(Throwable failure) {
+                        spanEvents.add(((failure == null) ? "end " : "fail ") +
+                                       stage.getSpanName());
+                        if (stage == RTaskStage.TASK) {
+                            taskTraced.release();
+                        }
+                    }
+                };
+            }
+
+            public Object attachContext(Object context) {
+                return null;
+            }
+
+            public void detachContext(Object scope) {
+            }
+        };
+
+        try {
+            rBroker = RBrokerFactory.discreteTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.discreteTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                rTask = RTaskFactory.discreteTask("Histogram of Auto Sales",
+                                                  "root", "testuser",
+                                                  null, null);
+                rBroker.submit(rTask);
+                traceDone &= taskTraced.tryAcquire(2L, TimeUnit.MINUTES);
+                goodTaskEvents = new ArrayList<String>(spanEvents);
+                spanEvents.clear();
+
+                rTask = RTaskFactory.discreteTask(DeployRUtil.BAD_SCRIPT_NAME,
+                                                  "root", "testuser",
+                                                  null, null);
+                rBroker.submit(rTask);
+                traceDone &= taskTraced.tryAcquire(2L, TimeUnit.MINUTES);
+                badTaskEvents = new ArrayList<String>(spanEvents);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(traceDone);
+            assertEquals(Arrays.asList("begin rbroker.task",
+                            "begin rbroker.submit", "end rbroker.submit",
+                            "begin rbroker.queue", "end rbroker.queue",
+                            "begin rbroker.token_wait", "end rbroker.token_wait",
+                            "begin rbroker.execute", "end rbroker.execute",
+                            "begin rbroker.deliver", "end rbroker.deliver",
+                            "end rbroker.task"),
+                    goodTaskEvents);
+            assertTrue(badTaskEvents.contains("fail rbroker.execute"));
+            assertEquals("fail rbroker.task",
+                         badTaskEvents.get(badTaskEvents.size() - 1));
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
 }
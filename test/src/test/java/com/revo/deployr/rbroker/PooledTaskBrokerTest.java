@@ -15,12 +15,17 @@ package com.revo.deployr.rbroker;
 import com.revo.deployr.DeployRUtil;
 import com.revo.deployr.client.broker.*;
 import com.revo.deployr.client.broker.config.*;
+import com.revo.deployr.client.broker.engine.PooledTaskBroker;
 import com.revo.deployr.client.broker.options.*;
+import com.revo.deployr.client.broker.task.PooledTask;
 import com.revo.deployr.client.*;
 import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.auth.basic.RBasicAuthentication;
 import org.junit.*;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -1137,5 +1142,855 @@ public class PooledTaskBrokerTest {
             fail(cleanupExceptionMsg + cleanupException.getMessage());
         }
     }
- 
+
+    /**
+     * Test RBroker.submitAsync composition of RTaskFuture.
+     */
+    @Test
+    public void testSubmitAsyncComposition() {
+
+        // Test variables.
+        int taskCount = 5;
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTask rTask = null;
+        List<Boolean> taskOutcomes = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 2);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                rTask = RTaskFactory.pooledTask("Histogram of Auto Sales",
+                                         "root", "testuser", null, null);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "RTaskFactory.pooledTask failed: ";
+            }
+        }
+
+        if(rTask != null) {
+            try {
+                List<RTaskFuture<Boolean>> futures =
+                    new ArrayList<RTaskFuture<Boolean>>();
+                for(int i=0; i<taskCount; i++) {
+                    futures.add(rBroker.submitAsync(rTask).thenApply(
+                        new RTaskFunction<RTaskResult, Boolean>() {
+                            public Boolean apply(RTaskResult result) {
+                                return result.isSuccess();
+                            }
+                        }));
+                }
+                taskOutcomes = RTaskFutures.allOf(futures).get();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submitAsync(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(taskOutcomes);
+            assertEquals(taskCount, taskOutcomes.size());
+            assertFalse(taskOutcomes.contains(Boolean.FALSE));
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test tenant tasks execute under per-tenant token quotas.
+     */
+    @Test
+    public void testTenantTokenQuota() {
+
+        // Test variables.
+        int floodTasks = 8;
+        int scoringTasks = 2;
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        List<RTaskToken> rTaskTokens = new ArrayList<RTaskToken>();
+        final List<String> completionOrder =
+            Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger maxBackfillExecuting = new AtomicInteger();
+        final CountDownLatch tasksReported =
+            new CountDownLatch(floodTasks + scoringTasks);
+        boolean tasksDone = false;
+        RBrokerStatus rBrokerStatus = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 3);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.tenantTokenQuotas.put("backfill", 1);
+        config.tenantWeights.put("scoring", 2);
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+            rBroker.addTaskListener(new RTaskListener() {
+
+                public void onTaskCompleted(RTask task, RTaskResult result) {
+                    completionOrder.add(((PooledTask) task).getTenant());
+                    tasksReported.countDown();
+                }
+
+                public void onTaskError(RTask task, Throwable throwable) {
+                    tasksReported.countDown();
+                }
+            });
+            rBroker.addBrokerListener(new RBrokerListener() {
+
+                public void onRuntimeError(Throwable throwable) {
+                }
+
+                public void onRuntimeStats(RBrokerRuntimeStats stats,
+                                           int maxConcurrency) {
+                    RBrokerTenantStats backfill =
+                        stats.tenantStats.get("backfill");
+                    if (backfill != null &&
+                        backfill.executingTasks > maxBackfillExecuting.get()) {
+                        maxBackfillExecuting.set(backfill.executingTasks);
+                    }
+                }
+            });
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                for(int i=0; i<floodTasks; i++) {
+                    PooledTask rTask = (PooledTask)
+                        RTaskFactory.pooledTask("Sys.sleep(1)", null);
+                    rTask.setTenant("backfill");
+                    rTaskTokens.add(rBroker.submit(rTask));
+                }
+                for(int i=0; i<scoringTasks; i++) {
+                    PooledTask rTask = (PooledTask)
+                        RTaskFactory.pooledTask("x <- 1", null);
+                    rTask.setTenant("scoring");
+                    rTaskTokens.add(rBroker.submit(rTask));
+                }
+                rBrokerStatus = rBroker.status();
+                tasksDone = tasksReported.await(2L, TimeUnit.MINUTES);
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(tasksDone);
+            assertNotNull(rBrokerStatus.pendingTasksByTenant);
+            assertTrue(rBrokerStatus.pendingTasksByTenant
+                           .containsKey("backfill"));
+            // Backfill never held more than its quota of R sessions.
+            assertTrue(maxBackfillExecuting.get() <= 1);
+            // Scoring, submitted behind the flood, finished ahead of it.
+            assertEquals(floodTasks + scoringTasks, completionOrder.size());
+            assertEquals("backfill",
+                         completionOrder.get(completionOrder.size() - 1));
+            // At most one backfill task completes ahead of them.
+            assertTrue(completionOrder.lastIndexOf("scoring") <= scoringTasks);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test PooledTaskBroker.resize grows and shrinks live pool.
+     */
+    @Test
+    public void testPoolResize() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        int grownPoolSize = 0;
+        int grownConcurrency = 0;
+        int shrunkPoolSize = 0;
+        int shrunkConcurrency = 0;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                PooledTaskBroker pooledBroker = (PooledTaskBroker) rBroker;
+                grownPoolSize = pooledBroker.resize(2);
+                grownConcurrency = rBroker.maxConcurrency();
+                shrunkPoolSize = pooledBroker.resize(1);
+                shrunkConcurrency = rBroker.maxConcurrency();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "pooledBroker.resize failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertEquals(2, grownPoolSize);
+            assertEquals(2, grownConcurrency);
+            assertEquals(1, shrunkPoolSize);
+            assertEquals(1, shrunkConcurrency);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test PooledTaskBroker refresh while tasks are executing.
+     */
+    @Test
+    public void testRefreshWhileBusy() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTask rTask = null;
+        RTaskToken rTaskToken = null;
+        RTaskResult rTaskResult = null;
+        int refreshedConcurrency = 0;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 2);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.refreshMaxFraction = 0.5;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                rTask = RTaskFactory.pooledTask("Sys.sleep(2)", null);
+                rTaskToken = rBroker.submit(rTask);
+                rBroker.refresh(config);
+                rTaskResult = rTaskToken.getResult();
+                refreshedConcurrency = rBroker.maxConcurrency();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.refresh failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(rTaskResult);
+            assertTrue(rTaskResult.isSuccess());
+            assertEquals(2, refreshedConcurrency);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test PooledTaskBroker batched pool startup.
+     */
+    @Test
+    public void testBatchedPoolStartup() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTask rTask = null;
+        RTaskToken rTaskToken = null;
+        RTaskResult rTaskResult = null;
+        int startupConcurrency = 0;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 4);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.poolCreationBatchSize = 1;
+        config.minStartupPoolSize = 1;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+            startupConcurrency = rBroker.maxConcurrency();
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                rTask = RTaskFactory.pooledTask("x <- 1", null);
+                rTaskToken = rBroker.submit(rTask);
+                rTaskResult = rTaskToken.getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertTrue(startupConcurrency >= 1);
+            assertTrue(startupConcurrency <= 4);
+            assertNotNull(rTaskResult);
+            assertTrue(rTaskResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test PooledBrokerConfig preload affinity with
+     * redundant preloads skipped.
+     */
+    @Test
+    public void testTaskExecutionWithPreloadAffinity() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTaskResult firstResult = null;
+        RTaskResult secondResult = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 2);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.preloadAffinity = true;
+        config.skipRedundantPreloads = true;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                PooledTaskOptions options =
+                    DeployRUtil.createPooledTaskOptions(true);
+                RTask rTask = RTaskFactory.pooledTask("Histogram of Auto Sales",
+                                         "root", "testuser", null, options);
+                firstResult = rBroker.submit(rTask).getResult();
+                secondResult = rBroker.submit(rTask).getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(firstResult);
+            assertTrue(firstResult.isSuccess());
+            assertNotNull(secondResult);
+            assertTrue(secondResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test PooledTask affinity key pins related tasks
+     * to a single R session.
+     */
+    @Test
+    public void testTaskExecutionWithAffinityKey() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTaskResult firstResult = null;
+        RTaskResult secondResult = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 4);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                RTask firstTask =
+                    RTaskFactory.pooledTask("sessionValue <- 42", null);
+                ((PooledTask) firstTask).setAffinityKey("session-1");
+                firstResult = rBroker.submit(firstTask).getResult();
+
+                RTask secondTask =
+                    RTaskFactory.pooledTask("stopifnot(sessionValue == 42)", null);
+                ((PooledTask) secondTask).setAffinityKey("session-1");
+                secondResult = rBroker.submit(secondTask).getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(firstResult);
+            assertTrue(firstResult.isSuccess());
+            assertNotNull(secondResult);
+            assertTrue(secondResult.isSuccess());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test a task waiting on a busy affinity key R session
+     * does not hold up dispatch of tasks on other keys.
+     */
+    @Test
+    public void testTaskExecutionWithBusyAffinityKey() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTaskToken firstToken = null;
+        RTaskToken secondToken = null;
+        RTaskResult otherResult = null;
+        boolean secondDoneFirst = true;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 2);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                RTask firstTask =
+                    RTaskFactory.pooledTask("Sys.sleep(5)", null);
+                ((PooledTask) firstTask).setAffinityKey("session-1");
+                firstToken = rBroker.submit(firstTask);
+
+                RTask secondTask =
+                    RTaskFactory.pooledTask("x <- 1", null);
+                ((PooledTask) secondTask).setAffinityKey("session-1");
+                secondToken = rBroker.submit(secondTask);
+
+                RTask otherTask =
+                    RTaskFactory.pooledTask("y <- 2", null);
+                otherResult = rBroker.submit(otherTask)
+                        .getResult(30, TimeUnit.SECONDS);
+                secondDoneFirst = secondToken.isDone();
+
+                firstToken.getResult();
+                secondToken.getResult();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(otherResult);
+            assertTrue(otherResult.isSuccess());
+            assertFalse(secondDoneFirst);
+            assertTrue(firstToken.isDone());
+            assertTrue(secondToken.isDone());
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test PooledTaskBroker per-project health statistics.
+     */
+    @Test
+    public void testProjectHealthStats() {
+
+        // Test variables.
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTaskResult rTaskResult = null;
+        List<RProjectHealthStats> healthStats = null;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, 1);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.quarantineFailureThreshold = 3;
+
+        try {
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null) {
+            try {
+                RTask rTask = RTaskFactory.pooledTask("x <- 1", null);
+                rTaskResult = rBroker.submit(rTask).getResult();
+                healthStats = ((PooledTaskBroker) rBroker).projectHealth();
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "pooledBroker.projectHealth failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(rTaskResult);
+            assertTrue(rTaskResult.isSuccess());
+            assertEquals(1, healthStats.size());
+            assertEquals(1L, healthStats.get(0).totalTasksRun);
+            assertEquals(0, healthStats.get(0).consecutiveFailures);
+            assertFalse(healthStats.get(0).quarantined);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
+
+    /**
+     * Test PooledTaskBroker swaps a standby R session into the
+     * pool on the loss of a pooled R session.
+     */
+    @Test
+    public void testStandbyReplacesLostProject() {
+
+        // Test variables.
+        int poolSize = 2;
+        RBroker rBroker = null;
+        RBasicAuthentication rAuth = null;
+        PooledBrokerConfig config = null;
+        RTaskResult lostResult = null;
+        List<RTaskToken> rTaskTokens = new ArrayList<RTaskToken>();
+        int concurrencyAfterLoss = 0;
+        boolean tasksSucceeded = true;
+
+        // Test error handling.
+        Exception exception = null;
+        String exceptionMsg = "";
+        Exception cleanupException = null;
+        String cleanupExceptionMsg = "";
+
+        // Test.
+        rAuth =
+            new RBasicAuthentication(System.getProperty("username"),
+                                     System.getProperty("password"));
+        config = new PooledBrokerConfig(endpoint, rAuth, poolSize);
+        config.allowSelfSignedSSLCert = allowSelfSigned;
+        config.standbyPoolSize = 1;
+        /*
+         * Standby alone restores the pool, no background replacement.
+         */
+        config.replaceLostProjects = false;
+
+        try {
+            /*
+             * No RTaskListener registered, so the task
+             * that loses its R session is not repeated.
+             */
+            rBroker = RBrokerFactory.pooledTaskBroker(config);
+        } catch (Exception ex) {
+            exception = ex;
+            exceptionMsg = "RBrokerFactory.pooledTaskBroker failed: ";
+        }
+
+        if(rBroker != null && exception == null) {
+            try {
+                /*
+                 * Terminate the R session executing the task,
+                 * simulating a slot failure on the DeployR grid.
+                 */
+                RTask rTask = RTaskFactory.pooledTask(
+                        "tools::pskill(Sys.getpid(), tools::SIGKILL)", null);
+                lostResult = rBroker.submit(rTask).getResult();
+                /*
+                 * PooledTaskBroker.callback() has handled the lost
+                 * R session by the time the result is available.
+                 */
+                concurrencyAfterLoss = rBroker.maxConcurrency();
+
+                for(int i=0; i<poolSize * 2; i++) {
+                    rTaskTokens.add(rBroker.submit(
+                            RTaskFactory.pooledTask("x <- 1", null)));
+                }
+                for(RTaskToken rTaskToken : rTaskTokens) {
+                    tasksSucceeded &= rTaskToken.getResult().isSuccess();
+                }
+            } catch (Exception ex) {
+                exception = ex;
+                exceptionMsg = "rBroker.submit(rTask) failed: ";
+            }
+        }
+
+        // Test cleanup.
+        try {
+            if (rBroker != null) {
+                rBroker.shutdown();
+            }
+        } catch (Exception ex) {
+            cleanupException = ex;
+            cleanupExceptionMsg = "rBroker.shutdown failed: ";
+        }
+
+        // Test asserts.
+        if (exception == null) {
+            assertNotNull(lostResult);
+            assertFalse(lostResult.isSuccess());
+            assertEquals(poolSize, concurrencyAfterLoss);
+            assertTrue(tasksSucceeded);
+        } else {
+            fail(exceptionMsg + exception.getMessage());
+        }
+
+        // Test cleanup errors.
+        if (cleanupException != null) {
+            fail(cleanupExceptionMsg + cleanupException.getMessage());
+        }
+    }
 }